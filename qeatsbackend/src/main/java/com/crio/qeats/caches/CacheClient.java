@@ -0,0 +1,83 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Redis commands used by the caches, each answered in a single round trip.
+ * - jedis: connections borrowed from the JedisPool, one per call, always returned.
+ * - lettuce: one connection shared by all callers, which Lettuce multiplexes.
+ * Failures surface as {@link CacheException}.
+ */
+public interface CacheClient {
+
+  String BACKEND_PROPERTY = "qeats.cache.client";
+
+  // Deletes KEYS[1] only if its value is ARGV[1], so a lock is only released by its owner.
+  String DELETE_IF_EQUALS_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then "
+      + "return redis.call('del', KEYS[1]) else return 0 end";
+
+  /**
+   * Tells whether the cache is worth trying, without a round trip to Redis when possible.
+   */
+  boolean isAvailable();
+
+  /**
+   * Reads the given keys with one MGET.
+   * @param keys keys to read
+   * @return value of keys[i] at index i, null for the missing keys
+   */
+  List<byte[]> mget(List<String> keys);
+
+  /**
+   * Writes the given entries with SETEX, pipelined.
+   * @param entries values by key
+   * @param expiryInSeconds time to live of every entry
+   */
+  void setex(Map<String, byte[]> entries, int expiryInSeconds);
+
+  /**
+   * Counts the keys matching the given pattern with SCAN, so Redis is never blocked.
+   */
+  long countKeys(String pattern);
+
+  /**
+   * Deletes the given keys with one DEL.
+   */
+  void delete(List<String> keys);
+
+  /**
+   * Sets each key to the value unless it exists, with SET NX PX, pipelined.
+   * @param keys keys to set
+   * @param value value of every key
+   * @param expiryInMillis time to live of the keys which are set
+   * @return true at index i if keys[i] was set
+   */
+  List<Boolean> setIfAbsent(List<String> keys, String value, long expiryInMillis);
+
+  /**
+   * Deletes each key whose value is the given one, atomically per key, pipelined.
+   */
+  void deleteIfEquals(List<String> keys, String value);
+
+  /**
+   * Publishes a message to every subscriber of the channel, on any instance.
+   */
+  void publish(String channel, String message);
+
+  /**
+   * Subscribes to the channel in the background, resubscribing whenever Redis comes back.
+   * Messages published while the subscription is down are lost.
+   * @param channel channel to subscribe to
+   * @param listener called with each message, on the subscriber thread
+   * @return handle which ends the subscription when closed
+   */
+  AutoCloseable subscribe(String channel, Consumer<String> listener);
+}
@@ -0,0 +1,22 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+/**
+ * Thrown by a {@link CacheClient} when the cache cannot be reached or fails a command.
+ * Callers are expected to carry on without the cache.
+ */
+public class CacheException extends RuntimeException {
+
+  public CacheException(String message) {
+    super(message);
+  }
+
+  public CacheException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the cells around the busiest locations into {@link RestaurantCellCache} before users ask
+ * for them: at startup, and a few minutes before each peak window, when the serving radius
+ * changes.
+ * - Locations come from coordinates-file, one "latitude longitude" pair per line, followed by the
+ *   locations looked up the most since the last warm.
+ * - Each location is warmed for every serving radius.
+ * - Lookups are paced by a rate limit, and run on their own thread, so warming neither floods
+ *   Mongo nor holds up the other scheduled tasks.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "qeats.cache.warmer.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class CacheWarmer {
+
+  @Value("${qeats.cache.warmer.coordinates-file:}")
+  private String coordinatesFile;
+
+  @Value("${qeats.cache.warmer.max-locations:500}")
+  private int maxLocations;
+
+  @Value("${qeats.cache.warmer.radii-kms:5.0,3.0}")
+  private double[] radiiInKms;
+
+  @Value("${qeats.cache.warmer.lookups-per-second:20}")
+  private double lookupsPerSecond;
+
+  @Autowired
+  private RestaurantCellCache restaurantCellCache;
+
+  private RateLimiter rateLimiter;
+  private ExecutorService warmExecutor;
+  private final AtomicBoolean warming = new AtomicBoolean();
+
+  @PostConstruct
+  public void init() {
+    rateLimiter = RateLimiter.create(lookupsPerSecond);
+    warmExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "qeats-cache-warmer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    warmExecutor.shutdownNow();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    warmInBackground();
+  }
+
+  /**
+   * Warms the cache ahead of the peak windows of RestaurantServiceImpl, which start at 8, 13 and
+   * 19 o'clock, then lets the hot locations follow the traffic of the next window.
+   */
+  @Scheduled(cron = "${qeats.cache.warmer.cron:0 55 7,12,18 * * *}")
+  public void warmBeforePeakHours() {
+    warmInBackground();
+  }
+
+  private void warmInBackground() {
+    if (!warming.compareAndSet(false, true)) {
+      log.debug("restaurant cell cache warming already running");
+      return;
+    }
+    warmExecutor.execute(() -> {
+      try {
+        warm();
+        restaurantCellCache.decayHotLocations();
+      } finally {
+        warming.set(false);
+      }
+    });
+  }
+
+  /**
+   * Warms the cells around the configured and hot locations, at the configured rate.
+   * @return number of locations warmed
+   */
+  public int warm() {
+    List<double[]> locations = findLocations();
+    int warmed = 0;
+    for (double[] location : locations) {
+      try {
+        for (double radiusInKms : radiiInKms) {
+          rateLimiter.acquire();
+          restaurantCellCache.warm(location[0], location[1], radiusInKms);
+        }
+        warmed++;
+      } catch (RuntimeException e) {
+        log.debug("could not warm restaurant cells around {},{}", location[0], location[1], e);
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+    }
+    log.info("warmed restaurant cells around {} of {} locations", warmed, locations.size());
+    return warmed;
+  }
+
+  private List<double[]> findLocations() {
+    List<double[]> locations = readCoordinatesFile();
+    if (locations.size() < maxLocations) {
+      locations.addAll(restaurantCellCache.findHotLocations(maxLocations - locations.size()));
+    }
+    return locations.size() > maxLocations ? locations.subList(0, maxLocations) : locations;
+  }
+
+  private List<double[]> readCoordinatesFile() {
+    List<double[]> locations = new ArrayList<>();
+    if (coordinatesFile.isEmpty()) {
+      return locations;
+    }
+    try {
+      for (String line : Files.readAllLines(Paths.get(coordinatesFile), StandardCharsets.UTF_8)) {
+        String[] coordinates = line.trim().split("[\\s,]+");
+        if (coordinates.length != 2 || line.trim().startsWith("#")) {
+          continue;
+        }
+        try {
+          locations.add(new double[] {Double.parseDouble(coordinates[0]),
+              Double.parseDouble(coordinates[1])});
+        } catch (NumberFormatException e) {
+          log.debug("skipping unreadable coordinates {}", line);
+        }
+      }
+    } catch (IOException e) {
+      log.warn("could not read coordinates to warm from {}", coordinatesFile, e);
+    }
+    return locations;
+  }
+}
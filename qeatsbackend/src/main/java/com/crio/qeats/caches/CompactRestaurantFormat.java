@@ -0,0 +1,182 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import com.crio.qeats.models.RestaurantEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written binary layout of a list of restaurants, about a third of its JSON.
+ * - Field names are implied by their position.
+ * - City, opening hours and attributes repeat across a cell, so each distinct value is written
+ *   once in a dictionary up front and referenced by index.
+ * - Lengths and indexes are varints; coordinates are written as doubles, so distances computed
+ *   from decoded restaurants are exactly those computed from Mongo's.
+ * Any change to the layout needs a new format id in {@link RestaurantCellCodec}.
+ */
+final class CompactRestaurantFormat {
+
+  private CompactRestaurantFormat() { /* static helpers */ }
+
+  static byte[] write(List<RestaurantEntity> restaurants) throws IOException {
+    Map<String, Integer> dictionary = new HashMap<>();
+    List<String> dictionaryValues = new ArrayList<>();
+    ByteArrayOutputStream body = new ByteArrayOutputStream(restaurants.size() * 64);
+    DataOutputStream bodyOut = new DataOutputStream(body);
+
+    writeVarint(bodyOut, restaurants.size());
+    for (RestaurantEntity restaurant : restaurants) {
+      writeString(bodyOut, restaurant.getId());
+      writeString(bodyOut, restaurant.getRestaurantId());
+      writeString(bodyOut, restaurant.getName());
+      writeString(bodyOut, restaurant.getImageUrl());
+      writeReference(bodyOut, restaurant.getCity(), dictionary, dictionaryValues);
+      writeReference(bodyOut, restaurant.getOpensAt(), dictionary, dictionaryValues);
+      writeReference(bodyOut, restaurant.getClosesAt(), dictionary, dictionaryValues);
+      writeCoordinate(bodyOut, restaurant.getLatitude());
+      writeCoordinate(bodyOut, restaurant.getLongitude());
+      List<String> attributes = restaurant.getAttributes();
+      writeVarint(bodyOut, attributes == null ? 0 : attributes.size());
+      if (attributes != null) {
+        for (String attribute : attributes) {
+          writeReference(bodyOut, attribute, dictionary, dictionaryValues);
+        }
+      }
+    }
+    bodyOut.flush();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.size() + 256);
+    DataOutputStream out = new DataOutputStream(bytes);
+    writeVarint(out, dictionaryValues.size());
+    for (String value : dictionaryValues) {
+      writeString(out, value);
+    }
+    body.writeTo(out);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  static List<RestaurantEntity> read(byte[] bytes, int offset, int length) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, offset, length));
+    String[] dictionary = new String[readVarint(in)];
+    for (int i = 0; i < dictionary.length; i++) {
+      dictionary[i] = readString(in);
+    }
+
+    int count = readVarint(in);
+    List<RestaurantEntity> restaurants = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      RestaurantEntity restaurant = new RestaurantEntity();
+      restaurant.setId(readString(in));
+      restaurant.setRestaurantId(readString(in));
+      restaurant.setName(readString(in));
+      restaurant.setImageUrl(readString(in));
+      restaurant.setCity(readReference(in, dictionary));
+      restaurant.setOpensAt(readReference(in, dictionary));
+      restaurant.setClosesAt(readReference(in, dictionary));
+      restaurant.setLatitude(readCoordinate(in));
+      restaurant.setLongitude(readCoordinate(in));
+      int attributeCount = readVarint(in);
+      List<String> attributes = new ArrayList<>(attributeCount);
+      for (int j = 0; j < attributeCount; j++) {
+        attributes.add(readReference(in, dictionary));
+      }
+      restaurant.setAttributes(attributes);
+      restaurants.add(restaurant);
+    }
+    return restaurants;
+  }
+
+  // 0 for null, index + 1 otherwise.
+  private static void writeReference(DataOutputStream out, String value,
+      Map<String, Integer> dictionary, List<String> dictionaryValues) throws IOException {
+    if (value == null) {
+      writeVarint(out, 0);
+      return;
+    }
+    Integer index = dictionary.get(value);
+    if (index == null) {
+      index = dictionaryValues.size();
+      dictionary.put(value, index);
+      dictionaryValues.add(value);
+    }
+    writeVarint(out, index + 1);
+  }
+
+  private static String readReference(DataInputStream in, String[] dictionary)
+      throws IOException {
+    int reference = readVarint(in);
+    if (reference > dictionary.length) {
+      throw new IOException("dictionary reference " + reference + " out of bounds");
+    }
+    return reference == 0 ? null : dictionary[reference - 1];
+  }
+
+  // 0 for null, UTF-8 length + 1 otherwise.
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      writeVarint(out, 0);
+      return;
+    }
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    writeVarint(out, utf8.length + 1);
+    out.write(utf8);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = readVarint(in);
+    if (length == 0) {
+      return null;
+    }
+    byte[] utf8 = new byte[length - 1];
+    in.readFully(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  // NaN for null.
+  private static void writeCoordinate(DataOutputStream out, Double value) throws IOException {
+    out.writeDouble(value == null ? Double.NaN : value);
+  }
+
+  private static Double readCoordinate(DataInputStream in) throws IOException {
+    double value = in.readDouble();
+    return Double.isNaN(value) ? null : value;
+  }
+
+  private static void writeVarint(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarint(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (value < 0) {
+          throw new IOException("negative varint");
+        }
+        return value;
+      }
+    }
+    throw new IOException("malformed varint");
+  }
+}
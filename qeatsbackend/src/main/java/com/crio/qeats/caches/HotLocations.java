@@ -0,0 +1,79 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Lookup counts per location, rounded to about 100m, for the cache warmer.
+ * At most maxLocations are tracked; lookups of other locations are dropped until
+ * {@link #decay()} makes room.
+ */
+class HotLocations {
+
+  private static final double STEPS_PER_DEGREE = 1000;
+
+  private final int maxLocations;
+  private final ConcurrentMap<Long, AtomicLong> lookups = new ConcurrentHashMap<>();
+
+  HotLocations(int maxLocations) {
+    this.maxLocations = maxLocations;
+  }
+
+  void record(double latitude, double longitude) {
+    long key = keyOf(latitude, longitude);
+    AtomicLong count = lookups.get(key);
+    if (count == null) {
+      if (lookups.size() >= maxLocations) {
+        return;
+      }
+      count = lookups.computeIfAbsent(key, location -> new AtomicLong());
+    }
+    count.incrementAndGet();
+  }
+
+  /**
+   * Returns the most looked up locations, most looked up first.
+   * @param limit maximum number of locations
+   * @return latitude and longitude pairs
+   */
+  List<double[]> findHottest(int limit) {
+    return lookups.entrySet().stream()
+        .sorted(Comparator.comparingLong(
+            (Map.Entry<Long, AtomicLong> entry) -> entry.getValue().get()).reversed())
+        .limit(limit)
+        .map(entry -> locationOf(entry.getKey()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Halves every count and forgets the locations left without lookups, so that old traffic
+   * fades away.
+   */
+  void decay() {
+    lookups.values().forEach(count -> count.updateAndGet(value -> value / 2));
+    lookups.values().removeIf(count -> count.get() == 0);
+  }
+
+  private static long keyOf(double latitude, double longitude) {
+    long row = Math.round((latitude + 90) * STEPS_PER_DEGREE);
+    long column = Math.round((longitude + 180) * STEPS_PER_DEGREE);
+    return row << 20 | column;
+  }
+
+  private static double[] locationOf(long key) {
+    long row = key >>> 20;
+    long column = key & ((1 << 20) - 1);
+    return new double[] {row / STEPS_PER_DEGREE - 90, column / STEPS_PER_DEGREE - 180};
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import com.crio.qeats.configs.RedisConfiguration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * {@link CacheClient} on the JedisPool of {@link RedisConfiguration}.
+ * Every call borrows one connection and returns it before returning, including on failure.
+ * Active, idle and waiting connections are published as qeats.cache.client.connections.
+ * Subscriptions block their connection, so each one runs on its own thread and connection, outside
+ * the pool.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = CacheClient.BACKEND_PROPERTY, havingValue = "jedis",
+    matchIfMissing = true)
+public class JedisCacheClient implements CacheClient {
+
+  private static final long RESUBSCRIBE_DELAY_IN_MILLIS = 1000;
+
+  @Value("${spring.redis.port}")
+  private int redisPort;
+
+  @Autowired
+  private RedisConfiguration redisConfiguration;
+
+  @Value("${qeats.cache.client.availability-check-ms:1000}")
+  private long availabilityCheckInMillis;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private volatile boolean available;
+  private volatile long nextAvailabilityCheckInMillis;
+
+  @PostConstruct
+  public void registerMetrics() {
+    registerConnectionGauge("active", JedisPool::getNumActive);
+    registerConnectionGauge("idle", JedisPool::getNumIdle);
+    registerConnectionGauge("waiting", JedisPool::getNumWaiters);
+    // Saturation is active / max, the pool blocks callers once they are equal.
+    registerConnectionGauge("max", jedisPool -> RedisConfiguration.JEDIS_POOL_MAX_TOTAL);
+  }
+
+  // Checking borrows a connection, so the answer is reused for availabilityCheckInMillis, or
+  // until a command fails to reach Redis.
+  @Override
+  public boolean isAvailable() {
+    if (redisConfiguration.getJedisPool() == null) {
+      return false;
+    }
+    long currentTimeInMillis = System.currentTimeMillis();
+    if (currentTimeInMillis >= nextAvailabilityCheckInMillis) {
+      available = redisConfiguration.isCacheAvailable();
+      nextAvailabilityCheckInMillis = currentTimeInMillis + availabilityCheckInMillis;
+    }
+    return available;
+  }
+
+  @Override
+  public List<byte[]> mget(List<String> keys) {
+    byte[][] rawKeys = new byte[keys.size()][];
+    for (int i = 0; i < keys.size(); i++) {
+      rawKeys[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+    }
+    try (Jedis jedis = getJedisPool().getResource()) {
+      return jedis.mget(rawKeys);
+    } catch (JedisException e) {
+      throw failure("MGET", e);
+    }
+  }
+
+  @Override
+  public void setex(Map<String, byte[]> entries, int expiryInSeconds) {
+    try (Jedis jedis = getJedisPool().getResource()) {
+      Pipeline pipeline = jedis.pipelined();
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        pipeline.setex(entry.getKey().getBytes(StandardCharsets.UTF_8), expiryInSeconds,
+            entry.getValue());
+      }
+      pipeline.sync();
+    } catch (JedisException e) {
+      throw failure("SETEX", e);
+    }
+  }
+
+  @Override
+  public long countKeys(String pattern) {
+    ScanParams scanParams = new ScanParams().match(pattern).count(1000);
+    try (Jedis jedis = getJedisPool().getResource()) {
+      long count = 0;
+      String cursor = ScanParams.SCAN_POINTER_START;
+      do {
+        ScanResult<String> scanResult = jedis.scan(cursor, scanParams);
+        count += scanResult.getResult().size();
+        cursor = scanResult.getStringCursor();
+      } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+      return count;
+    } catch (JedisException e) {
+      throw failure("SCAN", e);
+    }
+  }
+
+  @Override
+  public void delete(List<String> keys) {
+    try (Jedis jedis = getJedisPool().getResource()) {
+      jedis.del(keys.toArray(new String[0]));
+    } catch (JedisException e) {
+      throw failure("DEL", e);
+    }
+  }
+
+  @Override
+  public List<Boolean> setIfAbsent(List<String> keys, String value, long expiryInMillis) {
+    try (Jedis jedis = getJedisPool().getResource()) {
+      Pipeline pipeline = jedis.pipelined();
+      List<Response<String>> replies = new ArrayList<>(keys.size());
+      // Jedis 2.x only takes an int expiry, which still covers more than 24 days.
+      int expiry = (int) Math.min(Math.max(expiryInMillis, 1), Integer.MAX_VALUE);
+      for (String key : keys) {
+        replies.add(pipeline.set(key, value, "NX", "PX", expiry));
+      }
+      pipeline.sync();
+      return replies.stream().map(reply -> "OK".equals(reply.get()))
+          .collect(Collectors.toList());
+    } catch (JedisException e) {
+      throw failure("SET NX", e);
+    }
+  }
+
+  @Override
+  public void deleteIfEquals(List<String> keys, String value) {
+    try (Jedis jedis = getJedisPool().getResource()) {
+      Pipeline pipeline = jedis.pipelined();
+      for (String key : keys) {
+        pipeline.eval(DELETE_IF_EQUALS_SCRIPT, Collections.singletonList(key),
+            Collections.singletonList(value));
+      }
+      pipeline.sync();
+    } catch (JedisException e) {
+      throw failure("EVAL", e);
+    }
+  }
+
+  @Override
+  public void publish(String channel, String message) {
+    try (Jedis jedis = getJedisPool().getResource()) {
+      jedis.publish(channel, message);
+    } catch (JedisException e) {
+      throw failure("PUBLISH", e);
+    }
+  }
+
+  @Override
+  public AutoCloseable subscribe(String channel, Consumer<String> listener) {
+    Subscription subscription = new Subscription(channel, listener);
+    Thread thread = new Thread(subscription, "qeats-cache-subscriber-" + channel);
+    thread.setDaemon(true);
+    thread.start();
+    return () -> {
+      subscription.close();
+      thread.interrupt();
+    };
+  }
+
+  private CacheException failure(String command, JedisException e) {
+    if (e instanceof JedisConnectionException) {
+      nextAvailabilityCheckInMillis = 0;
+    }
+    return new CacheException(command + " failed", e);
+  }
+
+  private JedisPool getJedisPool() {
+    JedisPool jedisPool = redisConfiguration.getJedisPool();
+    if (jedisPool == null) {
+      throw new CacheException("cache is destroyed");
+    }
+    return jedisPool;
+  }
+
+  private void registerConnectionGauge(String state, ToIntFunction<JedisPool> connections) {
+    Gauge.builder("qeats.cache.client.connections", redisConfiguration, configuration -> {
+      JedisPool jedisPool = configuration.getJedisPool();
+      return jedisPool == null ? 0 : connections.applyAsInt(jedisPool);
+    })
+        .tag("client", "jedis")
+        .tag("state", state)
+        .register(meterRegistry);
+  }
+
+  private class Subscription implements Runnable {
+
+    private final String channel;
+    private final Consumer<String> listener;
+    private final AtomicReference<JedisPubSub> current = new AtomicReference<>();
+    private volatile boolean closed;
+
+    Subscription(String channel, Consumer<String> listener) {
+      this.channel = channel;
+      this.listener = listener;
+    }
+
+    @Override
+    public void run() {
+      while (!closed) {
+        JedisPubSub pubSub = new JedisPubSub() {
+          @Override
+          public void onMessage(String messageChannel, String message) {
+            listener.accept(message);
+          }
+        };
+        current.set(pubSub);
+        try (Jedis jedis = new Jedis(RedisConfiguration.redisHost, redisPort)) {
+          // Returns once unsubscribed by close(), throws when the connection drops.
+          jedis.subscribe(pubSub, channel);
+        } catch (JedisException e) {
+          log.debug("subscription to {} lost, resubscribing", channel, e);
+          try {
+            Thread.sleep(RESUBSCRIBE_DELAY_IN_MILLIS);
+          } catch (InterruptedException interrupted) {
+            return;
+          }
+        }
+      }
+    }
+
+    void close() {
+      closed = true;
+      JedisPubSub pubSub = current.get();
+      if (pubSub != null && pubSub.isSubscribed()) {
+        pubSub.unsubscribe();
+      }
+    }
+  }
+}
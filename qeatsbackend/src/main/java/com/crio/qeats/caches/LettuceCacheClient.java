@@ -0,0 +1,286 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import com.crio.qeats.configs.RedisConfiguration;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link CacheClient} on a single Lettuce connection shared by all threads.
+ * Lettuce pipelines the commands of concurrent callers over the connection, so there is no pool
+ * to exhaust and callers never wait for a connection. The connection is opened on first use and
+ * reconnects by itself; while Redis is unreachable a new connection is tried at most once per
+ * second, and the cache is reported unavailable in between.
+ * Connection state and the number of callers waiting for a reply are published as
+ * qeats.cache.client.*. Commands pipelined on the connection are not counted, Lettuce does not
+ * expose them.
+ * Subscriptions run on a separate pub/sub connection, which Lettuce resubscribes on reconnect.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = CacheClient.BACKEND_PROPERTY, havingValue = "lettuce")
+public class LettuceCacheClient implements CacheClient {
+
+  private static final long RECONNECT_DELAY_IN_MILLIS = 1000;
+
+  @Value("${spring.redis.port}")
+  private int redisPort;
+
+  @Value("${qeats.cache.client.timeout-ms:500}")
+  private long timeoutInMillis;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private RedisClient redisClient;
+  private volatile StatefulRedisConnection<byte[], byte[]> connection;
+  private volatile long nextConnectTimeInMillis;
+  private final AtomicInteger callersWaiting = new AtomicInteger();
+
+  @PostConstruct
+  public void init() {
+    redisClient = RedisClient.create(RedisURI.builder()
+        .withHost(RedisConfiguration.redisHost)
+        .withPort(redisPort)
+        .withTimeout(Duration.ofMillis(timeoutInMillis))
+        .build());
+    Gauge.builder("qeats.cache.client.connections", this,
+        client -> client.connection != null && client.connection.isOpen() ? 1 : 0)
+        .tag("client", "lettuce")
+        .tag("state", "open")
+        .register(meterRegistry);
+    Gauge.builder("qeats.cache.client.callers.waiting", callersWaiting, AtomicInteger::get)
+        .tag("client", "lettuce")
+        .register(meterRegistry);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (connection != null) {
+      connection.close();
+    }
+    redisClient.shutdown();
+  }
+
+  @Override
+  public boolean isAvailable() {
+    try {
+      return connection().isOpen();
+    } catch (CacheException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public List<byte[]> mget(List<String> keys) {
+    byte[][] rawKeys = new byte[keys.size()][];
+    for (int i = 0; i < keys.size(); i++) {
+      rawKeys[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+    }
+    List<KeyValue<byte[], byte[]>> keyValues = await("MGET", connection().async().mget(rawKeys));
+    List<byte[]> values = new ArrayList<>(keyValues.size());
+    for (KeyValue<byte[], byte[]> keyValue : keyValues) {
+      values.add(keyValue.hasValue() ? keyValue.getValue() : null);
+    }
+    return values;
+  }
+
+  @Override
+  public void setex(Map<String, byte[]> entries, int expiryInSeconds) {
+    RedisAsyncCommands<byte[], byte[]> commands = connection().async();
+    List<RedisFuture<String>> replies = new ArrayList<>(entries.size());
+    for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+      replies.add(commands.setex(entry.getKey().getBytes(StandardCharsets.UTF_8),
+          expiryInSeconds, entry.getValue()));
+    }
+    for (RedisFuture<String> reply : replies) {
+      await("SETEX", reply);
+    }
+  }
+
+  @Override
+  public long countKeys(String pattern) {
+    RedisAsyncCommands<byte[], byte[]> commands = connection().async();
+    ScanArgs scanArgs = ScanArgs.Builder.matches(pattern).limit(1000);
+    long count = 0;
+    ScanCursor cursor = ScanCursor.INITIAL;
+    do {
+      KeyScanCursor<byte[]> scanResult = await("SCAN", commands.scan(cursor, scanArgs));
+      count += scanResult.getKeys().size();
+      cursor = scanResult;
+    } while (!cursor.isFinished());
+    return count;
+  }
+
+  private StatefulRedisConnection<byte[], byte[]> connection() {
+    StatefulRedisConnection<byte[], byte[]> current = connection;
+    if (current != null) {
+      return current;
+    }
+    synchronized (this) {
+      if (connection == null) {
+        if (System.currentTimeMillis() < nextConnectTimeInMillis) {
+          throw new CacheException("redis is unreachable");
+        }
+        try {
+          connection = redisClient.connect(ByteArrayCodec.INSTANCE);
+        } catch (RedisException e) {
+          nextConnectTimeInMillis = System.currentTimeMillis() + RECONNECT_DELAY_IN_MILLIS;
+          throw new CacheException("could not connect to redis", e);
+        }
+      }
+      return connection;
+    }
+  }
+
+  @Override
+  public void delete(List<String> keys) {
+    byte[][] rawKeys = new byte[keys.size()][];
+    for (int i = 0; i < keys.size(); i++) {
+      rawKeys[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+    }
+    await("DEL", connection().async().del(rawKeys));
+  }
+
+  @Override
+  public List<Boolean> setIfAbsent(List<String> keys, String value, long expiryInMillis) {
+    RedisAsyncCommands<byte[], byte[]> commands = connection().async();
+    SetArgs setArgs = SetArgs.Builder.nx().px(expiryInMillis);
+    List<RedisFuture<String>> replies = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      replies.add(commands.set(key.getBytes(StandardCharsets.UTF_8),
+          value.getBytes(StandardCharsets.UTF_8), setArgs));
+    }
+    List<Boolean> results = new ArrayList<>(keys.size());
+    for (RedisFuture<String> reply : replies) {
+      results.add("OK".equals(await("SET NX", reply)));
+    }
+    return results;
+  }
+
+  @Override
+  public void deleteIfEquals(List<String> keys, String value) {
+    RedisAsyncCommands<byte[], byte[]> commands = connection().async();
+    List<RedisFuture<Long>> replies = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      replies.add(commands.eval(DELETE_IF_EQUALS_SCRIPT, ScriptOutputType.INTEGER,
+          new byte[][] {key.getBytes(StandardCharsets.UTF_8)},
+          value.getBytes(StandardCharsets.UTF_8)));
+    }
+    for (RedisFuture<Long> reply : replies) {
+      await("EVAL", reply);
+    }
+  }
+
+  @Override
+  public void publish(String channel, String message) {
+    await("PUBLISH", connection().async().publish(channel.getBytes(StandardCharsets.UTF_8),
+        message.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Override
+  public AutoCloseable subscribe(String channel, Consumer<String> listener) {
+    ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "qeats-cache-subscriber-" + channel);
+      thread.setDaemon(true);
+      return thread;
+    });
+    AtomicReference<StatefulRedisPubSubConnection<String, String>> pubSub =
+        new AtomicReference<>();
+    Runnable connect = new Runnable() {
+      @Override
+      public void run() {
+        StatefulRedisPubSubConnection<String, String> pubSubConnection = null;
+        try {
+          pubSubConnection = redisClient.connectPubSub();
+          pubSubConnection.addListener(new RedisPubSubAdapter<String, String>() {
+            @Override
+            public void message(String messageChannel, String message) {
+              listener.accept(message);
+            }
+          });
+          pubSubConnection.sync().subscribe(channel);
+          pubSub.set(pubSubConnection);
+        } catch (RedisException e) {
+          log.debug("could not subscribe to {}, retrying", channel, e);
+          if (pubSubConnection != null) {
+            pubSubConnection.close();
+          }
+          if (!retries.isShutdown()) {
+            retries.schedule(this, RECONNECT_DELAY_IN_MILLIS, TimeUnit.MILLISECONDS);
+          }
+        }
+      }
+    };
+    retries.execute(connect);
+    return () -> {
+      retries.shutdownNow();
+      StatefulRedisPubSubConnection<String, String> pubSubConnection = pubSub.get();
+      if (pubSubConnection != null) {
+        pubSubConnection.close();
+      }
+    };
+  }
+
+  private <T> T await(String command, RedisFuture<T> reply) {
+    callersWaiting.incrementAndGet();
+    try {
+      return reply.get(timeoutInMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      throw new CacheException(command + " failed", e.getCause());
+    } catch (TimeoutException e) {
+      reply.cancel(false);
+      throw new CacheException(command + " timed out after " + timeoutInMillis + "ms", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CacheException(command + " interrupted", e);
+    } finally {
+      callersWaiting.decrementAndGet();
+    }
+  }
+}
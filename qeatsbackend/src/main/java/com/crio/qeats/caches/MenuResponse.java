@@ -0,0 +1,94 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A serialized GetMenuResponse, kept gzipped so it is sent as is to clients accepting gzip.
+ * Its ETags are strong validators of the menu version: a hash of the gzipped JSON, with a -gzip
+ * suffix for the gzipped representation, as Apache httpd does, so the two never share an ETag.
+ */
+public class MenuResponse {
+
+  private static final String GZIP_SUFFIX = "-gzip";
+
+  private final byte[] gzippedJson;
+  private final String version;
+
+  MenuResponse(byte[] gzippedJson) {
+    this.gzippedJson = gzippedJson;
+    this.version = Hashing.murmur3_128().hashBytes(gzippedJson).toString();
+  }
+
+  /**
+   * Wraps the given JSON, compressing it.
+   */
+  public static MenuResponse of(byte[] json) {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream(json.length / 4 + 64);
+    try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+      out.write(json);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new MenuResponse(gzipped.toByteArray());
+  }
+
+  public byte[] getGzippedJson() {
+    return gzippedJson;
+  }
+
+  /**
+   * Returns the JSON, decompressed on every call, for the clients which do not accept gzip.
+   */
+  public byte[] getJson() {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzippedJson))) {
+      return ByteStreams.toByteArray(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the quoted ETag of the gzipped or of the plain representation.
+   */
+  public String getEtag(boolean gzipped) {
+    return "\"" + version + (gzipped ? GZIP_SUFFIX : "") + "\"";
+  }
+
+  /**
+   * Tells whether an If-None-Match header names this version, in either representation.
+   * @param ifNoneMatch header value, a comma separated list of ETags or *, may be null
+   */
+  public boolean isNotModified(String ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String etag : ifNoneMatch.split(",")) {
+      String tag = etag.trim();
+      if (tag.equals("*")) {
+        return true;
+      }
+      // If-None-Match uses the weak comparison.
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals(getEtag(false)) || tag.equals(getEtag(true))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.models.MenuEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Two-tier cache of the serialized menu responses: an in-heap cache of each instance in front of
+ * Redis, both holding the gzipped JSON of {@link MenuResponse}, so a hit is neither read from
+ * Mongo nor serialized again.
+ * - Keys carry the version of the serialized form, {@link #KEY_PREFIX}, so instances running a
+ *   different GetMenuResponse never read each other's entries.
+ * - Saving a menu deletes it from Redis and evicts it from every instance through
+ *   {@link #INVALIDATION_CHANNEL}.
+ * - When Redis is unavailable, menus are served from the heap and Mongo only.
+ */
+@Log4j2
+@Component
+public class MenuResponseCache {
+
+  // Bump when the JSON of GetMenuResponse changes.
+  static final String KEY_PREFIX = "menus:v1:";
+
+  // Carries the restaurant id of the menu to evict, or ALL_MENUS.
+  static final String INVALIDATION_CHANNEL = "menus:invalidations";
+  static final String ALL_MENUS = "*";
+
+  @Value("${qeats.cache.menus.near.max-entries:10000}")
+  private long nearCacheMaxEntries;
+
+  @Value("${qeats.cache.menus.expiry-seconds:3600}")
+  private int expiryInSeconds;
+
+  @Autowired
+  private CacheClient cacheClient;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Cache<String, MenuResponse> nearMenus;
+  private AutoCloseable invalidationSubscription;
+  // Bumped on every eviction, so a lookup racing with one does not put back the evicted menu.
+  private final AtomicLong nearCacheGeneration = new AtomicLong();
+
+  private Counter nearHits;
+  private Counter nearMisses;
+  private Counter redisHits;
+  private Counter redisMisses;
+  private Counter cacheErrors;
+
+  @PostConstruct
+  public void init() {
+    nearMenus = CacheBuilder.newBuilder()
+        .maximumSize(nearCacheMaxEntries)
+        .expireAfterWrite(expiryInSeconds, TimeUnit.SECONDS)
+        .build();
+    invalidationSubscription = cacheClient.subscribe(INVALIDATION_CHANNEL, this::onInvalidation);
+    nearHits = meterRegistry.counter("qeats.cache.menus", "tier", "near", "result", "hit");
+    nearMisses = meterRegistry.counter("qeats.cache.menus", "tier", "near", "result", "miss");
+    redisHits = meterRegistry.counter("qeats.cache.menus", "tier", "redis", "result", "hit");
+    redisMisses = meterRegistry.counter("qeats.cache.menus", "tier", "redis", "result", "miss");
+    cacheErrors = meterRegistry.counter("qeats.cache.menus", "tier", "redis", "result", "error");
+  }
+
+  @PreDestroy
+  public void shutdown() throws Exception {
+    invalidationSubscription.close();
+  }
+
+  /**
+   * Get the serialized menu of a restaurant, going through the cache.
+   * @param restaurantId id of the restaurant
+   * @param loader loads the menu on a miss, returns null if the restaurant has none
+   * @return the menu, or null if the restaurant has none
+   */
+  public MenuResponse getMenuResponse(String restaurantId,
+      Function<String, GetMenuResponse> loader) {
+    MenuResponse menuResponse = nearMenus.getIfPresent(restaurantId);
+    if (menuResponse != null) {
+      nearHits.increment();
+      return menuResponse;
+    }
+    nearMisses.increment();
+
+    long generation = nearCacheGeneration.get();
+    menuResponse = readMenu(restaurantId);
+    if (menuResponse == null) {
+      GetMenuResponse getMenuResponse = loader.apply(restaurantId);
+      if (getMenuResponse == null || getMenuResponse.getMenu() == null) {
+        return null;
+      }
+      menuResponse = MenuResponse.of(serialize(getMenuResponse));
+      writeMenu(restaurantId, menuResponse);
+    }
+    if (nearCacheGeneration.get() == generation) {
+      nearMenus.put(restaurantId, menuResponse);
+    }
+    return menuResponse;
+  }
+
+  @EventListener
+  public void onAfterSave(AfterSaveEvent<?> event) {
+    Object source = event.getSource();
+    if (source instanceof MenuEntity && ((MenuEntity) source).getRestaurantId() != null) {
+      invalidate(((MenuEntity) source).getRestaurantId());
+    }
+  }
+
+  // A deleted menu cannot be told apart, so every near menu goes; Redis menus expire.
+  @EventListener
+  public void onAfterDelete(AfterDeleteEvent<?> event) {
+    if (MenuEntity.class.equals(event.getType())) {
+      invalidate(ALL_MENUS);
+    }
+  }
+
+  static String keyOf(String restaurantId) {
+    return KEY_PREFIX + restaurantId;
+  }
+
+  private MenuResponse readMenu(String restaurantId) {
+    if (!cacheClient.isAvailable()) {
+      return null;
+    }
+    try {
+      byte[] value = cacheClient.mget(Collections.singletonList(keyOf(restaurantId))).get(0);
+      (value == null ? redisMisses : redisHits).increment();
+      return value == null ? null : new MenuResponse(value);
+    } catch (CacheException e) {
+      log.debug("could not read menu {} from the cache", restaurantId, e);
+      cacheErrors.increment();
+      return null;
+    }
+  }
+
+  private void writeMenu(String restaurantId, MenuResponse menuResponse) {
+    if (!cacheClient.isAvailable()) {
+      return;
+    }
+    try {
+      cacheClient.setex(Collections.singletonMap(keyOf(restaurantId),
+          menuResponse.getGzippedJson()), expiryInSeconds);
+    } catch (CacheException e) {
+      log.debug("could not write menu {} to the cache", restaurantId, e);
+      cacheErrors.increment();
+    }
+  }
+
+  private byte[] serialize(GetMenuResponse getMenuResponse) {
+    try {
+      return objectMapper.writeValueAsBytes(getMenuResponse);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("menu is not serializable", e);
+    }
+  }
+
+  private void invalidate(String restaurantId) {
+    evict(restaurantId);
+    try {
+      if (!ALL_MENUS.equals(restaurantId)) {
+        cacheClient.delete(Collections.singletonList(keyOf(restaurantId)));
+      }
+      cacheClient.publish(INVALIDATION_CHANNEL, restaurantId);
+    } catch (CacheException e) {
+      log.warn("could not invalidate menu {} on other instances", restaurantId, e);
+    }
+  }
+
+  private void onInvalidation(String restaurantId) {
+    evict(restaurantId);
+  }
+
+  private void evict(String restaurantId) {
+    nearCacheGeneration.incrementAndGet();
+    if (ALL_MENUS.equals(restaurantId)) {
+      nearMenus.invalidateAll();
+    } else {
+      nearMenus.invalidate(restaurantId);
+    }
+  }
+}
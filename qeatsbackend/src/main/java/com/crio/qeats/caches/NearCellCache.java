@@ -0,0 +1,58 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * In-heap tier of {@link RestaurantCellCache}: decoded cells served without a Redis round trip.
+ * The capacity is counted in restaurants rather than cells, since a downtown cell can hold a
+ * hundred times more than a suburban one. Least recently used cells are evicted first.
+ */
+class NearCellCache {
+
+  private final Cache<String, RestaurantCell> cells;
+
+  NearCellCache(long maxRestaurants, long expiryInSeconds) {
+    cells = CacheBuilder.newBuilder()
+        .maximumWeight(maxRestaurants)
+        .weigher((String cell, RestaurantCell restaurantCell) ->
+            1 + restaurantCell.getRestaurants().size())
+        .expireAfterWrite(expiryInSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  Map<String, RestaurantCell> getAll(Collection<String> cellIds) {
+    return cells.getAllPresent(cellIds);
+  }
+
+  void putAll(Map<String, RestaurantCell> restaurantCells) {
+    cells.putAll(restaurantCells);
+  }
+
+  void forEach(BiConsumer<String, RestaurantCell> action) {
+    cells.asMap().forEach(action);
+  }
+
+  void invalidate(String cell) {
+    cells.invalidate(cell);
+  }
+
+  void invalidateAll() {
+    cells.invalidateAll();
+  }
+
+  long size() {
+    return cells.size();
+  }
+}
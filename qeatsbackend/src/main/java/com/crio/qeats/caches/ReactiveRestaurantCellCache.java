@@ -0,0 +1,186 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import ch.hsr.geohash.GeoHash;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.ReactiveRestaurantRepository;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoUtils;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.reactive.RedisReactiveCommands;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking version of {@link RestaurantCellCache}, sharing its keys and entry format.
+ * Cells are read with one MGET and written with SETEX on the shared Lettuce connection, and the
+ * missing cells are loaded with one $nearSphere query through the reactive Mongo driver.
+ */
+@Log4j2
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveRestaurantCellCache {
+
+  private static final int MAX_CELLS_PER_LOOKUP = 64;
+
+  // Same padding as MongoGeoNearbyRestaurantsFinder: Mongo's sphere is larger than GeoUtils'.
+  private static final double MONGO_EARTH_RADIUS_IN_KMS = 6378.1;
+
+  @Value("${qeats.cache.cell-precision:5}")
+  private int cellPrecision;
+
+  @Autowired
+  private StatefulRedisConnection<byte[], byte[]> lettuceRedisConnection;
+
+  @Autowired
+  private ReactiveRestaurantRepository repository;
+
+  @Autowired
+  private RestaurantCellCodec restaurantCellCodec;
+
+  /**
+   * Get the restaurants open now within the given radius, going through the cache.
+   * Falls back to Mongo alone when Redis fails.
+   * @param latitude coordinates near which we have to search for restaurants
+   * @param longitude coordinates near which we have to search for restaurants
+   * @param radiusInKms search radius
+   * @param currentTime current time
+   * @return open restaurants strictly closer than radiusInKms
+   */
+  public Flux<RestaurantEntity> findOpenRestaurantsWithin(double latitude, double longitude,
+      double radiusInKms, LocalTime currentTime) {
+    List<String> cells = GeoHashUtils.findCoveringCells(latitude, longitude, radiusInKms,
+        cellPrecision);
+    if (cells.size() > MAX_CELLS_PER_LOOKUP) {
+      return findRestaurantsNear(latitude, longitude, radiusInKms)
+          .filter(res -> res.getOpeningHours().isOpenAt(currentTime))
+          .filter(res -> GeoUtils.findDistanceInKm(latitude, longitude,
+              res.getLatitude(), res.getLongitude()) < radiusInKms);
+    }
+
+    return readCells(cells)
+        .flatMap(restaurantCells -> {
+          Set<String> missingCells = new HashSet<>(cells);
+          missingCells.removeAll(restaurantCells.keySet());
+          if (missingCells.isEmpty()) {
+            return Mono.just(restaurantCells);
+          }
+          return loadCells(latitude, longitude, radiusInKms, missingCells)
+              .flatMap(loadedCells -> writeCells(loadedCells).then(Mono.fromCallable(() -> {
+                restaurantCells.putAll(loadedCells);
+                return restaurantCells;
+              })));
+        })
+        .onErrorResume(RedisException.class, e -> {
+          log.warn("restaurant cell cache unavailable, loading cells from mongo", e);
+          return loadCells(latitude, longitude, radiusInKms, new HashSet<>(cells));
+        })
+        .flatMapIterable(restaurantCells -> {
+          List<RestaurantEntity> openRestaurants = new ArrayList<>();
+          for (String cell : cells) {
+            restaurantCells.get(cell).collectOpenRestaurantsWithin(latitude, longitude,
+                radiusInKms, currentTime, openRestaurants);
+          }
+          return openRestaurants;
+        });
+  }
+
+  private Mono<Map<String, RestaurantCell>> readCells(List<String> cells) {
+    RedisReactiveCommands<byte[], byte[]> redis = lettuceRedisConnection.reactive();
+    return redis.mget(cells.stream().map(ReactiveRestaurantCellCache::rawKeyOf)
+        .toArray(byte[][]::new))
+        .collectList()
+        .map(values -> {
+          Map<String, RestaurantCell> restaurantCells = new LinkedHashMap<>();
+          for (int i = 0; i < cells.size(); i++) {
+            KeyValue<byte[], byte[]> value = values.get(i);
+            if (!value.hasValue()) {
+              continue;
+            }
+            try {
+              restaurantCells.put(cells.get(i),
+                  new RestaurantCell(restaurantCellCodec.decode(value.getValue())));
+            } catch (IOException e) {
+              log.warn("dropping unreadable restaurant cell {}", cells.get(i), e);
+            }
+          }
+          return restaurantCells;
+        });
+  }
+
+  private Mono<Map<String, RestaurantCell>> loadCells(double latitude, double longitude,
+      double radiusInKms, Set<String> missingCells) {
+    double loadRadiusInKms = GeoHashUtils.findCoveringCellsRadius(latitude, longitude,
+        radiusInKms, cellPrecision);
+    return findRestaurantsNear(latitude, longitude, loadRadiusInKms)
+        .collectList()
+        .map(restaurants -> {
+          Map<String, List<RestaurantEntity>> restaurantsByCell = new LinkedHashMap<>();
+          for (String cell : missingCells) {
+            restaurantsByCell.put(cell, new ArrayList<>());
+          }
+          for (RestaurantEntity restaurantEntity : restaurants) {
+            List<RestaurantEntity> cellRestaurants = restaurantsByCell.get(
+                GeoHash.withCharacterPrecision(restaurantEntity.getLatitude(),
+                    restaurantEntity.getLongitude(), cellPrecision).toBase32());
+            if (cellRestaurants != null) {
+              cellRestaurants.add(restaurantEntity);
+            }
+          }
+
+          Map<String, RestaurantCell> loadedCells = new LinkedHashMap<>();
+          restaurantsByCell.forEach((cell, cellRestaurants) ->
+              loadedCells.put(cell, new RestaurantCell(cellRestaurants)));
+          return loadedCells;
+        });
+  }
+
+  private Mono<Void> writeCells(Map<String, RestaurantCell> restaurantCells) {
+    RedisReactiveCommands<byte[], byte[]> redis = lettuceRedisConnection.reactive();
+    return Flux.fromIterable(restaurantCells.entrySet())
+        .flatMap(cell -> redis.setex(rawKeyOf(cell.getKey()),
+            RedisConfiguration.REDIS_ENTRY_EXPIRY_IN_SECONDS,
+            restaurantCellCodec.encode(cell.getValue().getRestaurants())))
+        .then();
+  }
+
+  private static byte[] rawKeyOf(String cell) {
+    return RestaurantCellCache.keyOf(cell).getBytes(StandardCharsets.UTF_8);
+  }
+
+  // Candidates within radiusInKms and a little more; callers check the exact distance.
+  private Flux<RestaurantEntity> findRestaurantsNear(double latitude, double longitude,
+      double radiusInKms) {
+    double maxDistanceInMeters =
+        radiusInKms * 1000 * MONGO_EARTH_RADIUS_IN_KMS / GeoUtils.EARTH_RADIUS_IN_KMS + 1;
+    return repository.findByLocationNearSphere(latitude, longitude, maxDistanceInMeters);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import com.crio.qeats.indexes.OpenHoursIndex;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.GeoUtils;
+import com.crio.qeats.utils.OpeningHours;
+
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Restaurants of one geohash cell laid out for lookups: coordinate columns for the batch distance
+ * kernel and an {@link OpenHoursIndex} for the open-now check.
+ * A cell also knows when it was loaded from Mongo, and counts its lookups for refresh-ahead.
+ */
+final class RestaurantCell {
+
+  private final List<RestaurantEntity> restaurants;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final OpenHoursIndex openHoursIndex;
+  private final long loadedAtMillis;
+  private final AtomicInteger lookups = new AtomicInteger();
+
+  RestaurantCell(List<RestaurantEntity> restaurants) {
+    this(restaurants, System.currentTimeMillis());
+  }
+
+  RestaurantCell(List<RestaurantEntity> restaurants, long loadedAtMillis) {
+    this.restaurants = restaurants;
+    this.loadedAtMillis = loadedAtMillis;
+    latitudes = new double[restaurants.size()];
+    longitudes = new double[restaurants.size()];
+    OpeningHours[] openingHours = new OpeningHours[restaurants.size()];
+    for (int i = 0; i < restaurants.size(); i++) {
+      latitudes[i] = restaurants.get(i).getLatitude();
+      longitudes[i] = restaurants.get(i).getLongitude();
+      openingHours[i] = restaurants.get(i).getOpeningHours();
+    }
+    openHoursIndex = new OpenHoursIndex(openingHours);
+  }
+
+  List<RestaurantEntity> getRestaurants() {
+    return restaurants;
+  }
+
+  long getLoadedAtMillis() {
+    return loadedAtMillis;
+  }
+
+  void recordLookup() {
+    lookups.incrementAndGet();
+  }
+
+  /**
+   * Returns the lookups recorded since the last call.
+   */
+  int drainLookups() {
+    return lookups.getAndSet(0);
+  }
+
+  /**
+   * Adds the restaurants of this cell that are open and strictly closer than radiusInKms.
+   */
+  void collectOpenRestaurantsWithin(double latitude, double longitude, double radiusInKms,
+      LocalTime currentTime, List<RestaurantEntity> openRestaurants) {
+    BitSet matches = findOpenRestaurantsWithin(latitude, longitude, radiusInKms, currentTime);
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      openRestaurants.add(restaurants.get(i));
+    }
+  }
+
+  /**
+   * Finds the restaurants of this cell that are open and strictly closer than radiusInKms.
+   * @return their positions in {@link #getRestaurants()}
+   */
+  BitSet findOpenRestaurantsWithin(double latitude, double longitude, double radiusInKms,
+      LocalTime currentTime) {
+    if (restaurants.isEmpty()) {
+      return new BitSet();
+    }
+    BitSet matches = GeoUtils.findWithinRadius(latitude, longitude, radiusInKms,
+        latitudes, longitudes);
+    openHoursIndex.retainOpenAt(matches, currentTime);
+    return matches;
+  }
+}
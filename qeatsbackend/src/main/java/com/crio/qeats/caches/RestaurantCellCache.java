@@ -0,0 +1,823 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import ch.hsr.geohash.GeoHash;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.repositoryservices.NearbyRestaurantsFinder;
+import com.crio.qeats.utils.GeoHashUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Two-tier cache of the restaurants located in each geohash cell: a {@link NearCellCache} in the
+ * heap of each instance in front of Redis.
+ * - A cell holds every restaurant inside it, whatever the serving radius, so one entry serves all
+ *   the users around it for both the peak hours and normal hours radius.
+ * - A lookup reads all the cells covering the serving radius in one round trip, loads the missing
+ *   ones from {@link NearbyRestaurantsFinder} in one call, and filters the result exactly.
+ * - A missing cell is loaded once however many callers miss it together: within an instance
+ *   through {@link SingleFlight}, across instances through a short-lived Redis lock per cell.
+ *   Callers which do not get the lock wait for the cell to show up in Redis, and load it
+ *   themselves if it does not in time.
+ * - Expiries are shortened by a random jitter, so cells loaded together do not expire together.
+ * - Cells older than soft-expiry-seconds are still served, and reloaded in the background. Cells
+ *   looked up often are reloaded a little before that, so hot cells never wait for Mongo. Only
+ *   the Redis expiry, the hard one, makes a lookup load a cell itself.
+ * - Cells are stored in the format of {@link RestaurantCellCodec}.
+ * - Each cell is decoded into a {@link RestaurantCell}, so the distance and open-now checks run on
+ *   primitive columns and bitsets.
+ * - Saving a restaurant deletes its cell, and the cell it was in before the save, from Redis and
+ *   evicts them from the near cache of every instance, through {@link #INVALIDATION_CHANNEL}.
+ *   Deleting restaurants does the same with the cells they were in. Invalidations are batched,
+ *   so bulk writes cost one round trip per batch.
+ * - Cells invalidated since {@link NearbyRestaurantsFinder} last read the collection are loaded
+ *   straight from Mongo, so the finder does not put back what was just invalidated.
+ * - The locations looked up are counted in {@link HotLocations}, for the {@link CacheWarmer}.
+ */
+@Log4j2
+@Component
+public class RestaurantCellCache {
+
+  static final String KEY_PREFIX = "restaurants:cell:";
+  static final String LOCK_KEY_PREFIX = "restaurants:cell-lock:";
+
+  // Carries comma separated cells to evict, or ALL_CELLS.
+  static final String INVALIDATION_CHANNEL = "restaurants:cell:invalidations";
+  static final String ALL_CELLS = "*";
+
+  // Past this many cells a lookup is cheaper to answer without the cache.
+  private static final int MAX_CELLS_PER_LOOKUP = 64;
+
+  private static final long LOCK_POLL_INTERVAL_IN_MILLIS = 50;
+
+  @Value("${qeats.cache.cell-precision:5}")
+  private int cellPrecision;
+
+  @Value("${qeats.cache.near.max-restaurants:200000}")
+  private long nearCacheMaxRestaurants;
+
+  @Value("${qeats.cache.near.expiry-seconds:"
+      + RedisConfiguration.REDIS_ENTRY_EXPIRY_IN_SECONDS + "}")
+  private long nearCacheExpiryInSeconds;
+
+  @Value("${qeats.cache.lock.expiry-ms:5000}")
+  private long lockExpiryInMillis;
+
+  @Value("${qeats.cache.lock.wait-ms:1000}")
+  private long lockWaitInMillis;
+
+  @Value("${qeats.cache.expiry-jitter-percent:10}")
+  private int expiryJitterPercent;
+
+  @Value("${qeats.cache.soft-expiry-seconds:2700}")
+  private long softExpiryInSeconds;
+
+  @Value("${qeats.cache.refresh-ahead.window-seconds:300}")
+  private long refreshAheadWindowInSeconds;
+
+  @Value("${qeats.cache.refresh-ahead.min-lookups:20}")
+  private int refreshAheadMinLookups;
+
+  @Value("${qeats.cache.hot-locations.max-locations:10000}")
+  private int maxHotLocations;
+
+  @Autowired
+  private CacheClient cacheClient;
+
+  @Autowired
+  private NearbyRestaurantsFinder nearbyRestaurantsFinder;
+
+  @Autowired
+  private RestaurantRepository restaurantRepository;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private RestaurantCellCodec restaurantCellCodec;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private NearCellCache nearCellCache;
+  private final SingleFlight<String, RestaurantCell> cellLoads = new SingleFlight<>();
+  private AutoCloseable invalidationSubscription;
+  private final Set<String> pendingInvalidations = ConcurrentHashMap.newKeySet();
+  // Bumped on every eviction, so a lookup racing with one does not put back the evicted cell.
+  private final AtomicLong nearCacheGeneration = new AtomicLong();
+  // When each cell was last invalidated, until the finder has read the collection since.
+  private final Map<String, Long> changedCells = new ConcurrentHashMap<>();
+  private volatile long allCellsChangedAtMillis;
+  // The save and delete events of one write are published on the thread making it.
+  private final ThreadLocal<Map<String, String>> cellsBeforeSave =
+      ThreadLocal.withInitial(HashMap::new);
+  private final ThreadLocal<Set<String>> cellsBeforeDelete = new ThreadLocal<>();
+  private ThreadPoolExecutor refreshExecutor;
+  private final Set<String> refreshingCells = ConcurrentHashMap.newKeySet();
+  private HotLocations hotLocations;
+
+  private Counter nearHits;
+  private Counter nearMisses;
+  private Counter cellHits;
+  private Counter cellMisses;
+  private Counter cacheErrors;
+  private Counter ownLoads;
+  private Counter localLoads;
+  private Counter remoteLoads;
+  private Counter staleHits;
+  private Counter refreshes;
+  private Timer redisReads;
+  private Timer redisWrites;
+  private Timer decodes;
+  private Timer encodes;
+  private Timer mongoLoads;
+  private Timer filters;
+  private final AtomicLong keyCount = new AtomicLong();
+
+  @PostConstruct
+  public void init() {
+    nearCellCache = new NearCellCache(nearCacheMaxRestaurants, nearCacheExpiryInSeconds);
+    hotLocations = new HotLocations(maxHotLocations);
+    invalidationSubscription = cacheClient.subscribe(INVALIDATION_CHANNEL, this::onInvalidation);
+    // Refreshes are best effort: when the queue is full, the next stale lookup asks again.
+    refreshExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(256), new CustomizableThreadFactory("qeats-cell-refresh-"),
+        new ThreadPoolExecutor.AbortPolicy());
+    registerMetrics();
+  }
+
+  @PreDestroy
+  public void shutdown() throws Exception {
+    invalidationSubscription.close();
+    refreshExecutor.shutdownNow();
+  }
+
+  private void registerMetrics() {
+    String precision = String.valueOf(cellPrecision);
+    nearHits = meterRegistry.counter("qeats.cache.cells", "tier", "near", "result", "hit",
+        "precision", precision);
+    nearMisses = meterRegistry.counter("qeats.cache.cells", "tier", "near", "result", "miss",
+        "precision", precision);
+    cellHits = meterRegistry.counter("qeats.cache.cells", "tier", "redis", "result", "hit",
+        "precision", precision);
+    cellMisses = meterRegistry.counter("qeats.cache.cells", "tier", "redis", "result", "miss",
+        "precision", precision);
+    cacheErrors = meterRegistry.counter("qeats.cache.cells", "tier", "redis", "result", "error",
+        "precision", precision);
+    ownLoads = meterRegistry.counter("qeats.cache.cells.loads", "loader", "self",
+        "precision", precision);
+    localLoads = meterRegistry.counter("qeats.cache.cells.loads", "loader", "same-instance",
+        "precision", precision);
+    remoteLoads = meterRegistry.counter("qeats.cache.cells.loads", "loader", "other-instance",
+        "precision", precision);
+    staleHits = meterRegistry.counter("qeats.cache.cells.stale", "precision", precision);
+    refreshes = meterRegistry.counter("qeats.cache.cells.refreshes", "precision", precision);
+    redisReads = stageTimer("redis-read", precision);
+    redisWrites = stageTimer("redis-write", precision);
+    decodes = stageTimer("decode", precision);
+    encodes = stageTimer("encode", precision);
+    mongoLoads = stageTimer("mongo-load", precision);
+    filters = stageTimer("filter", precision);
+    Gauge.builder("qeats.cache.cells.hit.ratio", this,
+        cache -> hitRatio(cache.nearHits, cache.nearMisses))
+        .tag("tier", "near")
+        .tag("precision", precision)
+        .register(meterRegistry);
+    Gauge.builder("qeats.cache.cells.hit.ratio", this,
+        cache -> hitRatio(cache.cellHits, cache.cellMisses))
+        .tag("tier", "redis")
+        .tag("precision", precision)
+        .register(meterRegistry);
+    Gauge.builder("qeats.cache.cells.entries", this, cache -> cache.nearCellCache.size())
+        .tag("tier", "near")
+        .tag("precision", precision)
+        .register(meterRegistry);
+    Gauge.builder("qeats.cache.cells.keys", keyCount, AtomicLong::get)
+        .tag("precision", precision)
+        .register(meterRegistry);
+  }
+
+  // Where the time of a lookup goes, as qeats.cache.cells.stage{stage}.
+  private Timer stageTimer(String stage, String precision) {
+    return Timer.builder("qeats.cache.cells.stage")
+        .tag("stage", stage)
+        .tag("precision", precision)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Get the restaurants open now within the given radius, going through the cache.
+   * @param latitude coordinates near which we have to search for restaurants
+   * @param longitude coordinates near which we have to search for restaurants
+   * @param radiusInKms search radius
+   * @param currentTime current time
+   * @return open restaurants strictly closer than radiusInKms
+   */
+  public List<RestaurantEntity> findOpenRestaurantsWithin(double latitude, double longitude,
+      double radiusInKms, LocalTime currentTime) {
+    List<RestaurantEntity> openRestaurants = new ArrayList<>();
+    findOpenRestaurantsWithin(latitude, longitude, radiusInKms, currentTime,
+        openRestaurants::add);
+    return openRestaurants;
+  }
+
+  /**
+   * Feeds the restaurants open now within the given radius to the consumer, cell by cell, as
+   * they are found. Nothing is fed until every cell has been read or loaded.
+   * @param latitude coordinates near which we have to search for restaurants
+   * @param longitude coordinates near which we have to search for restaurants
+   * @param radiusInKms search radius
+   * @param currentTime current time
+   * @param restaurantConsumer receives the open restaurants strictly closer than radiusInKms
+   */
+  public void findOpenRestaurantsWithin(double latitude, double longitude, double radiusInKms,
+      LocalTime currentTime, Consumer<RestaurantEntity> restaurantConsumer) {
+    hotLocations.record(latitude, longitude);
+    findOpenRestaurants(latitude, longitude, radiusInKms, currentTime, restaurantConsumer);
+  }
+
+  /**
+   * Loads the cells covering the given radius into both tiers, without counting it as a lookup
+   * of the location.
+   */
+  public void warm(double latitude, double longitude, double radiusInKms) {
+    findOpenRestaurants(latitude, longitude, radiusInKms, LocalTime.now(), restaurant -> { });
+  }
+
+  /**
+   * Returns the locations looked up the most, rounded to about 100m, most looked up first.
+   * @param limit maximum number of locations
+   * @return latitude and longitude pairs
+   */
+  public List<double[]> findHotLocations(int limit) {
+    return hotLocations.findHottest(limit);
+  }
+
+  /**
+   * Halves the lookup counts of every location, so the hot locations follow recent traffic.
+   */
+  public void decayHotLocations() {
+    hotLocations.decay();
+  }
+
+  private void findOpenRestaurants(double latitude, double longitude, double radiusInKms,
+      LocalTime currentTime, Consumer<RestaurantEntity> restaurantConsumer) {
+    List<String> cells = GeoHashUtils.findCoveringCells(latitude, longitude, radiusInKms,
+        cellPrecision);
+    if (cells.size() > MAX_CELLS_PER_LOOKUP) {
+      findOpenRestaurantsWithoutCache(latitude, longitude, radiusInKms, currentTime,
+          restaurantConsumer);
+      return;
+    }
+
+    long generation = nearCacheGeneration.get();
+    Map<String, RestaurantCell> restaurantCells = new HashMap<>(nearCellCache.getAll(cells));
+    // The near cache keeps cells read from Redis shortly before their Redis expiry.
+    restaurantCells.values().removeIf(this::isHardExpired);
+    List<String> farCells = cells.stream()
+        .filter(cell -> !restaurantCells.containsKey(cell))
+        .collect(Collectors.toList());
+    nearHits.increment(restaurantCells.size());
+    nearMisses.increment(farCells.size());
+    if (farCells.isEmpty()) {
+      serve(latitude, longitude, radiusInKms, currentTime, cells, restaurantCells,
+          restaurantConsumer);
+      return;
+    }
+
+    try {
+      Map<String, RestaurantCell> redisCells = readCells(farCells);
+      restaurantCells.putAll(redisCells);
+      Set<String> missingCells = new HashSet<>(farCells);
+      missingCells.removeAll(redisCells.keySet());
+      cellHits.increment(redisCells.size());
+      cellMisses.increment(missingCells.size());
+
+      if (!missingCells.isEmpty()) {
+        restaurantCells.putAll(loadMissingCells(latitude, longitude, radiusInKms, missingCells,
+            generation));
+      }
+      putNearCells(redisCells, generation);
+    } catch (CacheException e) {
+      log.warn("restaurant cell cache unavailable, falling back to {}",
+          nearbyRestaurantsFinder.getClass().getSimpleName(), e);
+      cacheErrors.increment();
+      findOpenRestaurantsWithoutCache(latitude, longitude, radiusInKms, currentTime,
+          restaurantConsumer);
+      return;
+    }
+    serve(latitude, longitude, radiusInKms, currentTime, cells, restaurantCells,
+        restaurantConsumer);
+  }
+
+  // Remembers the cell of a restaurant about to be updated, in case the update moves it.
+  @EventListener
+  public void onBeforeSave(BeforeSaveEvent<?> event) {
+    Object source = event.getSource();
+    if (source instanceof RestaurantEntity && ((RestaurantEntity) source).getId() != null) {
+      String id = ((RestaurantEntity) source).getId();
+      restaurantRepository.findById(id).map(this::cellOf)
+          .ifPresent(cell -> cellsBeforeSave.get().put(id, cell));
+    }
+  }
+
+  @EventListener
+  public void onAfterSave(AfterSaveEvent<?> event) {
+    Object source = event.getSource();
+    if (source instanceof RestaurantEntity) {
+      RestaurantEntity restaurantEntity = (RestaurantEntity) source;
+      String previousCell = restaurantEntity.getId() == null ? null
+          : cellsBeforeSave.get().remove(restaurantEntity.getId());
+      if (previousCell != null) {
+        invalidate(previousCell);
+      }
+      String cell = cellOf(restaurantEntity);
+      if (cell != null) {
+        invalidate(cell);
+      }
+    }
+  }
+
+  // A deleted restaurant cannot be read any more, so its cell is looked up before the delete.
+  @EventListener
+  public void onBeforeDelete(BeforeDeleteEvent<?> event) {
+    if (RestaurantEntity.class.equals(event.getType())) {
+      BasicQuery query = new BasicQuery(event.getDocument(),
+          new Document("latitude", 1).append("longitude", 1));
+      cellsBeforeDelete.set(mongoTemplate.find(query, RestaurantEntity.class,
+          event.getCollectionName()).stream()
+          .map(this::cellOf)
+          .filter(Objects::nonNull)
+          .collect(Collectors.toSet()));
+    }
+  }
+
+  @EventListener
+  public void onAfterDelete(AfterDeleteEvent<?> event) {
+    if (RestaurantEntity.class.equals(event.getType())) {
+      Set<String> cells = cellsBeforeDelete.get();
+      cellsBeforeDelete.remove();
+      if (cells == null) {
+        // Deleted without its before event: every near cell goes, Redis cells expire.
+        invalidate(ALL_CELLS);
+        return;
+      }
+      cells.forEach(this::invalidate);
+    }
+  }
+
+  /**
+   * Deletes the cells invalidated since the last run from Redis, then tells every instance to
+   * evict them from its near cache.
+   */
+  @Scheduled(fixedDelayString = "${qeats.cache.near.invalidation-interval-ms:100}")
+  public void publishInvalidations() {
+    if (pendingInvalidations.isEmpty()) {
+      return;
+    }
+    List<String> cells = new ArrayList<>(pendingInvalidations);
+    pendingInvalidations.removeAll(cells);
+    try {
+      if (cells.contains(ALL_CELLS)) {
+        cacheClient.publish(INVALIDATION_CHANNEL, ALL_CELLS);
+        return;
+      }
+      cacheClient.delete(cells.stream().map(RestaurantCellCache::keyOf)
+          .collect(Collectors.toList()));
+      cacheClient.publish(INVALIDATION_CHANNEL, String.join(",", cells));
+    } catch (CacheException e) {
+      log.warn("could not invalidate {} restaurant cells on other instances", cells.size(), e);
+    }
+  }
+
+  /**
+   * Reloads the near cells looked up at least refresh-ahead.min-lookups times since the last run
+   * and due to go stale within refresh-ahead.window-seconds.
+   */
+  @Scheduled(fixedDelayString = "${qeats.cache.refresh-ahead.interval-ms:60000}")
+  public void refreshHotCells() {
+    long freshAsOfMillis = nearbyRestaurantsFinder.getFreshAsOfMillis();
+    changedCells.values().removeIf(changedAtMillis -> changedAtMillis < freshAsOfMillis);
+
+    long refreshAheadTimeInMillis = System.currentTimeMillis()
+        - TimeUnit.SECONDS.toMillis(softExpiryInSeconds - refreshAheadWindowInSeconds);
+    nearCellCache.forEach((cell, restaurantCell) -> {
+      if (restaurantCell.drainLookups() >= refreshAheadMinLookups
+          && restaurantCell.getLoadedAtMillis() <= refreshAheadTimeInMillis) {
+        refreshInBackground(cell, restaurantCell);
+      }
+    });
+  }
+
+  /**
+   * Counts the cell keys currently in Redis for the key count gauge.
+   */
+  @Scheduled(fixedDelayString = "${qeats.cache.key-count-interval-ms:60000}")
+  public void countKeys() {
+    try {
+      keyCount.set(cacheClient.countKeys(KEY_PREFIX + "*"));
+    } catch (CacheException e) {
+      log.debug("could not count restaurant cell keys", e);
+    }
+  }
+
+  private static double hitRatio(Counter hits, Counter misses) {
+    double lookups = hits.count() + misses.count();
+    return lookups == 0 ? 0 : hits.count() / lookups;
+  }
+
+  static String keyOf(String cell) {
+    return KEY_PREFIX + cell;
+  }
+
+  private String cellOf(RestaurantEntity restaurantEntity) {
+    if (restaurantEntity.getLatitude() == null || restaurantEntity.getLongitude() == null) {
+      return null;
+    }
+    return GeoHash.withCharacterPrecision(restaurantEntity.getLatitude(),
+        restaurantEntity.getLongitude(), cellPrecision).toBase32();
+  }
+
+  private void invalidate(String cell) {
+    evict(cell);
+    pendingInvalidations.add(cell);
+  }
+
+  private void onInvalidation(String message) {
+    for (String cell : message.split(",")) {
+      evict(cell);
+    }
+  }
+
+  // Marks the cell changed first, so a lookup missing it from now on reloads it from Mongo.
+  private void evict(String cell) {
+    if (ALL_CELLS.equals(cell)) {
+      allCellsChangedAtMillis = System.currentTimeMillis();
+      nearCacheGeneration.incrementAndGet();
+      nearCellCache.invalidateAll();
+    } else {
+      changedCells.put(cell, System.currentTimeMillis());
+      nearCacheGeneration.incrementAndGet();
+      nearCellCache.invalidate(cell);
+    }
+  }
+
+  private boolean isChangedSinceFinderRead(Set<String> cells) {
+    long freshAsOfMillis = nearbyRestaurantsFinder.getFreshAsOfMillis();
+    if (allCellsChangedAtMillis >= freshAsOfMillis) {
+      return true;
+    }
+    for (String cell : cells) {
+      Long changedAtMillis = changedCells.get(cell);
+      if (changedAtMillis != null && changedAtMillis >= freshAsOfMillis) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Map<String, RestaurantCell> loadMissingCells(double latitude, double longitude,
+      double radiusInKms, Set<String> missingCells, long generation) {
+    Map<String, RestaurantCell> loadedCells = cellLoads.load(missingCells,
+        ownCells -> loadCellsOnce(latitude, longitude, radiusInKms, ownCells, generation),
+        lockExpiryInMillis);
+    Set<String> unloadedCells = new HashSet<>(missingCells);
+    unloadedCells.removeAll(loadedCells.keySet());
+    if (!unloadedCells.isEmpty()) {
+      Map<String, RestaurantCell> fallbackCells =
+          loadAndWriteCells(latitude, longitude, radiusInKms, unloadedCells);
+      putNearCells(fallbackCells, generation);
+      loadedCells.putAll(fallbackCells);
+    }
+    return loadedCells;
+  }
+
+  // Runs once per cell within this instance, see loadMissingCells.
+  private Map<String, RestaurantCell> loadCellsOnce(double latitude, double longitude,
+      double radiusInKms, Set<String> cells, long generation) {
+    // A caller which just finished loading some of them has left them in the near cache.
+    Map<String, RestaurantCell> loadedCells = new HashMap<>(nearCellCache.getAll(cells));
+    loadedCells.values().removeIf(this::isHardExpired);
+    List<String> cellsToLoad = cells.stream()
+        .filter(cell -> !loadedCells.containsKey(cell))
+        .collect(Collectors.toList());
+    localLoads.increment(loadedCells.size());
+    if (cellsToLoad.isEmpty()) {
+      return loadedCells;
+    }
+
+    String lockToken = UUID.randomUUID().toString();
+    List<Boolean> locked = cacheClient.setIfAbsent(
+        cellsToLoad.stream().map(RestaurantCellCache::lockKeyOf).collect(Collectors.toList()),
+        lockToken, lockExpiryInMillis);
+    Set<String> lockedCells = new HashSet<>();
+    Set<String> contendedCells = new HashSet<>();
+    for (int i = 0; i < cellsToLoad.size(); i++) {
+      (locked.get(i) ? lockedCells : contendedCells).add(cellsToLoad.get(i));
+    }
+
+    if (!lockedCells.isEmpty()) {
+      try {
+        loadedCells.putAll(loadAndWriteCells(latitude, longitude, radiusInKms, lockedCells));
+      } finally {
+        releaseLocks(lockedCells, lockToken);
+      }
+    }
+    if (!contendedCells.isEmpty()) {
+      Map<String, RestaurantCell> remoteCells = awaitCells(contendedCells);
+      remoteLoads.increment(remoteCells.size());
+      loadedCells.putAll(remoteCells);
+      contendedCells.removeAll(remoteCells.keySet());
+      if (!contendedCells.isEmpty()) {
+        log.debug("{} restaurant cells not loaded by their lock owner in {}ms, loading them",
+            contendedCells.size(), lockWaitInMillis);
+        loadedCells.putAll(loadAndWriteCells(latitude, longitude, radiusInKms, contendedCells));
+      }
+    }
+    putNearCells(loadedCells, generation);
+    return loadedCells;
+  }
+
+  private Map<String, RestaurantCell> loadAndWriteCells(double latitude, double longitude,
+      double radiusInKms, Set<String> cells) {
+    Map<String, RestaurantCell> loadedCells = loadCells(latitude, longitude, radiusInKms, cells);
+    ownLoads.increment(loadedCells.size());
+    writeCells(loadedCells);
+    return loadedCells;
+  }
+
+  // Polls Redis for cells another instance is loading, until all show up or the wait is over.
+  private Map<String, RestaurantCell> awaitCells(Set<String> cells) {
+    Map<String, RestaurantCell> restaurantCells = new HashMap<>();
+    List<String> pendingCells = new ArrayList<>(cells);
+    long deadline = System.currentTimeMillis() + lockWaitInMillis;
+    while (!pendingCells.isEmpty() && System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(LOCK_POLL_INTERVAL_IN_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      restaurantCells.putAll(readCells(pendingCells));
+      pendingCells.removeAll(restaurantCells.keySet());
+    }
+    return restaurantCells;
+  }
+
+  private void releaseLocks(Set<String> cells, String lockToken) {
+    try {
+      cacheClient.deleteIfEquals(
+          cells.stream().map(RestaurantCellCache::lockKeyOf).collect(Collectors.toList()),
+          lockToken);
+    } catch (CacheException e) {
+      log.debug("could not release {} restaurant cell locks, they will expire", cells.size(), e);
+    }
+  }
+
+  private void putNearCells(Map<String, RestaurantCell> restaurantCells, long generation) {
+    if (nearCacheGeneration.get() == generation) {
+      nearCellCache.putAll(restaurantCells);
+    }
+  }
+
+  private static String lockKeyOf(String cell) {
+    return LOCK_KEY_PREFIX + cell;
+  }
+
+  private void serve(double latitude, double longitude, double radiusInKms,
+      LocalTime currentTime, List<String> cells, Map<String, RestaurantCell> restaurantCells,
+      Consumer<RestaurantEntity> restaurantConsumer) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    BitSet[] openRestaurants = new BitSet[cells.size()];
+    for (int i = 0; i < cells.size(); i++) {
+      RestaurantCell restaurantCell = restaurantCells.get(cells.get(i));
+      restaurantCell.recordLookup();
+      if (isStale(restaurantCell)) {
+        staleHits.increment();
+        refreshInBackground(cells.get(i), restaurantCell);
+      }
+      openRestaurants[i] = restaurantCell.findOpenRestaurantsWithin(latitude, longitude,
+          radiusInKms, currentTime);
+    }
+    sample.stop(filters);
+
+    // Fed once the filter is timed, the consumer may be writing the response.
+    for (int i = 0; i < cells.size(); i++) {
+      List<RestaurantEntity> restaurants = restaurantCells.get(cells.get(i)).getRestaurants();
+      for (int j = openRestaurants[i].nextSetBit(0); j >= 0;
+          j = openRestaurants[i].nextSetBit(j + 1)) {
+        restaurantConsumer.accept(restaurants.get(j));
+      }
+    }
+  }
+
+  private boolean isStale(RestaurantCell restaurantCell) {
+    return System.currentTimeMillis() - restaurantCell.getLoadedAtMillis()
+        > TimeUnit.SECONDS.toMillis(softExpiryInSeconds);
+  }
+
+  private boolean isHardExpired(RestaurantCell restaurantCell) {
+    return System.currentTimeMillis() - restaurantCell.getLoadedAtMillis()
+        > TimeUnit.SECONDS.toMillis(RedisConfiguration.REDIS_ENTRY_EXPIRY_IN_SECONDS);
+  }
+
+  private void refreshInBackground(String cell, RestaurantCell staleCell) {
+    if (!refreshingCells.add(cell)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(() -> {
+        try {
+          refresh(cell, staleCell);
+        } finally {
+          refreshingCells.remove(cell);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      refreshingCells.remove(cell);
+    }
+  }
+
+  // Takes the copy in Redis if another instance already refreshed it, reloads it under the cell
+  // lock otherwise. Without the lock another instance is refreshing it.
+  private void refresh(String cell, RestaurantCell staleCell) {
+    long generation = nearCacheGeneration.get();
+    try {
+      RestaurantCell redisCell = readCells(Collections.singletonList(cell)).get(cell);
+      if (redisCell != null && redisCell.getLoadedAtMillis() > staleCell.getLoadedAtMillis()) {
+        putNearCells(Collections.singletonMap(cell, redisCell), generation);
+        return;
+      }
+
+      String lockToken = UUID.randomUUID().toString();
+      List<String> lockKeys = Collections.singletonList(lockKeyOf(cell));
+      if (!cacheClient.setIfAbsent(lockKeys, lockToken, lockExpiryInMillis).get(0)) {
+        return;
+      }
+      try {
+        double[] center = GeoHashUtils.findCellCenter(cell);
+        putNearCells(loadAndWriteCells(center[0], center[1], 0, Collections.singleton(cell)),
+            generation);
+        refreshes.increment();
+      } finally {
+        releaseLocks(Collections.singleton(cell), lockToken);
+      }
+    } catch (CacheException e) {
+      log.debug("could not refresh restaurant cell {}", cell, e);
+    } catch (RuntimeException e) {
+      log.warn("could not refresh restaurant cell {}", cell, e);
+    }
+  }
+
+  private Map<String, RestaurantCell> readCells(List<String> cells) {
+    List<byte[]> values = redisReads.record(() -> cacheClient.mget(
+        cells.stream().map(RestaurantCellCache::keyOf).collect(Collectors.toList())));
+
+    Map<String, RestaurantCell> restaurantCells = new LinkedHashMap<>();
+    for (int i = 0; i < cells.size(); i++) {
+      if (values.get(i) == null) {
+        continue;
+      }
+      try {
+        long loadedAtMillis = RestaurantCellCodec.readLoadedAtMillis(values.get(i));
+        if (loadedAtMillis == 0) {
+          // Does not say when it was loaded: stale, so it gets refreshed on first use.
+          loadedAtMillis =
+              System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(softExpiryInSeconds + 1);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<RestaurantEntity> restaurants = restaurantCellCodec.decode(values.get(i));
+        sample.stop(decodes);
+        restaurantCells.put(cells.get(i), new RestaurantCell(restaurants, loadedAtMillis));
+      } catch (IOException e) {
+        log.warn("dropping unreadable restaurant cell {}", cells.get(i), e);
+      }
+    }
+    return restaurantCells;
+  }
+
+  private Map<String, RestaurantCell> loadCells(double latitude, double longitude,
+      double radiusInKms, Set<String> missingCells) {
+    Map<String, List<RestaurantEntity>> restaurantsByCell = new LinkedHashMap<>();
+    for (String cell : missingCells) {
+      restaurantsByCell.put(cell, new ArrayList<>());
+    }
+
+    List<RestaurantEntity> restaurantsWithin;
+    if (isChangedSinceFinderRead(missingCells)) {
+      restaurantsWithin = mongoLoads.record(() -> findRestaurantsInCells(missingCells));
+    } else {
+      double loadRadiusInKms = GeoHashUtils.findCoveringCellsRadius(latitude, longitude,
+          radiusInKms, cellPrecision);
+      restaurantsWithin = mongoLoads.record(() ->
+          nearbyRestaurantsFinder.findRestaurantsWithin(latitude, longitude, loadRadiusInKms));
+    }
+    for (RestaurantEntity restaurantEntity : restaurantsWithin) {
+      List<RestaurantEntity> cellRestaurants = restaurantsByCell.get(
+          GeoHash.withCharacterPrecision(restaurantEntity.getLatitude(),
+              restaurantEntity.getLongitude(), cellPrecision).toBase32());
+      if (cellRestaurants != null) {
+        cellRestaurants.add(restaurantEntity);
+      }
+    }
+
+    Map<String, RestaurantCell> loadedCells = new LinkedHashMap<>();
+    restaurantsByCell.forEach((cell, restaurants) ->
+        loadedCells.put(cell, new RestaurantCell(restaurants)));
+    return loadedCells;
+  }
+
+  // Reads the box around the cells from the collection, the caller keeps the restaurants in them.
+  private List<RestaurantEntity> findRestaurantsInCells(Set<String> cells) {
+    double minLatitude = 90;
+    double minLongitude = 180;
+    double maxLatitude = -90;
+    double maxLongitude = -180;
+    for (String cell : cells) {
+      double[] bounds = GeoHashUtils.findCellBounds(cell);
+      minLatitude = Math.min(minLatitude, bounds[0]);
+      minLongitude = Math.min(minLongitude, bounds[1]);
+      maxLatitude = Math.max(maxLatitude, bounds[2]);
+      maxLongitude = Math.max(maxLongitude, bounds[3]);
+    }
+    return restaurantRepository.findByCoordinatesWithin(minLatitude, minLongitude,
+        maxLatitude, maxLongitude);
+  }
+
+  private void writeCells(Map<String, RestaurantCell> restaurantCells) {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    for (Map.Entry<String, RestaurantCell> cell : restaurantCells.entrySet()) {
+      entries.put(keyOf(cell.getKey()), encodes.record(() ->
+          restaurantCellCodec.encode(cell.getValue().getRestaurants(),
+              cell.getValue().getLoadedAtMillis())));
+    }
+    int expiryInSeconds = RedisConfiguration.REDIS_ENTRY_EXPIRY_IN_SECONDS;
+    int jitterInSeconds = expiryInSeconds * expiryJitterPercent / 100;
+    int expiryWithJitterInSeconds =
+        expiryInSeconds - ThreadLocalRandom.current().nextInt(jitterInSeconds + 1);
+    redisWrites.record(() -> cacheClient.setex(entries, expiryWithJitterInSeconds));
+  }
+
+  private void findOpenRestaurantsWithoutCache(double latitude, double longitude,
+      double radiusInKms, LocalTime currentTime, Consumer<RestaurantEntity> restaurantConsumer) {
+    List<RestaurantEntity> restaurantsWithin = mongoLoads.record(() ->
+        nearbyRestaurantsFinder.findRestaurantsWithin(latitude, longitude, radiusInKms));
+    for (RestaurantEntity restaurantEntity : restaurantsWithin) {
+      if (restaurantEntity.getOpeningHours().isOpenAt(currentTime)) {
+        restaurantConsumer.accept(restaurantEntity);
+      }
+    }
+  }
+}
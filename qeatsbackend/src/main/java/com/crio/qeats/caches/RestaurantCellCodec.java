@@ -0,0 +1,204 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodes the restaurants of a cell into the bytes stored in Redis.
+ * - json: the JSON array written by the shared ObjectMapper.
+ * - smile: the same tree in Jackson's binary Smile format.
+ * - compact: {@link CompactRestaurantFormat}, field names implied and repeated values shared.
+ * Values of compression-threshold-bytes or more are deflated when that makes them smaller.
+ * Every value starts with a three byte header (magic, format id, flags), so any instance reads the
+ * values written in any format, and values with an unknown format are reported unreadable instead
+ * of misread. Values without the header are JSON arrays written before it existed.
+ * The header is followed by the time the restaurants were loaded from Mongo when flagged.
+ */
+@Component
+public class RestaurantCellCodec {
+
+  public static final String FORMAT_PROPERTY = "qeats.cache.codec";
+
+  // Not a valid first byte of UTF-8 JSON.
+  static final byte MAGIC = (byte) 0xCE;
+  private static final int HEADER_LENGTH = 3;
+  private static final byte FLAG_DEFLATE = 1;
+  private static final byte FLAG_LOADED_AT = 2;
+  private static final int LOADED_AT_LENGTH = 8;
+
+  enum Format {
+    JSON(1), SMILE(2), COMPACT(3);
+
+    final byte id;
+
+    Format(int id) {
+      this.id = (byte) id;
+    }
+
+    static Format of(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    static Format of(byte id) throws IOException {
+      for (Format format : values()) {
+        if (format.id == id) {
+          return format;
+        }
+      }
+      throw new IOException("unknown restaurant cell format " + id);
+    }
+  }
+
+  @Value("${" + FORMAT_PROPERTY + ":compact}")
+  private String formatName;
+
+  @Value("${qeats.cache.codec.compression-threshold-bytes:2048}")
+  private int compressionThresholdInBytes;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  private Format format;
+  private ObjectMapper smileMapper;
+
+  @PostConstruct
+  public void init() {
+    format = Format.of(formatName);
+    smileMapper = new ObjectMapper(new SmileFactory())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  }
+
+  /**
+   * Encodes the given restaurants in the configured format, as loaded now.
+   */
+  public byte[] encode(List<RestaurantEntity> restaurants) {
+    return encode(restaurants, System.currentTimeMillis());
+  }
+
+  /**
+   * Encodes the given restaurants in the configured format.
+   * @param restaurants restaurants to encode
+   * @param loadedAtMillis when the restaurants were loaded from Mongo
+   * @return the value to store
+   */
+  public byte[] encode(List<RestaurantEntity> restaurants, long loadedAtMillis) {
+    try {
+      byte[] payload = write(restaurants);
+      byte flags = FLAG_LOADED_AT;
+      if (payload.length >= compressionThresholdInBytes) {
+        byte[] deflated = deflate(payload);
+        if (deflated.length < payload.length) {
+          payload = deflated;
+          flags |= FLAG_DEFLATE;
+        }
+      }
+
+      ByteBuffer value = ByteBuffer.allocate(HEADER_LENGTH + LOADED_AT_LENGTH + payload.length);
+      value.put(MAGIC).put(format.id).put(flags).putLong(loadedAtMillis).put(payload);
+      return value.array();
+    } catch (IOException e) {
+      throw new IllegalStateException("restaurants are not serializable", e);
+    }
+  }
+
+  /**
+   * Decodes a value written by {@link #encode} in any format, or a headerless JSON array.
+   * @throws IOException if the value is corrupt or its format unknown
+   */
+  public List<RestaurantEntity> decode(byte[] value) throws IOException {
+    if (value.length == 0 || value[0] != MAGIC) {
+      return Arrays.asList(objectMapper.readValue(value, RestaurantEntity[].class));
+    }
+    if (value.length < HEADER_LENGTH) {
+      throw new IOException("truncated restaurant cell header");
+    }
+
+    Format valueFormat = Format.of(value[1]);
+    byte[] payload = value;
+    int offset = HEADER_LENGTH + ((value[2] & FLAG_LOADED_AT) != 0 ? LOADED_AT_LENGTH : 0);
+    int length = value.length - offset;
+    if (length < 0) {
+      throw new IOException("truncated restaurant cell header");
+    }
+    if ((value[2] & FLAG_DEFLATE) != 0) {
+      payload = inflate(value, offset, length);
+      offset = 0;
+      length = payload.length;
+    }
+    switch (valueFormat) {
+      case SMILE:
+        return Arrays.asList(
+            smileMapper.readValue(payload, offset, length, RestaurantEntity[].class));
+      case COMPACT:
+        return CompactRestaurantFormat.read(payload, offset, length);
+      default:
+        return Arrays.asList(
+            objectMapper.readValue(payload, offset, length, RestaurantEntity[].class));
+    }
+  }
+
+  /**
+   * Returns when the restaurants of a value were loaded from Mongo, 0 if the value does not say.
+   */
+  public static long readLoadedAtMillis(byte[] value) {
+    if (value.length < HEADER_LENGTH + LOADED_AT_LENGTH || value[0] != MAGIC
+        || (value[2] & FLAG_LOADED_AT) == 0) {
+      return 0;
+    }
+    return ByteBuffer.wrap(value, HEADER_LENGTH, LOADED_AT_LENGTH).getLong();
+  }
+
+  private byte[] write(List<RestaurantEntity> restaurants) throws IOException {
+    switch (format) {
+      case SMILE:
+        return smileMapper.writeValueAsBytes(restaurants);
+      case COMPACT:
+        return CompactRestaurantFormat.write(restaurants);
+      default:
+        return objectMapper.writeValueAsBytes(restaurants);
+    }
+  }
+
+  private static byte[] deflate(byte[] bytes) throws IOException {
+    ByteArrayOutputStream deflated = new ByteArrayOutputStream(bytes.length / 2);
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DeflaterOutputStream out = new DeflaterOutputStream(deflated, deflater)) {
+      out.write(bytes);
+    } finally {
+      deflater.end();
+    }
+    return deflated.toByteArray();
+  }
+
+  private static byte[] inflate(byte[] bytes, int offset, int length) throws IOException {
+    try (InflaterInputStream in =
+        new InflaterInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
+}
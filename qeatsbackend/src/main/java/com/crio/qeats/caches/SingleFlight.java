@@ -0,0 +1,80 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent loads of the same keys within this instance: the first caller asking for a
+ * key loads it, and the callers asking for it meanwhile wait for that load instead of running
+ * their own.
+ */
+class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> loadsInFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Loads the given keys, running the loader only for those no other caller is loading.
+   * @param keys keys to load
+   * @param loader loads the keys it is given, in one call
+   * @param timeoutInMillis how long to wait for the loads of other callers
+   * @return values by key; keys whose load failed or took too long are missing
+   */
+  Map<K, V> load(Set<K> keys, Function<Set<K>, Map<K, V>> loader, long timeoutInMillis) {
+    Map<K, CompletableFuture<V>> ownLoads = new HashMap<>();
+    Map<K, CompletableFuture<V>> otherLoads = new HashMap<>();
+    for (K key : keys) {
+      CompletableFuture<V> load = new CompletableFuture<>();
+      CompletableFuture<V> current = loadsInFlight.putIfAbsent(key, load);
+      if (current == null) {
+        ownLoads.put(key, load);
+      } else {
+        otherLoads.put(key, current);
+      }
+    }
+
+    Map<K, V> values = new HashMap<>();
+    if (!ownLoads.isEmpty()) {
+      try {
+        values.putAll(loader.apply(new HashSet<>(ownLoads.keySet())));
+        ownLoads.forEach((key, load) -> load.complete(values.get(key)));
+      } catch (RuntimeException e) {
+        ownLoads.values().forEach(load -> load.completeExceptionally(e));
+        throw e;
+      } finally {
+        ownLoads.forEach(loadsInFlight::remove);
+      }
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+    for (Map.Entry<K, CompletableFuture<V>> otherLoad : otherLoads.entrySet()) {
+      try {
+        V value = otherLoad.getValue().get(
+            Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        if (value != null) {
+          values.put(otherLoad.getKey(), value);
+        }
+      } catch (ExecutionException | TimeoutException e) {
+        // Left to the caller.
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * How blocking work is mapped onto threads, for Tomcat requests and for the sub-searches of
+ * findRestaurantsBySearchQueryMt.
+ * - bounded: a fixed pool of platform threads with a bounded queue. Once both are full, tasks
+ *   are rejected with a RejectedExecutionException, so that callers can give up on them rather
+ *   than run them on their own thread, past any deadline.
+ * - work-stealing: a ForkJoinPool. A worker blocked on a CompletableFuture gets a compensating
+ *   thread, so the pool grows past its parallelism while tasks wait on each other.
+ * - virtual: one virtual thread per task. Needs Java 21 and falls back to bounded on older
+ *   runtimes. Concurrency is only limited by the callers, so the search deadline is what bounds
+ *   the work in flight.
+ */
+@Log4j2
+public enum ExecutionStrategy {
+  BOUNDED, WORK_STEALING, VIRTUAL;
+
+  public static final String PROPERTY = "qeats.execution.strategy";
+
+  /**
+   * Parses the property value: bounded, work-stealing or virtual.
+   */
+  public static ExecutionStrategy of(String name) {
+    return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+  }
+
+  /**
+   * Creates an executor following this strategy.
+   * @param threadNamePrefix prefix of the thread names
+   * @param poolSize threads of the bounded pool, parallelism of the work-stealing pool
+   * @param queueCapacity tasks the bounded pool queues before rejecting them
+   * @return a new executor, which the caller has to shut down
+   */
+  public ExecutorService newExecutor(String threadNamePrefix, int poolSize, int queueCapacity) {
+    if (this == WORK_STEALING) {
+      return new ForkJoinPool(poolSize, pool -> {
+        ForkJoinWorkerThread thread =
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName(threadNamePrefix + thread.getPoolIndex());
+        return thread;
+      }, null, true);
+    }
+    if (this == VIRTUAL) {
+      ExecutorService executor = newVirtualThreadPerTaskExecutor(threadNamePrefix);
+      if (executor != null) {
+        return executor;
+      }
+      log.warn("virtual threads are not supported by Java {}, using a bounded pool for {}",
+          System.getProperty("java.version"), threadNamePrefix);
+    }
+    return new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory(threadNamePrefix),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * True if the running JVM can create virtual threads.
+   */
+  public static boolean isVirtualThreadSupported() {
+    ExecutorService executor = newVirtualThreadPerTaskExecutor("probe-");
+    if (executor == null) {
+      return false;
+    }
+    executor.shutdown();
+    return true;
+  }
+
+  // The sources target Java 8, so the Java 21 API is reached through reflection:
+  // Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory())
+  private static ExecutorService newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, threadNamePrefix, 0L);
+      ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory")
+          .invoke(builder);
+      return (ExecutorService) Executors.class
+          .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+          .invoke(null, threadFactory);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+}
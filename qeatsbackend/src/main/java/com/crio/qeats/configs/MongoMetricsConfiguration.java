@@ -0,0 +1,154 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import com.mongodb.MongoClientOptions;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionAddedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolListenerAdapter;
+import com.mongodb.event.ConnectionPoolOpenedEvent;
+import com.mongodb.event.ConnectionPoolWaitQueueEnteredEvent;
+import com.mongodb.event.ConnectionPoolWaitQueueExitedEvent;
+import com.mongodb.event.ConnectionRemovedEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes the connection pools of the blocking and reactive Mongo clients, per server, as
+ * qeats.mongo.pool.connections{client,server,state}, state being size, checked-out, waiting or
+ * max. Saturation is checked-out / max: once they are equal, callers queue up in waiting.
+ * The Micrometer version Boot manages has no Mongo binder, hence the pool listener.
+ */
+@Configuration
+public class MongoMetricsConfiguration {
+
+  /**
+   * Options of the blocking client, which Boot completes from spring.data.mongodb.uri.
+   * @param meterRegistry registry the pool metrics are published to
+   * @return the client options
+   */
+  @Bean
+  public MongoClientOptions mongoClientOptions(MeterRegistry meterRegistry) {
+    return MongoClientOptions.builder()
+        .addConnectionPoolListener(new PoolMetrics("blocking", meterRegistry))
+        .build();
+  }
+
+  /**
+   * Adds the pool listener to the reactive client, when there is one.
+   * @param meterRegistry registry the pool metrics are published to
+   * @return the settings customizer
+   */
+  @Bean
+  public MongoClientSettingsBuilderCustomizer mongoPoolMetricsCustomizer(
+      MeterRegistry meterRegistry) {
+    PoolMetrics poolMetrics = new PoolMetrics("reactive", meterRegistry);
+    return builder -> builder.applyToConnectionPoolSettings(
+        pool -> pool.addConnectionPoolListener(poolMetrics));
+  }
+
+  static class PoolMetrics extends ConnectionPoolListenerAdapter {
+
+    private final String client;
+    private final MeterRegistry meterRegistry;
+    private final Map<ServerId, ServerPool> pools = new ConcurrentHashMap<>();
+
+    PoolMetrics(String client, MeterRegistry meterRegistry) {
+      this.client = client;
+      this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void connectionPoolOpened(ConnectionPoolOpenedEvent event) {
+      pool(event.getServerId()).max.set(event.getSettings().getMaxSize());
+    }
+
+    // Gauges stay registered, reading zero, as the client may reopen the pool.
+    @Override
+    public void connectionPoolClosed(ConnectionPoolClosedEvent event) {
+      ServerPool pool = pool(event.getServerId());
+      pool.size.set(0);
+      pool.checkedOut.set(0);
+      pool.waiting.set(0);
+      pool.max.set(0);
+    }
+
+    @Override
+    public void connectionAdded(ConnectionAddedEvent event) {
+      pool(event.getConnectionId().getServerId()).size.incrementAndGet();
+    }
+
+    @Override
+    public void connectionRemoved(ConnectionRemovedEvent event) {
+      pool(event.getConnectionId().getServerId()).size.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+      pool(event.getConnectionId().getServerId()).checkedOut.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+      pool(event.getConnectionId().getServerId()).checkedOut.decrementAndGet();
+    }
+
+    @Override
+    public void waitQueueEntered(ConnectionPoolWaitQueueEnteredEvent event) {
+      pool(event.getServerId()).waiting.incrementAndGet();
+    }
+
+    @Override
+    public void waitQueueExited(ConnectionPoolWaitQueueExitedEvent event) {
+      pool(event.getServerId()).waiting.decrementAndGet();
+    }
+
+    private ServerPool pool(ServerId serverId) {
+      return pools.computeIfAbsent(serverId, this::register);
+    }
+
+    private ServerPool register(ServerId serverId) {
+      ServerPool pool = new ServerPool();
+      String server = serverId.getAddress().toString();
+      registerGauge(server, "size", pool, serverPool -> serverPool.size);
+      registerGauge(server, "checked-out", pool, serverPool -> serverPool.checkedOut);
+      registerGauge(server, "waiting", pool, serverPool -> serverPool.waiting);
+      registerGauge(server, "max", pool, serverPool -> serverPool.max);
+      return pool;
+    }
+
+    private void registerGauge(String server, String state, ServerPool pool,
+        Function<ServerPool, AtomicInteger> connections) {
+      Gauge.builder("qeats.mongo.pool.connections", pool,
+          serverPool -> connections.apply(serverPool).get())
+          .tag("client", client)
+          .tag("server", server)
+          .tag("state", state)
+          .register(meterRegistry);
+    }
+  }
+
+  private static class ServerPool {
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger checkedOut = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger max = new AtomicInteger();
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lettuce connection for the reactive stack.
+ * One connection is shared by every request: Lettuce multiplexes the commands of all callers over
+ * it, so nothing is borrowed or returned per call and no caller waits for a free connection.
+ * Values are raw bytes, as written by {@link com.crio.qeats.caches.RestaurantCellCodec}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveRedisConfiguration {
+
+  @Value("${spring.redis.port}")
+  private int redisPort;
+
+  @Bean(destroyMethod = "shutdown")
+  public RedisClient lettuceRedisClient() {
+    return RedisClient.create(RedisURI.create(RedisConfiguration.redisHost, redisPort));
+  }
+
+  @Bean(destroyMethod = "close")
+  public StatefulRedisConnection<byte[], byte[]> lettuceRedisConnection(
+      RedisClient lettuceRedisClient) {
+    return lettuceRedisClient.connect(ByteArrayCodec.INSTANCE);
+  }
+}
@@ -8,6 +8,7 @@ import lombok.Data;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.exceptions.JedisConnectionException;
@@ -27,6 +28,9 @@ public class RedisConfiguration {
   // Amount of time after which the redis entries should expire.
   public static final int REDIS_ENTRY_EXPIRY_IN_SECONDS = 3600;
 
+  // Connections the pool hands out at most, callers block past it.
+  public static final int JEDIS_POOL_MAX_TOTAL = 128;
+
   // TIP(MODULE_RABBITMQ): RabbitMQ related configs.
   public static final String EXCHANGE_NAME = "rabbitmq-exchange";
   public static final String QUEUE_NAME = "rabbitmq-queue";
@@ -50,8 +54,8 @@ public class RedisConfiguration {
   @PostConstruct
   public void initCache() {
     final JedisPoolConfig poolConfig = new JedisPoolConfig();
-    poolConfig.setMaxTotal(128);
-    poolConfig.setMaxIdle(128);
+    poolConfig.setMaxTotal(JEDIS_POOL_MAX_TOTAL);
+    poolConfig.setMaxIdle(JEDIS_POOL_MAX_TOTAL);
     poolConfig.setMinIdle(16);
     // poolConfig.setTestOnBorrow(true);
     // poolConfig.setTestOnReturn(true);
@@ -66,13 +70,15 @@ public class RedisConfiguration {
 
   /**
    * Checks is cache is intiailized and available.
-   * TIP: This would generally mean checking via {@link JedisPool}
+   * Pings Redis on a pooled connection, as an idle connection may outlive the server.
    * @return true / false if cache is available or not.
    */
   public boolean isCacheAvailable() {
-    try {
-      jedisPool.getResource();
-      return true;
+    if (jedisPool == null) {
+      return false;
+    }
+    try (Jedis jedis = jedisPool.getResource()) {
+      return "PONG".equals(jedis.ping());
     } catch (Exception e) {
       return false;
     }
@@ -84,7 +90,9 @@ public class RedisConfiguration {
    */
   public void destroyCache() {
     if (jedisPool != null) {
-      jedisPool.getResource().flushAll();
+      try (Jedis jedis = jedisPool.getResource()) {
+        jedis.flushAll();
+      }
       jedisPool.destroy();
       jedisPool = null;
     }
@@ -0,0 +1,95 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Thread pools shared by all the requests fanning out their sub-searches.
+ * - searchExecutor runs the sub-searches of the multi-threaded search, following the configured
+ *   {@link ExecutionStrategy}. With the bounded strategy, once its threads and queue are full the
+ *   sub-searches are rejected, and the request answers with the results of the others.
+ * - repositoryIoExecutor runs the blocking repository calls behind
+ *   {@link com.crio.qeats.repositoryservices.AsyncRestaurantRepositoryService}. Once it is full,
+ *   calls fail fast so the caller can answer with partial results.
+ * Pool size, active threads and queue depth are published under the pool name.
+ */
+@Configuration
+public class SearchExecutorConfiguration {
+
+  public static final String SEARCH_EXECUTOR = "searchExecutor";
+  public static final String REPOSITORY_IO_EXECUTOR = "repositoryIoExecutor";
+
+  @Value("${" + ExecutionStrategy.PROPERTY + ":bounded}")
+  private String strategy;
+
+  @Value("${qeats.search.executor.pool-size:16}")
+  private int poolSize;
+
+  @Value("${qeats.search.executor.queue-capacity:256}")
+  private int queueCapacity;
+
+  @Value("${qeats.repository.io-executor.pool-size:64}")
+  private int ioPoolSize;
+
+  @Value("${qeats.repository.io-executor.queue-capacity:1024}")
+  private int ioQueueCapacity;
+
+  /**
+   * Creates the search executor and binds its metrics.
+   * @param meterRegistry registry the pool metrics are published to
+   * @return the search executor
+   */
+  @Bean(name = SEARCH_EXECUTOR, destroyMethod = "shutdown")
+  public ExecutorService searchExecutor(MeterRegistry meterRegistry) {
+    ExecutorService executor =
+        ExecutionStrategy.of(strategy).newExecutor("qeats-search-", poolSize, queueCapacity);
+    new ExecutorServiceMetrics(executor, "qeats.search.executor", Tags.empty())
+        .bindTo(meterRegistry);
+    return executor;
+  }
+
+  /**
+   * Creates the repository I/O executor and binds its metrics.
+   * @param meterRegistry registry the pool metrics are published to
+   * @return the repository I/O executor
+   */
+  @Bean(name = REPOSITORY_IO_EXECUTOR)
+  public ThreadPoolTaskExecutor repositoryIoExecutor(MeterRegistry meterRegistry) {
+    return newExecutor("qeats.repository.io.executor", "qeats-repository-io-", ioPoolSize,
+        ioQueueCapacity, new ThreadPoolExecutor.AbortPolicy(), meterRegistry);
+  }
+
+  private static ThreadPoolTaskExecutor newExecutor(String metricName, String threadNamePrefix,
+      int poolSize, int queueCapacity, RejectedExecutionHandler rejectedExecutionHandler,
+      MeterRegistry meterRegistry) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix(threadNamePrefix);
+    executor.setRejectedExecutionHandler(rejectedExecutionHandler);
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(10);
+    executor.initialize();
+
+    new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), metricName, Tags.empty())
+        .bindTo(meterRegistry);
+    return executor;
+  }
+}
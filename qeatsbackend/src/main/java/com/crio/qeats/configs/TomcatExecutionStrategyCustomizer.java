@@ -0,0 +1,75 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import java.util.concurrent.ExecutorService;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the Tomcat request threads with the configured {@link ExecutionStrategy}.
+ * With the bounded strategy Tomcat keeps its own pool, sized by server.tomcat.max-threads. So does
+ * the virtual strategy on runtimes without virtual threads: the bounded fallback of
+ * {@link ExecutionStrategy} runs rejected tasks on the caller, which for a connector executor are
+ * the acceptor and poller threads, stalling the network I/O of every connection.
+ */
+@Log4j2
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class TomcatExecutionStrategyCustomizer
+    implements WebServerFactoryCustomizer<TomcatServletWebServerFactory>, DisposableBean {
+
+  @Value("${" + ExecutionStrategy.PROPERTY + ":bounded}")
+  private String strategy;
+
+  @Value("${server.tomcat.max-threads:200}")
+  private int maxThreads;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private ExecutorService requestExecutor;
+
+  @Override
+  public void customize(TomcatServletWebServerFactory factory) {
+    ExecutionStrategy executionStrategy = ExecutionStrategy.of(strategy);
+    if (executionStrategy == ExecutionStrategy.BOUNDED) {
+      return;
+    }
+    if (executionStrategy == ExecutionStrategy.VIRTUAL
+        && !ExecutionStrategy.isVirtualThreadSupported()) {
+      log.warn("virtual threads are not supported by Java {}, keeping the Tomcat request pool",
+          System.getProperty("java.version"));
+      return;
+    }
+    log.info("serving requests with the {} execution strategy", strategy);
+    requestExecutor = executionStrategy.newExecutor("qeats-request-", maxThreads, maxThreads);
+    new ExecutorServiceMetrics(requestExecutor, "qeats.request.executor", Tags.empty())
+        .bindTo(meterRegistry);
+    factory.addConnectorCustomizers(
+        connector -> connector.getProtocolHandler().setExecutor(requestExecutor));
+  }
+
+  @Override
+  public void destroy() {
+    if (requestExecutor != null) {
+      requestExecutor.shutdown();
+    }
+  }
+}
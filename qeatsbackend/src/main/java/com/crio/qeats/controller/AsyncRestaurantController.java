@@ -0,0 +1,77 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.services.AsyncRestaurantServiceImpl;
+import java.time.LocalTime;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import javax.validation.Valid;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Serves searches without holding a request thread while the sub-searches run.
+ * Takes over the requests carrying searchFor from {@link RestaurantController}. When the request
+ * ends before the search does, because the client disconnected or the async timeout expired,
+ * the search is cancelled.
+ */
+@Log4j2
+@RestController
+@RequestMapping(RestaurantController.RESTAURANT_API_ENDPOINT)
+@ConditionalOnProperty(name = AsyncRestaurantServiceImpl.ASYNC_PROPERTY, havingValue = "true")
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class AsyncRestaurantController {
+
+  @Autowired
+  private AsyncRestaurantServiceImpl asyncRestaurantService;
+
+  @Value("${qeats.restaurants.max-age-seconds:30}")
+  private long restaurantsMaxAgeInSeconds;
+
+  @GetMapping(value = RestaurantController.RESTAURANTS_API, params = "searchFor")
+  public DeferredResult<ResponseEntity<GetRestaurantsResponse>> searchRestaurants(
+      @Valid GetRestaurantsRequest getRestaurantsRequest,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    log.info("searchRestaurants called with {}", getRestaurantsRequest);
+    DeferredResult<ResponseEntity<GetRestaurantsResponse>> deferredResult = new DeferredResult<>();
+
+    CompletableFuture<GetRestaurantsResponse> search;
+    if (getRestaurantsRequest.getSearchFor().isEmpty()) {
+      search = CompletableFuture.completedFuture(asyncRestaurantService
+          .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.now()));
+    } else {
+      search = asyncRestaurantService
+          .findRestaurantsBySearchQueryAsync(getRestaurantsRequest, LocalTime.now());
+    }
+
+    // Runs on success, timeout and client disconnect alike; a finished search ignores it.
+    deferredResult.onCompletion(() -> search.cancel(true));
+    search.whenComplete((getRestaurantsResponse, error) -> {
+      if (error == null) {
+        deferredResult.setResult(RestaurantController.toCacheableResponse(
+            getRestaurantsResponse, ifNoneMatch, restaurantsMaxAgeInSeconds));
+      } else if (!(error instanceof CancellationException)) {
+        deferredResult.setErrorResult(error);
+      }
+    });
+    return deferredResult;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Body of a streamed response, compressed with the negotiated coding once it outgrows the
+ * threshold. Smaller bodies are sent as they are, with a Content-Length, since compressing them
+ * costs more than it saves. Flushes are ignored until the threshold is crossed.
+ */
+final class CompressingResponseStream extends OutputStream {
+
+  private final HttpServletResponse response;
+  private final String contentCoding;
+  private final int thresholdInBytes;
+  private ByteArrayOutputStream buffer;
+  private OutputStream out;
+
+  /**
+   * Wraps the output of the given response.
+   * @param contentCoding gzip, deflate, or null to never compress
+   * @param thresholdInBytes bodies this long or shorter are not compressed
+   */
+  CompressingResponseStream(HttpServletResponse response, String contentCoding,
+      int thresholdInBytes) {
+    this.response = response;
+    this.contentCoding = contentCoding;
+    this.thresholdInBytes = thresholdInBytes;
+    this.buffer = new ByteArrayOutputStream(Math.min(thresholdInBytes, 8192));
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    if (out == null) {
+      if (buffer.size() + length <= thresholdInBytes) {
+        buffer.write(bytes, offset, length);
+        return;
+      }
+      open();
+    }
+    out.write(bytes, offset, length);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (out != null) {
+      out.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (out == null) {
+      response.setContentLength(buffer.size());
+      buffer.writeTo(response.getOutputStream());
+      buffer = null;
+      response.getOutputStream().close();
+      return;
+    }
+    out.close();
+  }
+
+  private void open() throws IOException {
+    OutputStream servletOut = response.getOutputStream();
+    if (ContentCodings.GZIP.equals(contentCoding)) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, ContentCodings.GZIP);
+      out = new GZIPOutputStream(servletOut, 8192);
+    } else if (ContentCodings.DEFLATE.equals(contentCoding)) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, ContentCodings.DEFLATE);
+      out = new DeflaterOutputStream(servletOut, true);
+    } else {
+      out = servletOut;
+    }
+    buffer.writeTo(out);
+    buffer = null;
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import java.util.Locale;
+
+/**
+ * Negotiates the compression of a response from the Accept-Encoding header of its request.
+ */
+final class ContentCodings {
+
+  static final String GZIP = "gzip";
+  static final String DEFLATE = "deflate";
+
+  private ContentCodings() { /* static helpers */ }
+
+  /**
+   * Picks the coding the client prefers among gzip and deflate, gzip on ties.
+   * @param acceptEncoding header value, may be null
+   * @return gzip, deflate, or null if the response must not be compressed
+   */
+  static String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return null;
+    }
+    Double gzipQuality = null;
+    Double deflateQuality = null;
+    double wildcardQuality = 0;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parameters = coding.split(";");
+      String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+      double quality = qualityOf(parameters);
+      if (name.equals(GZIP) || name.equals("x-gzip")) {
+        gzipQuality = quality;
+      } else if (name.equals(DEFLATE)) {
+        deflateQuality = quality;
+      } else if (name.equals("*")) {
+        wildcardQuality = quality;
+      }
+    }
+
+    double gzip = gzipQuality == null ? wildcardQuality : gzipQuality;
+    double deflate = deflateQuality == null ? wildcardQuality : deflateQuality;
+    if (gzip <= 0 && deflate <= 0) {
+      return null;
+    }
+    return gzip >= deflate ? GZIP : DEFLATE;
+  }
+
+  private static double qualityOf(String[] parameters) {
+    for (int i = 1; i < parameters.length; i++) {
+      String parameter = parameters[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2));
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.services.ReactiveRestaurantService;
+import java.time.LocalTime;
+import javax.validation.Valid;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux version of {@link RestaurantController}, serving the same endpoints when the
+ * application runs with spring.main.web-application-type=reactive.
+ * Clients asking for application/stream+json get the restaurants as a stream, one JSON document
+ * per restaurant, written as soon as each one is found. The others get the usual response.
+ * With a limit, the restaurants around a location are paged as by {@link RestaurantController};
+ * a stream then carries the restaurants of the page only, without its nextCursor.
+ */
+@Log4j2
+@RestController
+@RequestMapping(RestaurantController.RESTAURANT_API_ENDPOINT)
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveRestaurantController {
+
+  private final ReactiveRestaurantService reactiveRestaurantService;
+
+  @Autowired
+  public ReactiveRestaurantController(ReactiveRestaurantService reactiveRestaurantService) {
+    this.reactiveRestaurantService = reactiveRestaurantService;
+  }
+
+  @GetMapping(value = RestaurantController.RESTAURANTS_API,
+      produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+  public Flux<Restaurant> streamRestaurants(@Valid GetRestaurantsRequest getRestaurantsRequest) {
+    log.info("streamRestaurants called with {}", getRestaurantsRequest);
+    if (isPaged(getRestaurantsRequest)) {
+      return reactiveRestaurantService
+          .findNearestRestaurants(getRestaurantsRequest, LocalTime.now())
+          .flatMapIterable(GetRestaurantsResponse::getRestaurants);
+    }
+    return findRestaurants(getRestaurantsRequest);
+  }
+
+  @GetMapping(RestaurantController.RESTAURANTS_API)
+  public Mono<GetRestaurantsResponse> getRestaurants(
+      @Valid GetRestaurantsRequest getRestaurantsRequest) {
+    log.info("getRestaurants called with {}", getRestaurantsRequest);
+    if (isPaged(getRestaurantsRequest)) {
+      return reactiveRestaurantService
+          .findNearestRestaurants(getRestaurantsRequest, LocalTime.now());
+    }
+    return findRestaurants(getRestaurantsRequest)
+        .collectList()
+        .map(GetRestaurantsResponse::new);
+  }
+
+  @GetMapping(RestaurantController.MENU_API)
+  public Mono<GetMenuResponse> getMenu(@RequestParam String restaurantId) {
+    return reactiveRestaurantService.getMenuByRestaurantId(restaurantId);
+  }
+
+  // Searches are not paged.
+  private static boolean isPaged(GetRestaurantsRequest getRestaurantsRequest) {
+    return getRestaurantsRequest.getSearchFor().isEmpty()
+        && getRestaurantsRequest.getLimit() != null;
+  }
+
+  private Flux<Restaurant> findRestaurants(GetRestaurantsRequest getRestaurantsRequest) {
+    if (getRestaurantsRequest.getSearchFor().isEmpty()) {
+      return reactiveRestaurantService
+          .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.now());
+    }
+    return reactiveRestaurantService
+        .findRestaurantsBySearchQuery(getRestaurantsRequest, LocalTime.now());
+  }
+}
@@ -6,20 +6,35 @@
 
 package com.crio.qeats.controller;
 
-import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.caches.MenuResponse;
+import com.crio.qeats.caches.MenuResponseCache;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.log.PayloadLogSampler;
 import com.crio.qeats.services.RestaurantService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -27,6 +42,7 @@ import org.springframework.web.bind.annotation.RestController;
 @Log4j2
 @Controller
 @RequestMapping("/qeats/v1")
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class RestaurantController {
 
   public static final String RESTAURANT_API_ENDPOINT = "/qeats/v1";
@@ -41,36 +57,140 @@ public class RestaurantController {
   @Autowired
   private RestaurantService restaurantService;
 
+  @Autowired
+  private MenuResponseCache menuResponseCache;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private PayloadLogSampler payloadLogSampler;
+
+  @Value("${qeats.restaurants.max-age-seconds:30}")
+  private long restaurantsMaxAgeInSeconds;
+
+  @Value("${qeats.restaurants.streaming:false}")
+  private boolean streamingEnabled;
+
+  @Value("${qeats.restaurants.compression-threshold-bytes:2048}")
+  private int compressionThresholdInBytes;
+
+  /**
+   * Serves the restaurants around a location, or those matching searchFor.
+   * With a limit, the restaurants around a location are paged, nearest first; a cursor which was
+   * not returned as nextCursor is a bad request.
+   * In streaming mode, unpaged restaurants around a location are written as they are found,
+   * without an ETag, compressed when they outgrow compression-threshold-bytes.
+   */
   @GetMapping(RESTAURANTS_API)
   public ResponseEntity<GetRestaurantsResponse> getRestaurants(
-      @Valid GetRestaurantsRequest getRestaurantsRequest) {
+      @Valid GetRestaurantsRequest getRestaurantsRequest,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding,
+      HttpServletResponse response) throws IOException {
     
+    long startTimeInNanos = System.nanoTime();
     log.info("getRestaurants called with {}", getRestaurantsRequest);
     GetRestaurantsResponse getRestaurantsResponse;
     
+    if (streamingEnabled && getRestaurantsRequest.getSearchFor().isEmpty()
+        && getRestaurantsRequest.getLimit() == null) {
+      streamRestaurantsCloseBy(getRestaurantsRequest, acceptEncoding, response);
+      return null;
+    }
     if (getRestaurantsRequest.getSearchFor().isEmpty()) {
-      log.info("returned all");
       getRestaurantsResponse = restaurantService
         .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.now());
     } else {
-      log.info("returned from search query {}", getRestaurantsRequest.getSearchFor());
       getRestaurantsResponse = restaurantService
-        .findRestaurantsBySearchQuery(getRestaurantsRequest, LocalTime.now());
+        .findRestaurantsBySearchQueryMt(getRestaurantsRequest, LocalTime.now());
     }
-    if (getRestaurantsResponse != null) {
-      log.info("getRestaurants returned {} restaurants", 
-          getRestaurantsResponse.getRestaurants());
-      getRestaurantsResponse.getRestaurants().forEach(res -> {
-        res.setName(res.getName().replaceAll("[^\\p{ASCII}]", ""));
-      });
+    if (getRestaurantsResponse == null) {
+      return ResponseEntity.ok().body(null);
     }
-    return ResponseEntity.ok().body(getRestaurantsResponse);
+    logPayload(getRestaurantsResponse, System.nanoTime() - startTimeInNanos);
+    return toCacheableResponse(getRestaurantsResponse, ifNoneMatch, restaurantsMaxAgeInSeconds);
   }
 
+  /**
+   * Serves the cached, pre-serialized menu with a strong ETag, gzipped when the client accepts it.
+   * Clients revalidate with If-None-Match and get a 304 while the menu has not changed.
+   */
   @GetMapping(MENU_API)
-  public ResponseEntity<GetMenuResponse> getMenu(@RequestParam String restaurantId) {
-    GetMenuResponse getMenuResponse = restaurantService.getMenuByRestaurantId(restaurantId);
-    return ResponseEntity.ok().body(getMenuResponse);
+  public ResponseEntity<byte[]> getMenu(@RequestParam String restaurantId,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding) {
+    MenuResponse menuResponse = menuResponseCache.getMenuResponse(restaurantId,
+        restaurantService::getMenuByRestaurantId);
+    if (menuResponse == null) {
+      return ResponseEntity.notFound().build();
+    }
+
+    boolean gzipped = ContentCodings.GZIP.equals(ContentCodings.negotiate(acceptEncoding));
+    if (menuResponse.isNotModified(ifNoneMatch)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(menuResponse.getEtag(gzipped))
+          .cacheControl(CacheControl.noCache())
+          .varyBy(HttpHeaders.ACCEPT_ENCODING)
+          .build();
+    }
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .eTag(menuResponse.getEtag(gzipped))
+        .cacheControl(CacheControl.noCache())
+        .varyBy(HttpHeaders.ACCEPT_ENCODING)
+        .contentType(MediaType.APPLICATION_JSON_UTF8);
+    if (gzipped) {
+      return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+          .body(menuResponse.getGzippedJson());
+    }
+    return response.body(menuResponse.getJson());
+  }
+
+  // The restaurants themselves are only logged for sampled requests, they dwarf the rest.
+  private void logPayload(GetRestaurantsResponse getRestaurantsResponse, long elapsedNanos) {
+    if (payloadLogSampler.shouldLogPayload(elapsedNanos)) {
+      log.info("getRestaurants returned {} restaurants in {}us: {}",
+          getRestaurantsResponse.getRestaurants().size(),
+          TimeUnit.NANOSECONDS.toMicros(elapsedNanos), getRestaurantsResponse.getRestaurants());
+    } else {
+      log.debug("getRestaurants returned {} restaurants in {}us",
+          getRestaurantsResponse.getRestaurants().size(),
+          TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+  }
+
+  private void streamRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      String acceptEncoding, HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    OutputStream body = new CompressingResponseStream(response,
+        ContentCodings.negotiate(acceptEncoding), compressionThresholdInBytes);
+    RestaurantsJsonWriter restaurantsJsonWriter = new RestaurantsJsonWriter(objectMapper, body);
+    restaurantService.findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.now(),
+        restaurantsJsonWriter);
+    // Not closed on failure, so a response still buffered is never sent as a complete list.
+    restaurantsJsonWriter.close();
+  }
+
+  /**
+   * Answers with the given restaurants, or with a 304 if the client already has them.
+   * Lists rarely change within a cell and serving radius, so they may be reused for a short while
+   * by clients and shared proxies, which key them by the full URL.
+   */
+  static ResponseEntity<GetRestaurantsResponse> toCacheableResponse(
+      GetRestaurantsResponse getRestaurantsResponse, String ifNoneMatch, long maxAgeInSeconds) {
+    String etag = RestaurantsEtag.of(getRestaurantsResponse);
+    CacheControl cacheControl =
+        CacheControl.maxAge(maxAgeInSeconds, TimeUnit.SECONDS).cachePublic();
+    if (RestaurantsEtag.matches(ifNoneMatch, etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(etag)
+          .cacheControl(cacheControl)
+          .build();
+    }
+    return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(getRestaurantsResponse);
   }
 }
 
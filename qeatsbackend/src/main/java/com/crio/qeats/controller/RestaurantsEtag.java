@@ -0,0 +1,83 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.util.List;
+
+/**
+ * Weak ETag of a restaurant list, hashed from the restaurants themselves rather than from their
+ * JSON, so a request revalidating an unchanged list is answered before anything is serialized.
+ * Weak, since the same list may be sent as different bytes, compressed or not.
+ */
+final class RestaurantsEtag {
+
+  private RestaurantsEtag() { /* static helpers */ }
+
+  static String of(GetRestaurantsResponse getRestaurantsResponse) {
+    List<Restaurant> restaurants = getRestaurantsResponse.getRestaurants();
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    putString(hasher, getRestaurantsResponse.getNextCursor());
+    hasher.putInt(restaurants.size());
+    for (Restaurant restaurant : restaurants) {
+      putString(hasher, restaurant.getRestaurantId());
+      putString(hasher, restaurant.getName());
+      putString(hasher, restaurant.getCity());
+      putString(hasher, restaurant.getImageUrl());
+      putDouble(hasher, restaurant.getLatitude());
+      putDouble(hasher, restaurant.getLongitude());
+      putString(hasher, restaurant.getOpensAt());
+      putString(hasher, restaurant.getClosesAt());
+      List<String> attributes = restaurant.getAttributes();
+      hasher.putInt(attributes == null ? -1 : attributes.size());
+      if (attributes != null) {
+        attributes.forEach(attribute -> putString(hasher, attribute));
+      }
+      putDouble(hasher, restaurant.getDistanceKm());
+    }
+    return "W/\"" + hasher.hash() + "\"";
+  }
+
+  /**
+   * Tells whether an If-None-Match header names the given ETag, using the weak comparison.
+   * @param ifNoneMatch header value, a comma separated list of ETags or *, may be null
+   */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    String opaqueTag = stripWeakness(etag);
+    for (String tag : ifNoneMatch.split(",")) {
+      String trimmedTag = tag.trim();
+      if (trimmedTag.equals("*") || stripWeakness(trimmedTag).equals(opaqueTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String stripWeakness(String etag) {
+    return etag.startsWith("W/") ? etag.substring(2) : etag;
+  }
+
+  // Length prefixed, so that adjacent fields cannot run into each other.
+  private static void putString(Hasher hasher, String value) {
+    if (value == null) {
+      hasher.putInt(-1);
+      return;
+    }
+    hasher.putInt(value.length()).putUnencodedChars(value);
+  }
+
+  private static void putDouble(Hasher hasher, Double value) {
+    hasher.putDouble(value == null ? Double.NaN : value);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import com.crio.qeats.dto.Restaurant;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes a GetRestaurantsResponse one restaurant at a time, as the restaurants are found, so the
+ * response is never held as a list.
+ * Each restaurant is written by the ObjectMapper, so the JSON is the one it writes for
+ * GetRestaurantsResponse. It does not flush after each one, the output decides when to send.
+ */
+final class RestaurantsJsonWriter implements Consumer<Restaurant>, AutoCloseable {
+
+  private final JsonGenerator generator;
+  private final ObjectWriter restaurantWriter;
+
+  RestaurantsJsonWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+    generator = objectMapper.getFactory().createGenerator(out);
+    restaurantWriter = objectMapper.writerFor(Restaurant.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    generator.writeStartObject();
+    generator.writeArrayFieldStart("restaurants");
+  }
+
+  @Override
+  public void accept(Restaurant restaurant) {
+    try {
+      restaurantWriter.writeValue(generator, restaurant);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Ends the response and closes the generator along with its output.
+   */
+  @Override
+  public void close() throws IOException {
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.close();
+  }
+}
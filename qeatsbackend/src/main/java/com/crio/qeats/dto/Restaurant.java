@@ -9,6 +9,7 @@ package com.crio.qeats.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -31,5 +32,8 @@ public class Restaurant {
   private String opensAt;
   private String closesAt;
   private List<String> attributes = new ArrayList<>();
+  // From the requested location, for the restaurants found around one.
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Double distanceKm;
 }
 
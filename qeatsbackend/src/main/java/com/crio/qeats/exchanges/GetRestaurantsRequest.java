@@ -6,6 +6,9 @@
 
 package com.crio.qeats.exchanges;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -26,10 +29,22 @@ public class GetRestaurantsRequest {
   @NotNull
   private Double longitude;
   private String searchFor = "";
+  // Pages the restaurants around the location, nearest first, when set.
+  @Min(1)
+  @Max(500)
+  private Integer limit;
+  // nextCursor of the previous page, to get the page following it.
+  private String cursor;
   
   public GetRestaurantsRequest(Double lat, Double longt) {
     this.latitude = lat;
     this.longitude = longt;
   }
+
+  @JsonIgnore
+  @AssertTrue(message = "cursor is not one returned as nextCursor")
+  public boolean isCursorValid() {
+    return cursor == null || RestaurantsCursor.isValid(cursor);
+  }
 }
 
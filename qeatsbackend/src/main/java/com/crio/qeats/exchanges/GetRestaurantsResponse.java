@@ -7,6 +7,7 @@
 package com.crio.qeats.exchanges;
 
 import com.crio.qeats.dto.Restaurant;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
@@ -19,4 +20,11 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class GetRestaurantsResponse {
   List<Restaurant> restaurants;
+  // Cursor of the next page, if the restaurants were paged and more of them follow.
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  String nextCursor;
+
+  public GetRestaurantsResponse(List<Restaurant> restaurants) {
+    this.restaurants = restaurants;
+  }
 }
@@ -0,0 +1,132 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import com.crio.qeats.dto.Restaurant;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Position in the restaurants around a location, ordered by distance then by id: the last
+ * restaurant of a page, which the next page starts after.
+ * Positions are values rather than offsets, so restaurants opening or closing between two pages
+ * do not shift the following ones into a page already served, nor out of the next one.
+ * A cursor is only good for the location of its page, which it carries a hash of, as positions
+ * are distances from that location. It outlives a change of serving radius: the following pages
+ * then simply end at the new radius.
+ * Clients get it as an opaque URL-safe string, which must be sent back unchanged.
+ */
+public final class RestaurantsCursor {
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+  private static final char SEPARATOR = ':';
+
+  private final int location;
+  private final double distanceKm;
+  private final String restaurantId;
+
+  /**
+   * Position of a restaurant in a page.
+   * @param location hash of the location of the page, see {@link #locationOf}
+   */
+  public RestaurantsCursor(int location, double distanceKm, String restaurantId) {
+    this.location = location;
+    this.distanceKm = distanceKm;
+    this.restaurantId = nullToEmpty(restaurantId);
+  }
+
+  /**
+   * Returns the cursor of the page following the given restaurant.
+   * @param location hash of the location of the page, see {@link #locationOf}
+   */
+  public static RestaurantsCursor after(int location, Restaurant restaurant) {
+    return new RestaurantsCursor(location, restaurant.getDistanceKm(),
+        restaurant.getRestaurantId());
+  }
+
+  /**
+   * Hashes the location the restaurants of a page are found around.
+   */
+  public static int locationOf(double latitude, double longitude) {
+    return Arrays.hashCode(new double[] {latitude, longitude});
+  }
+
+  /**
+   * Reads a cursor written by {@link #encode()}.
+   * @throws IllegalArgumentException if the cursor was not written by {@link #encode()}
+   */
+  public static RestaurantsCursor parse(String cursor) {
+    String position = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+    int locationSeparator = position.indexOf(SEPARATOR);
+    int separator = position.indexOf(SEPARATOR, locationSeparator + 1);
+    if (locationSeparator <= 0 || separator <= locationSeparator + 1) {
+      throw new IllegalArgumentException("malformed restaurants cursor " + cursor);
+    }
+    try {
+      int location = Integer.parseUnsignedInt(position.substring(0, locationSeparator), 16);
+      // The exact bits of the distance, so the position does not move through rounding.
+      double distanceKm = Double.longBitsToDouble(
+          Long.parseUnsignedLong(position.substring(locationSeparator + 1, separator), 16));
+      if (Double.isNaN(distanceKm)) {
+        throw new IllegalArgumentException("malformed restaurants cursor " + cursor);
+      }
+      return new RestaurantsCursor(location, distanceKm, position.substring(separator + 1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("malformed restaurants cursor " + cursor, e);
+    }
+  }
+
+  public static boolean isValid(String cursor) {
+    try {
+      parse(cursor);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  public String encode() {
+    String position = Integer.toHexString(location) + SEPARATOR
+        + Long.toHexString(Double.doubleToLongBits(distanceKm)) + SEPARATOR + restaurantId;
+    return ENCODER.encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Tells whether the given restaurant comes after this position.
+   * @param restaurant restaurant with its distance set
+   */
+  public boolean precedes(Restaurant restaurant) {
+    int byDistance = Double.compare(distanceKm, restaurant.getDistanceKm());
+    if (byDistance != 0) {
+      return byDistance < 0;
+    }
+    return restaurantId.compareTo(nullToEmpty(restaurant.getRestaurantId())) < 0;
+  }
+
+  /**
+   * Tells whether this cursor comes from a page around the given location.
+   * @param location hash of the location, see {@link #locationOf}
+   */
+  public boolean isFor(int location) {
+    return this.location == location;
+  }
+
+  public double getDistanceKm() {
+    return distanceKm;
+  }
+
+  public String getRestaurantId() {
+    return restaurantId;
+  }
+
+  private static String nullToEmpty(String value) {
+    return value == null ? "" : value;
+  }
+}
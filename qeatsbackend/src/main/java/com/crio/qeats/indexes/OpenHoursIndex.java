@@ -0,0 +1,69 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.indexes;
+
+import com.crio.qeats.utils.OpeningHours;
+
+import java.time.LocalTime;
+import java.util.BitSet;
+
+/**
+ * Open restaurants per 15 minute slot of the day, as bitsets over restaurant ordinals.
+ * For each slot the index keeps the restaurants open during the whole slot, and the restaurants
+ * that open or close inside it. Only the latter are checked against the exact time, so "open now"
+ * is mostly a bitwise AND with the geo candidates.
+ */
+public final class OpenHoursIndex {
+
+  public static final int MINUTES_PER_SLOT = 15;
+  public static final int SLOTS = OpeningHours.MINUTES_PER_DAY / MINUTES_PER_SLOT;
+
+  private final OpeningHours[] openingHours;
+  private final BitSet[] openThroughoutSlot = new BitSet[SLOTS];
+  private final BitSet[] openDuringPartOfSlot = new BitSet[SLOTS];
+
+  /**
+   * Builds the index.
+   * @param openingHours opening hours of the restaurant with ordinal i at index i
+   */
+  public OpenHoursIndex(OpeningHours[] openingHours) {
+    this.openingHours = openingHours;
+    for (int slot = 0; slot < SLOTS; slot++) {
+      int fromMinute = slot * MINUTES_PER_SLOT;
+      int toMinute = fromMinute + MINUTES_PER_SLOT;
+      BitSet throughout = new BitSet(openingHours.length);
+      BitSet partly = new BitSet(openingHours.length);
+      for (int i = 0; i < openingHours.length; i++) {
+        if (openingHours[i].isOpenThroughout(fromMinute, toMinute)) {
+          throughout.set(i);
+        } else if (openingHours[i].isOpenDuring(fromMinute, toMinute)) {
+          partly.set(i);
+        }
+      }
+      openThroughoutSlot[slot] = throughout;
+      openDuringPartOfSlot[slot] = partly;
+    }
+  }
+
+  /**
+   * Clears the candidates that are not open at the given time.
+   * @param candidates restaurant ordinals, updated in place
+   * @param time current time
+   */
+  public void retainOpenAt(BitSet candidates, LocalTime time) {
+    int slot = (time.getHour() * 60 + time.getMinute()) / MINUTES_PER_SLOT;
+
+    BitSet boundary = (BitSet) candidates.clone();
+    boundary.and(openDuringPartOfSlot[slot]);
+    candidates.and(openThroughoutSlot[slot]);
+    for (int i = boundary.nextSetBit(0); i >= 0; i = boundary.nextSetBit(i + 1)) {
+      if (openingHours[i].isOpenAt(time)) {
+        candidates.set(i);
+      }
+    }
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.indexes;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.MenuRepository;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.repositoryservices.RestaurantSearchBackend;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory trigram index over restaurant names, cuisines, item names and item attributes.
+ * - Built from the restaurants and menus collections at startup and re-built on a schedule.
+ * - Restaurants and menus saved or deleted by id through Spring Data are applied to the index as
+ *   they happen; any other delete makes the next lookup re-build it.
+ * - Matches are the same as the regex queries of {@link RestaurantRepository} and
+ *   {@link MenuRepository}, with the search string taken literally, and keep collection order.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = RestaurantSearchBackend.BACKEND_PROPERTY, havingValue = "ngram",
+    matchIfMissing = true)
+public class RestaurantSearchIndex implements RestaurantSearchBackend {
+
+  @Autowired
+  private RestaurantRepository restaurantRepository;
+
+  @Autowired
+  private MenuRepository menuRepository;
+
+  @Value("${qeats.index.warm-on-startup:true}")
+  private boolean warmOnStartup;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // Guarded by lock. Null until built, and after a change that could not be applied in place.
+  private State state;
+
+  // Guarded by lock. Changes to replay on the state being re-built, null when not re-building.
+  private List<Consumer<State>> pendingChanges;
+  private boolean pendingInvalidation;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    if (warmOnStartup) {
+      refresh();
+    }
+  }
+
+  /**
+   * Re-reads the restaurants and menus collections and swaps in a freshly built index.
+   * Lookups running concurrently keep using the previous index.
+   */
+  @Scheduled(fixedDelayString = "${qeats.index.refresh-interval-ms:300000}",
+      initialDelayString = "${qeats.index.refresh-interval-ms:300000}")
+  public synchronized void refresh() {
+    long startTimeInMillis = System.currentTimeMillis();
+    lock.writeLock().lock();
+    try {
+      pendingChanges = new ArrayList<>();
+      pendingInvalidation = false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    State freshState = new State();
+    menuRepository.findAll().forEach(freshState::putMenu);
+    restaurantRepository.findAll().forEach(freshState::putRestaurant);
+
+    lock.writeLock().lock();
+    try {
+      pendingChanges.forEach(change -> change.accept(freshState));
+      state = pendingInvalidation ? null : freshState;
+      pendingChanges = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.info("search index built with {} restaurants in {}ms", freshState.restaurants.size(),
+        System.currentTimeMillis() - startTimeInMillis);
+  }
+
+  @EventListener
+  public void onAfterSave(AfterSaveEvent<?> event) {
+    Object source = event.getSource();
+    if (source instanceof RestaurantEntity) {
+      apply(current -> current.putRestaurant((RestaurantEntity) source));
+    } else if (source instanceof MenuEntity) {
+      apply(current -> current.putMenu((MenuEntity) source));
+    }
+  }
+
+  @EventListener
+  public void onAfterDelete(AfterDeleteEvent<?> event) {
+    boolean isRestaurant = RestaurantEntity.class.equals(event.getType());
+    if (!isRestaurant && !MenuEntity.class.equals(event.getType())) {
+      return;
+    }
+
+    Object deletedId = event.getSource().get("_id");
+    if (!(deletedId instanceof String || deletedId instanceof ObjectId)) {
+      invalidate();
+    } else if (isRestaurant) {
+      apply(current -> current.removeRestaurant(deletedId.toString()));
+    } else {
+      apply(current -> current.removeMenu(deletedId.toString()));
+    }
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByName(String searchString) {
+    return read(current -> current.toRestaurants(current.names.findContaining(searchString)));
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByAttributes(String searchString) {
+    return read(current -> current.toRestaurants(
+        current.attributes.getOrDefault(searchString, new BitSet())));
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByItemName(String searchString) {
+    return read(current -> {
+      BitSet exactMatches = current.itemNames.findEqualTo(searchString);
+      BitSet partialMatches = current.itemNames.findContaining(searchString);
+      partialMatches.andNot(exactMatches);
+
+      List<RestaurantEntity> restaurants = current.toRestaurants(exactMatches);
+      restaurants.addAll(current.toRestaurants(partialMatches));
+      return restaurants;
+    });
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByItemAttributes(String searchString) {
+    return read(current ->
+        current.toRestaurants(current.itemAttributes.findContaining(searchString)));
+  }
+
+  private <T> T read(Function<State, T> query) {
+    while (true) {
+      lock.readLock().lock();
+      try {
+        if (state != null) {
+          return query.apply(state);
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+      refreshIfMissing();
+    }
+  }
+
+  private synchronized void refreshIfMissing() {
+    lock.readLock().lock();
+    try {
+      if (state != null) {
+        return;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    refresh();
+  }
+
+  private void apply(Consumer<State> change) {
+    lock.writeLock().lock();
+    try {
+      if (state != null) {
+        change.accept(state);
+      }
+      if (pendingChanges != null) {
+        pendingChanges.add(change);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void invalidate() {
+    lock.writeLock().lock();
+    try {
+      state = null;
+      pendingInvalidation = pendingChanges != null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Index contents. Restaurants are identified by their ordinal in the collection read, and
+   * restaurants saved afterwards get the next ordinals.
+   */
+  private static final class State {
+
+    final List<RestaurantEntity> restaurants = new ArrayList<>();
+    final Map<String, Integer> ordinalsById = new HashMap<>();
+    final Map<String, List<Integer>> ordinalsByRestaurantId = new HashMap<>();
+    final Map<String, MenuEntity> menusById = new HashMap<>();
+    final Map<String, List<MenuEntity>> menusByRestaurantId = new HashMap<>();
+
+    final TrigramIndex names = new TrigramIndex();
+    final Map<String, BitSet> attributes = new HashMap<>();
+    final TrigramIndex itemNames = new TrigramIndex();
+    final TrigramIndex itemAttributes = new TrigramIndex();
+
+    void putRestaurant(RestaurantEntity restaurantEntity) {
+      Integer ordinal = ordinalsById.get(restaurantEntity.getId());
+      if (ordinal == null) {
+        ordinal = restaurants.size();
+        restaurants.add(null);
+        if (restaurantEntity.getId() != null) {
+          ordinalsById.put(restaurantEntity.getId(), ordinal);
+        }
+      } else {
+        unlinkRestaurant(ordinal);
+      }
+
+      restaurants.set(ordinal, restaurantEntity);
+      ordinalsByRestaurantId.computeIfAbsent(restaurantEntity.getRestaurantId(),
+          key -> new ArrayList<>()).add(ordinal);
+      names.put(ordinal, Collections.singletonList(restaurantEntity.getName()));
+      for (String attribute : restaurantEntity.getAttributes()) {
+        attributes.computeIfAbsent(attribute, key -> new BitSet()).set(ordinal);
+      }
+      indexItems(ordinal);
+    }
+
+    void removeRestaurant(String id) {
+      Integer ordinal = ordinalsById.remove(id);
+      if (ordinal != null) {
+        unlinkRestaurant(ordinal);
+        restaurants.set(ordinal, null);
+        names.put(ordinal, Collections.emptyList());
+        itemNames.put(ordinal, Collections.emptyList());
+        itemAttributes.put(ordinal, Collections.emptyList());
+      }
+    }
+
+    void putMenu(MenuEntity menuEntity) {
+      if (menuEntity.getId() != null) {
+        removeMenu(menuEntity.getId());
+        menusById.put(menuEntity.getId(), menuEntity);
+      }
+      menusByRestaurantId.computeIfAbsent(menuEntity.getRestaurantId(),
+          key -> new ArrayList<>()).add(menuEntity);
+      ordinalsByRestaurantId.getOrDefault(menuEntity.getRestaurantId(), Collections.emptyList())
+          .forEach(this::indexItems);
+    }
+
+    void removeMenu(String id) {
+      MenuEntity menuEntity = menusById.remove(id);
+      if (menuEntity != null) {
+        menusByRestaurantId.get(menuEntity.getRestaurantId()).remove(menuEntity);
+        ordinalsByRestaurantId.getOrDefault(menuEntity.getRestaurantId(),
+            Collections.emptyList()).forEach(this::indexItems);
+      }
+    }
+
+    List<RestaurantEntity> toRestaurants(BitSet ordinals) {
+      List<RestaurantEntity> matches = new ArrayList<>(ordinals.cardinality());
+      for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+        matches.add(restaurants.get(i));
+      }
+      return matches;
+    }
+
+    private void unlinkRestaurant(int ordinal) {
+      RestaurantEntity previous = restaurants.get(ordinal);
+      ordinalsByRestaurantId.get(previous.getRestaurantId()).remove((Integer) ordinal);
+      for (String attribute : previous.getAttributes()) {
+        attributes.get(attribute).clear(ordinal);
+      }
+    }
+
+    private void indexItems(int ordinal) {
+      List<String> itemNameValues = new ArrayList<>();
+      List<String> itemAttributeValues = new ArrayList<>();
+      for (MenuEntity menuEntity : menusByRestaurantId.getOrDefault(
+          restaurants.get(ordinal).getRestaurantId(), Collections.emptyList())) {
+        for (Item item : menuEntity.getItems()) {
+          itemNameValues.add(item.getName());
+          if (item.getAttributes() != null) {
+            itemAttributeValues.addAll(item.getAttributes());
+          }
+        }
+      }
+      itemNames.put(ordinal, itemNameValues);
+      itemAttributes.put(ordinal, itemAttributeValues);
+    }
+  }
+}
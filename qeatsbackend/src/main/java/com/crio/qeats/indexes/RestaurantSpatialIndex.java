@@ -0,0 +1,202 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.indexes;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.repositoryservices.NearbyRestaurantsFinder;
+import com.crio.qeats.utils.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory uniform lat/long grid over all restaurants.
+ * - The whole restaurants collection is loaded once at startup and re-loaded on a schedule, so
+ *   writes show up on the next load only, see {@link #getFreshAsOfMillis()}.
+ * - A nearby lookup only visits the grid cells overlapping the bounding box of the serving
+ *   radius, and runs the GeoUtils batch distance kernel on the restaurants in those cells only.
+ * - Results keep the order in which the restaurants were read from the collection.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = NearbyRestaurantsFinder.BACKEND_PROPERTY, havingValue = "grid",
+    matchIfMissing = true)
+public class RestaurantSpatialIndex implements NearbyRestaurantsFinder {
+
+  // 0.05 degrees is ~5.5km of latitude, so a 5km serving radius touches a handful of cells.
+  static final double CELL_SIZE_IN_DEGREES = 0.05;
+
+  static final double KMS_PER_DEGREE = Math.PI * GeoUtils.EARTH_RADIUS_IN_KMS / 180;
+
+  private static final int ROWS = (int) Math.ceil(180 / CELL_SIZE_IN_DEGREES);
+  private static final int COLUMNS = (int) Math.ceil(360 / CELL_SIZE_IN_DEGREES);
+
+  @Autowired
+  private RestaurantRepository repository;
+
+  @Value("${qeats.index.warm-on-startup:true}")
+  private boolean warmOnStartup;
+
+  private volatile Snapshot snapshot;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    if (warmOnStartup) {
+      refresh();
+    }
+  }
+
+  /**
+   * Re-reads the restaurants collection and atomically swaps in a freshly built grid.
+   * Lookups running concurrently keep using the previous grid.
+   */
+  @Scheduled(fixedDelayString = "${qeats.index.refresh-interval-ms:300000}",
+      initialDelayString = "${qeats.index.refresh-interval-ms:300000}")
+  public void refresh() {
+    long startTimeInMillis = System.currentTimeMillis();
+    Snapshot freshSnapshot = new Snapshot(repository.findAll(), startTimeInMillis);
+    snapshot = freshSnapshot;
+    log.info("spatial index built with {} restaurants in {} cells in {}ms",
+        freshSnapshot.restaurants.length, freshSnapshot.cells.size(),
+        System.currentTimeMillis() - startTimeInMillis);
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsWithin(double latitude, double longitude,
+      double radiusInKms) {
+    Snapshot current = getSnapshot();
+    BitSet matches = current.findOrdinalsWithin(latitude, longitude, radiusInKms);
+
+    List<RestaurantEntity> restaurants = new ArrayList<>(matches.cardinality());
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      restaurants.add(current.restaurants[i]);
+    }
+    return restaurants;
+  }
+
+  // A lookup without a grid builds one from a read made now.
+  @Override
+  public long getFreshAsOfMillis() {
+    Snapshot current = snapshot;
+    return current == null ? Long.MAX_VALUE : current.readAtMillis;
+  }
+
+  private Snapshot getSnapshot() {
+    Snapshot current = snapshot;
+    if (current == null) {
+      synchronized (this) {
+        if (snapshot == null) {
+          refresh();
+        }
+        current = snapshot;
+      }
+    }
+    return current;
+  }
+
+  private static int rowOf(double latitude) {
+    int row = (int) Math.floor((latitude + 90) / CELL_SIZE_IN_DEGREES);
+    return Math.max(0, Math.min(ROWS - 1, row));
+  }
+
+  private static int columnOf(double longitude) {
+    return Math.floorMod((int) Math.floor((longitude + 180) / CELL_SIZE_IN_DEGREES), COLUMNS);
+  }
+
+  private static long cellKey(int row, int column) {
+    return ((long) row << 32) | column;
+  }
+
+  /**
+   * Immutable grid built from one read of the restaurants collection.
+   * Restaurants are identified by their ordinal in the collection read.
+   */
+  static final class Snapshot {
+
+    final RestaurantEntity[] restaurants;
+    final double[] latitudes;
+    final double[] longitudes;
+    final Map<Long, int[]> cells;
+    // When the collection read started.
+    final long readAtMillis;
+
+    Snapshot(List<RestaurantEntity> restaurantEntities, long readAtMillis) {
+      this.readAtMillis = readAtMillis;
+      restaurants = restaurantEntities.toArray(new RestaurantEntity[0]);
+      latitudes = new double[restaurants.length];
+      longitudes = new double[restaurants.length];
+
+      Map<Long, List<Integer>> ordinalsByCell = new HashMap<>();
+      for (int i = 0; i < restaurants.length; i++) {
+        latitudes[i] = restaurants[i].getLatitude();
+        longitudes[i] = restaurants[i].getLongitude();
+        ordinalsByCell.computeIfAbsent(cellKey(rowOf(latitudes[i]), columnOf(longitudes[i])),
+            key -> new ArrayList<>()).add(i);
+      }
+
+      cells = new HashMap<>(ordinalsByCell.size() * 2);
+      ordinalsByCell.forEach((key, ordinals) ->
+          cells.put(key, ordinals.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    BitSet findOrdinalsWithin(double latitude, double longitude, double radiusInKms) {
+      if (restaurants.length == 0) {
+        return new BitSet();
+      }
+
+      double latitudeDelta = radiusInKms / KMS_PER_DEGREE;
+      double cosLatitude = Math.cos(Math.toRadians(
+          Math.min(90, Math.abs(latitude) + latitudeDelta)));
+      double longitudeDelta = cosLatitude > 0 ? latitudeDelta / cosLatitude : 180;
+
+      int fromRow = rowOf(latitude - latitudeDelta);
+      int toRow = rowOf(latitude + latitudeDelta);
+      int columnSpan = longitudeDelta >= 180 ? COLUMNS
+          : Math.min(COLUMNS, (int) Math.ceil(2 * longitudeDelta / CELL_SIZE_IN_DEGREES) + 1);
+      int fromColumn = columnSpan == COLUMNS ? 0 : columnOf(longitude - longitudeDelta);
+
+      List<int[]> overlappingCells = new ArrayList<>();
+      int candidateCount = 0;
+      for (int row = fromRow; row <= toRow; row++) {
+        for (int offset = 0; offset < columnSpan; offset++) {
+          int[] ordinals = cells.get(cellKey(row, (fromColumn + offset) % COLUMNS));
+          if (ordinals != null) {
+            overlappingCells.add(ordinals);
+            candidateCount += ordinals.length;
+          }
+        }
+      }
+
+      int[] candidates = new int[candidateCount];
+      int position = 0;
+      for (int[] ordinals : overlappingCells) {
+        System.arraycopy(ordinals, 0, candidates, position, ordinals.length);
+        position += ordinals.length;
+      }
+      if (candidateCount >= GeoUtils.PARALLEL_THRESHOLD) {
+        return GeoUtils.findWithinRadiusInParallel(latitude, longitude, radiusInKms,
+            latitudes, longitudes, candidates);
+      }
+      return GeoUtils.findWithinRadius(latitude, longitude, radiusInKms,
+          latitudes, longitudes, candidates);
+    }
+  }
+}
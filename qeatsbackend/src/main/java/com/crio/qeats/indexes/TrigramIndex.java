@@ -0,0 +1,181 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.indexes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Case-insensitive substring index over the string values of numbered documents.
+ * - Every value is lower-cased and split into trigrams; each trigram keeps the sorted ordinals
+ *   of the documents having it in one of their values.
+ * - A query of three characters or more intersects the posting lists of its trigrams, then checks
+ *   the few remaining documents with String.contains. Shorter queries check every document.
+ * Not thread-safe: readers may share it, writers need exclusive access.
+ */
+public final class TrigramIndex {
+
+  private static final String[] NO_VALUES = new String[0];
+
+  private final Map<Long, Postings> postings = new HashMap<>();
+  private final List<String[]> valuesByOrdinal = new ArrayList<>();
+
+  /**
+   * Replaces the values of a document.
+   * @param ordinal document number, preferably assigned in increasing order
+   * @param values values of the document, null values are ignored
+   */
+  public void put(int ordinal, Collection<String> values) {
+    while (valuesByOrdinal.size() <= ordinal) {
+      valuesByOrdinal.add(NO_VALUES);
+    }
+
+    for (long trigram : trigramsOf(valuesByOrdinal.get(ordinal))) {
+      Postings trigramPostings = postings.get(trigram);
+      trigramPostings.remove(ordinal);
+      if (trigramPostings.size == 0) {
+        postings.remove(trigram);
+      }
+    }
+
+    String[] lowerCaseValues = values.stream()
+        .filter(value -> value != null)
+        .map(TrigramIndex::lowerCase)
+        .toArray(String[]::new);
+    valuesByOrdinal.set(ordinal, lowerCaseValues);
+    for (long trigram : trigramsOf(lowerCaseValues)) {
+      postings.computeIfAbsent(trigram, key -> new Postings()).add(ordinal);
+    }
+  }
+
+  /**
+   * Documents having a value which contains the query, ignoring case.
+   */
+  public BitSet findContaining(String query) {
+    String lowerCaseQuery = lowerCase(query);
+    BitSet matches = new BitSet();
+    for (int ordinal : findCandidates(lowerCaseQuery)) {
+      for (String value : valuesByOrdinal.get(ordinal)) {
+        if (value.contains(lowerCaseQuery)) {
+          matches.set(ordinal);
+          break;
+        }
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Documents having a value equal to the query, ignoring case.
+   */
+  public BitSet findEqualTo(String query) {
+    String lowerCaseQuery = lowerCase(query);
+    BitSet matches = new BitSet();
+    for (int ordinal : findCandidates(lowerCaseQuery)) {
+      for (String value : valuesByOrdinal.get(ordinal)) {
+        if (value.equals(lowerCaseQuery)) {
+          matches.set(ordinal);
+          break;
+        }
+      }
+    }
+    return matches;
+  }
+
+  // Ordinals of the documents having all the trigrams of the query, in increasing order.
+  private int[] findCandidates(String lowerCaseQuery) {
+    if (lowerCaseQuery.length() < 3) {
+      int[] everyOrdinal = new int[valuesByOrdinal.size()];
+      Arrays.setAll(everyOrdinal, ordinal -> ordinal);
+      return everyOrdinal;
+    }
+
+    List<Postings> queryPostings = new ArrayList<>();
+    for (long trigram : trigramsOf(new String[] {lowerCaseQuery})) {
+      Postings trigramPostings = postings.get(trigram);
+      if (trigramPostings == null) {
+        return new int[0];
+      }
+      queryPostings.add(trigramPostings);
+    }
+    queryPostings.sort((first, second) -> Integer.compare(first.size, second.size));
+
+    Postings shortest = queryPostings.get(0);
+    int[] candidates = new int[shortest.size];
+    int candidateCount = 0;
+    for (int i = 0; i < shortest.size; i++) {
+      int ordinal = shortest.ordinals[i];
+      boolean inAll = true;
+      for (int j = 1; j < queryPostings.size() && inAll; j++) {
+        inAll = queryPostings.get(j).contains(ordinal);
+      }
+      if (inAll) {
+        candidates[candidateCount++] = ordinal;
+      }
+    }
+    return Arrays.copyOf(candidates, candidateCount);
+  }
+
+  private static Set<Long> trigramsOf(String[] lowerCaseValues) {
+    Set<Long> trigrams = new LinkedHashSet<>();
+    for (String value : lowerCaseValues) {
+      for (int i = 0; i + 3 <= value.length(); i++) {
+        trigrams.add(((long) value.charAt(i) << 32)
+            | ((long) value.charAt(i + 1) << 16)
+            | value.charAt(i + 2));
+      }
+    }
+    return trigrams;
+  }
+
+  private static String lowerCase(String value) {
+    return value.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Sorted growable array of document ordinals.
+   */
+  private static final class Postings {
+
+    private int[] ordinals = new int[4];
+    private int size;
+
+    void add(int ordinal) {
+      int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+      if (position >= 0) {
+        return;
+      }
+      position = -position - 1;
+      if (size == ordinals.length) {
+        ordinals = Arrays.copyOf(ordinals, size * 2);
+      }
+      System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+      ordinals[position] = ordinal;
+      size++;
+    }
+
+    void remove(int ordinal) {
+      int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+      if (position >= 0) {
+        System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+        size--;
+      }
+    }
+
+    boolean contains(int ordinal) {
+      return Arrays.binarySearch(ordinals, 0, size, ordinal) >= 0;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.log;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides which requests get their response payload logged, so that logging does not grow with
+ * traffic: one request in sample-rate, picked at random, and every request slower than
+ * slow-threshold-ms.
+ */
+@Component
+public class PayloadLogSampler {
+
+  // 1 in sample-rate requests, 0 for none.
+  @Value("${qeats.log.payload.sample-rate:100}")
+  private int sampleRate;
+
+  // 0 for none.
+  @Value("${qeats.log.payload.slow-threshold-ms:500}")
+  private long slowThresholdInMillis;
+
+  /**
+   * Tells whether to log the payload of a request.
+   * @param elapsedNanos time the request took so far
+   */
+  public boolean shouldLogPayload(long elapsedNanos) {
+    if (slowThresholdInMillis > 0
+        && elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(slowThresholdInMillis)) {
+      return true;
+    }
+    // Random rather than every Nth, so request threads do not contend on a shared counter.
+    return sampleRate > 0 && ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+  }
+}
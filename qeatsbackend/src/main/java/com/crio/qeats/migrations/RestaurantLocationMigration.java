@@ -0,0 +1,95 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.migrations;
+
+import com.crio.qeats.models.RestaurantEntity;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-shot backfill of the GeoJSON location of restaurants written before the field existed.
+ * - Creates the 2dsphere index on location if it is missing.
+ * - Only touches documents without a location, so running it again is a no-op.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "qeats.migrations.restaurant-location.enabled",
+    havingValue = "true", matchIfMissing = true)
+public class RestaurantLocationMigration {
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    migrate();
+  }
+
+  /**
+   * Runs the backfill.
+   * @return number of restaurants that were given a location
+   */
+  public int migrate() {
+    mongoTemplate.indexOps(RestaurantEntity.class).ensureIndex(
+        new GeospatialIndex("location").typed(GeoSpatialIndexType.GEO_2DSPHERE));
+
+    Query withoutLocation = Query.query(Criteria.where("location").exists(false));
+    withoutLocation.fields().include("latitude").include("longitude");
+
+    int migrated = 0;
+    int pending = 0;
+    BulkOperations bulkOperations = newBulkOperations();
+    try (CloseableIterator<Document> documents = mongoTemplate.stream(
+        withoutLocation, Document.class, mongoTemplate.getCollectionName(RestaurantEntity.class))) {
+      while (documents.hasNext()) {
+        Document document = documents.next();
+        Number latitude = (Number) document.get("latitude");
+        Number longitude = (Number) document.get("longitude");
+        if (latitude == null || longitude == null) {
+          continue;
+        }
+        bulkOperations.updateOne(Query.query(Criteria.where("_id").is(document.get("_id"))),
+            Update.update("location",
+                new GeoJsonPoint(longitude.doubleValue(), latitude.doubleValue())));
+        if (++pending == BATCH_SIZE) {
+          migrated += bulkOperations.execute().getModifiedCount();
+          bulkOperations = newBulkOperations();
+          pending = 0;
+        }
+      }
+    }
+    if (pending > 0) {
+      migrated += bulkOperations.execute().getModifiedCount();
+    }
+
+    log.info("backfilled location of {} restaurants", migrated);
+    return migrated;
+  }
+
+  private BulkOperations newBulkOperations() {
+    return mongoTemplate.bulkOps(BulkMode.UNORDERED, RestaurantEntity.class);
+  }
+}
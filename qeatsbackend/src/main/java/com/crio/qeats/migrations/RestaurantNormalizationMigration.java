@@ -0,0 +1,109 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.migrations;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.OpeningHours;
+import com.crio.qeats.utils.RestaurantNames;
+
+import java.time.format.DateTimeParseException;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-shot backfill of the display name, search key and opening hours of restaurants written
+ * before RestaurantNormalizationListener derived them.
+ * - Only touches documents without a search key, so running it again is a no-op.
+ * - Restaurants whose hours do not parse keep parsing them on read, and fail as they did.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "qeats.migrations.restaurant-normalization.enabled",
+    havingValue = "true", matchIfMissing = true)
+public class RestaurantNormalizationMigration {
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    migrate();
+  }
+
+  /**
+   * Runs the backfill.
+   * @return number of restaurants that were normalized
+   */
+  public int migrate() {
+    Query notNormalized = Query.query(Criteria.where("searchKey").exists(false));
+    notNormalized.fields().include("name").include("opensAt").include("closesAt");
+
+    int migrated = 0;
+    int pending = 0;
+    BulkOperations bulkOperations = newBulkOperations();
+    try (CloseableIterator<Document> documents = mongoTemplate.stream(notNormalized,
+        Document.class, mongoTemplate.getCollectionName(RestaurantEntity.class))) {
+      while (documents.hasNext()) {
+        Document document = documents.next();
+        String name = document.getString("name");
+        if (name == null) {
+          continue;
+        }
+        bulkOperations.updateOne(Query.query(Criteria.where("_id").is(document.get("_id"))),
+            normalizationOf(name, document.getString("opensAt"),
+                document.getString("closesAt")));
+        if (++pending == BATCH_SIZE) {
+          migrated += bulkOperations.execute().getModifiedCount();
+          bulkOperations = newBulkOperations();
+          pending = 0;
+        }
+      }
+    }
+    if (pending > 0) {
+      migrated += bulkOperations.execute().getModifiedCount();
+    }
+
+    log.info("normalized {} restaurants", migrated);
+    return migrated;
+  }
+
+  // The fields RestaurantEntity.normalize() derives.
+  private static Update normalizationOf(String name, String opensAt, String closesAt) {
+    Update update = Update.update("displayName", RestaurantNames.displayNameOf(name))
+        .set("searchKey", RestaurantNames.searchKeyOf(name));
+    if (opensAt != null && closesAt != null) {
+      try {
+        OpeningHours openingHours = OpeningHours.parse(opensAt, closesAt);
+        update.set("opensAtMinute", openingHours.getOpensAtMinute())
+            .set("closesAtMinute", openingHours.getClosesAtMinute());
+      } catch (DateTimeParseException e) {
+        log.debug("not backfilling unparseable hours {} - {}", opensAt, closesAt);
+      }
+    }
+    return update;
+  }
+
+  private BulkOperations newBulkOperations() {
+    return mongoTemplate.bulkOps(BulkMode.UNORDERED, RestaurantEntity.class);
+  }
+}
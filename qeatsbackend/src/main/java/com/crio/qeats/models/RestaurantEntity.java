@@ -6,13 +6,25 @@
 
 package com.crio.qeats.models;
 
+import com.crio.qeats.utils.OpeningHours;
+import com.crio.qeats.utils.RestaurantNames;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.io.Serializable;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import javax.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 // Java class that maps to Mongo collection.
@@ -31,6 +43,28 @@ public class RestaurantEntity implements Serializable {
   @NotNull
   private String name;
 
+  // Derived from name and the opening hours by normalize(), stored along with them so reads do
+  // no string processing; derived on first use for restaurants not yet normalized.
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private String displayName;
+
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private String searchKey;
+
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private Integer opensAtMinute;
+
+  @JsonIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private Integer closesAtMinute;
+
   @NotNull
   private String city;
 
@@ -43,6 +77,11 @@ public class RestaurantEntity implements Serializable {
   @NotNull
   private Double longitude;
 
+  // GeoJSON copy of latitude/longitude, kept in sync by RestaurantLocationListener.
+  @JsonIgnore
+  @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+  private GeoJsonPoint location;
+
   @NotNull
   private String opensAt;
 
@@ -52,5 +91,86 @@ public class RestaurantEntity implements Serializable {
   @NotNull
   private List<String> attributes = new ArrayList<>();
 
+  // Parsed from opensAt/closesAt on first use, never stored.
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private transient OpeningHours openingHours;
+
+  public void setName(String name) {
+    this.name = name;
+    this.displayName = null;
+    this.searchKey = null;
+  }
+
+  public void setOpensAt(String opensAt) {
+    this.opensAt = opensAt;
+    this.opensAtMinute = null;
+    this.openingHours = null;
+  }
+
+  public void setClosesAt(String closesAt) {
+    this.closesAt = closesAt;
+    this.closesAtMinute = null;
+    this.openingHours = null;
+  }
+
+  /**
+   * Name shown to clients, see {@link RestaurantNames#displayNameOf}.
+   */
+  public String getDisplayName() {
+    if (displayName == null) {
+      displayName = RestaurantNames.displayNameOf(name);
+    }
+    return displayName;
+  }
+
+  /**
+   * Name as searches match it, see {@link RestaurantNames#searchKeyOf}.
+   */
+  public String getSearchKey() {
+    if (searchKey == null) {
+      searchKey = RestaurantNames.searchKeyOf(name);
+    }
+    return searchKey;
+  }
+
+  /**
+   * Opening hours, as stored or parsed from opensAt and closesAt.
+   */
+  @JsonIgnore
+  public OpeningHours getOpeningHours() {
+    OpeningHours parsed = openingHours;
+    if (parsed == null) {
+      parsed = opensAtMinute != null && closesAtMinute != null
+          ? new OpeningHours(opensAtMinute, closesAtMinute)
+          : OpeningHours.parse(opensAt, closesAt);
+      openingHours = parsed;
+    }
+    return parsed;
+  }
+
+  /**
+   * Derives the stored display name, search key and opening hours from the raw fields.
+   */
+  public void normalize() {
+    displayName = RestaurantNames.displayNameOf(name);
+    searchKey = RestaurantNames.searchKeyOf(name);
+    opensAtMinute = null;
+    closesAtMinute = null;
+    openingHours = null;
+    if (opensAt != null && closesAt != null) {
+      try {
+        OpeningHours parsed = OpeningHours.parse(opensAt, closesAt);
+        opensAtMinute = parsed.getOpensAtMinute();
+        closesAtMinute = parsed.getClosesAtMinute();
+        openingHours = parsed;
+      } catch (DateTimeParseException e) {
+        // Stored as is; reading the hours fails as it always did.
+      }
+    }
+  }
+
 }
 
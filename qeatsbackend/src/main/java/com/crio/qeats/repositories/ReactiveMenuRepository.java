@@ -0,0 +1,29 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositories;
+
+import com.crio.qeats.models.MenuEntity;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of MenuRepository, used by the reactive stack.
+public interface ReactiveMenuRepository extends ReactiveMongoRepository<MenuEntity, String> {
+
+  Mono<MenuEntity> findMenuByRestaurantId(String restaurantId);
+
+  @Query("{'items': {$elemMatch : {'name': {$regex: '^?0$', $options: 'i'}}}}")
+  Flux<MenuEntity> findMenusByItemsNameExact(String itemName);
+
+  @Query("{'items': {$elemMatch : {'name': {$regex: '.*?0.*', $options: 'i'}}}}")
+  Flux<MenuEntity> findMenusByItemsNameLike(String itemName);
+
+  @Query("{'items.attributes': {$regex: '.*?0.*', $options: 'i'}}")
+  Flux<MenuEntity> findMenusByItemsAttributesLike(String itemAttribute);
+
+}
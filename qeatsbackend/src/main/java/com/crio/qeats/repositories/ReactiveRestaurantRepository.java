@@ -0,0 +1,35 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositories;
+
+import com.crio.qeats.models.RestaurantEntity;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+// Non-blocking counterpart of RestaurantRepository, used by the reactive stack.
+public interface ReactiveRestaurantRepository
+    extends ReactiveMongoRepository<RestaurantEntity, String> {
+  public Flux<RestaurantEntity> findByRestaurantIdIn(List<String> nameList);
+
+  @Query("{'name': {$regex: '^?0$', $options: 'i'}}")
+  public Flux<RestaurantEntity> findByNameLike(String name);
+
+  @Query("{'name': {$regex: '.*?0.*', $options: 'i'}}")
+  public Flux<RestaurantEntity> findByNameExact(String name);
+
+  public Flux<RestaurantEntity> findByAttributesIn(List<String> attributes);
+
+  // Served by the 2dsphere index on location; results come back nearest first.
+  @Query("{'location': {$nearSphere: {$geometry: {type: 'Point', coordinates: [?1, ?0]},"
+      + " $maxDistance: ?2}}}")
+  public Flux<RestaurantEntity> findByLocationNearSphere(double latitude, double longitude,
+      double maxDistanceInMeters);
+}
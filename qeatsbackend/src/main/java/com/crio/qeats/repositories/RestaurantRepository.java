@@ -26,5 +26,16 @@ public interface RestaurantRepository extends MongoRepository<RestaurantEntity,
   public List<RestaurantEntity> findByNameExact(String name);
 
   public List<RestaurantEntity> findByAttributesIn(List<String> attributes);
+
+  // Served by the 2dsphere index on location; results come back nearest first.
+  @Query("{'location': {$nearSphere: {$geometry: {type: 'Point', coordinates: [?1, ?0]},"
+      + " $maxDistance: ?2}}}")
+  public List<RestaurantEntity> findByLocationNearSphere(double latitude, double longitude,
+      double maxDistanceInMeters);
+
+  // Does not need the 2dsphere index, nor restaurants.location to be backfilled.
+  @Query("{'latitude': {$gte: ?0, $lte: ?2}, 'longitude': {$gte: ?1, $lte: ?3}}")
+  public List<RestaurantEntity> findByCoordinatesWithin(double minLatitude, double minLongitude,
+      double maxLatitude, double maxLongitude);
 }
 
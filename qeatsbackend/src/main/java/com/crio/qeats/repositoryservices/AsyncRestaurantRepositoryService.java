@@ -0,0 +1,58 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Restaurant;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link RestaurantRepositoryService}.
+ * The returned futures complete with the same restaurants as the blocking methods. Cancelling a
+ * future gives up the query, and interrupts it if it already started.
+ */
+public interface AsyncRestaurantRepositoryService {
+
+  /**
+   * See {@link RestaurantRepositoryService#findAllRestaurantsCloseBy}.
+   */
+  CompletableFuture<List<Restaurant>> findAllRestaurantsCloseBy(Double latitude,
+      Double longitude, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#findRestaurantsByName}.
+   */
+  CompletableFuture<List<Restaurant>> findRestaurantsByName(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#findRestaurantsByAttributes}.
+   */
+  CompletableFuture<List<Restaurant>> findRestaurantsByAttributes(Double latitude,
+      Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#findRestaurantsByItemName}.
+   */
+  CompletableFuture<List<Restaurant>> findRestaurantsByItemName(Double latitude,
+      Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#findRestaurantsByItemAttributes}.
+   */
+  CompletableFuture<List<Restaurant>> findRestaurantsByItemAttributes(Double latitude,
+      Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#findRestaurantsBySearchQuery}.
+   */
+  CompletableFuture<List<Restaurant>> findRestaurantsBySearchQuery(Double latitude,
+      Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
+}
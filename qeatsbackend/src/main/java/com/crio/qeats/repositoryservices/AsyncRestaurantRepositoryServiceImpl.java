@@ -0,0 +1,103 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.configs.SearchExecutorConfiguration;
+import com.crio.qeats.dto.Restaurant;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the blocking {@link RestaurantRepositoryService} calls on the dedicated repository I/O
+ * pool, so request threads never wait on Mongo or Redis themselves.
+ */
+@Service
+public class AsyncRestaurantRepositoryServiceImpl implements AsyncRestaurantRepositoryService {
+
+  @Autowired
+  private RestaurantRepositoryService restaurantRepositoryService;
+
+  @Autowired
+  @Qualifier(SearchExecutorConfiguration.REPOSITORY_IO_EXECUTOR)
+  private ThreadPoolTaskExecutor repositoryIoExecutor;
+
+  @Override
+  public CompletableFuture<List<Restaurant>> findAllRestaurantsCloseBy(Double latitude,
+      Double longitude, LocalTime currentTime, Double servingRadiusInKms) {
+    return supplyAsync(() -> restaurantRepositoryService.findAllRestaurantsCloseBy(
+        latitude, longitude, currentTime, servingRadiusInKms));
+  }
+
+  @Override
+  public CompletableFuture<List<Restaurant>> findRestaurantsByName(Double latitude,
+      Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return supplyAsync(() -> restaurantRepositoryService.findRestaurantsByName(
+        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+  }
+
+  @Override
+  public CompletableFuture<List<Restaurant>> findRestaurantsByAttributes(Double latitude,
+      Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return supplyAsync(() -> restaurantRepositoryService.findRestaurantsByAttributes(
+        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+  }
+
+  @Override
+  public CompletableFuture<List<Restaurant>> findRestaurantsByItemName(Double latitude,
+      Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return supplyAsync(() -> restaurantRepositoryService.findRestaurantsByItemName(
+        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+  }
+
+  @Override
+  public CompletableFuture<List<Restaurant>> findRestaurantsByItemAttributes(Double latitude,
+      Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return supplyAsync(() -> restaurantRepositoryService.findRestaurantsByItemAttributes(
+        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+  }
+
+  @Override
+  public CompletableFuture<List<Restaurant>> findRestaurantsBySearchQuery(Double latitude,
+      Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return supplyAsync(() -> restaurantRepositoryService.findRestaurantsBySearchQuery(
+        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+  }
+
+  // Unlike CompletableFuture.supplyAsync, cancelling the returned future also cancels the task.
+  private <T> CompletableFuture<T> supplyAsync(Supplier<T> query) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Future<?> task;
+    try {
+      task = repositoryIoExecutor.submit(() -> {
+        try {
+          result.complete(query.get());
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    result.whenComplete((value, error) -> {
+      if (result.isCancelled()) {
+        task.cancel(true);
+      }
+    });
+    return result;
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.GeoUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the whole restaurants collection and runs Haversine on every document.
+ * Kept as the reference implementation for the other backends.
+ */
+@Component
+@ConditionalOnProperty(name = NearbyRestaurantsFinder.BACKEND_PROPERTY, havingValue = "scan")
+public class FullScanNearbyRestaurantsFinder implements NearbyRestaurantsFinder {
+
+  @Autowired
+  private RestaurantRepository repository;
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsWithin(double latitude, double longitude,
+      double radiusInKms) {
+    return repository.findAll().stream()
+        .filter(res -> GeoUtils.findDistanceInKm(latitude, longitude,
+            res.getLatitude(), res.getLongitude()) < radiusInKms)
+        .collect(Collectors.toList());
+  }
+}
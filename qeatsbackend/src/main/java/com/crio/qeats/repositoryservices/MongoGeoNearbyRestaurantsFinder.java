@@ -0,0 +1,46 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.GeoUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lets Mongo pick the candidates through the 2dsphere index on the restaurant location, so only
+ * restaurants inside the serving radius come over the wire.
+ * Mongo measures GeoJSON distances on a sphere of radius 6378.1km while GeoUtils uses 6371km, so
+ * the query radius is padded and the candidates are re-checked with Haversine to give exactly the
+ * same answer as the other backends.
+ */
+@Component
+@ConditionalOnProperty(name = NearbyRestaurantsFinder.BACKEND_PROPERTY, havingValue = "mongo-geo")
+public class MongoGeoNearbyRestaurantsFinder implements NearbyRestaurantsFinder {
+
+  private static final double MONGO_EARTH_RADIUS_IN_KMS = 6378.1;
+
+  @Autowired
+  private RestaurantRepository repository;
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsWithin(double latitude, double longitude,
+      double radiusInKms) {
+    double maxDistanceInMeters =
+        radiusInKms * 1000 * MONGO_EARTH_RADIUS_IN_KMS / GeoUtils.EARTH_RADIUS_IN_KMS + 1;
+    return repository.findByLocationNearSphere(latitude, longitude, maxDistanceInMeters).stream()
+        .filter(res -> GeoUtils.findDistanceInKm(latitude, longitude,
+            res.getLatitude(), res.getLongitude()) < radiusInKms)
+        .collect(Collectors.toList());
+  }
+}
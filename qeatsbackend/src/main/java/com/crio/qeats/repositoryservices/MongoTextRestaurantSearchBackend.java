@@ -0,0 +1,125 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition.TextIndexDefinitionBuilder;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.stereotype.Component;
+
+/**
+ * $text queries on weighted text indexes of the restaurants and menus collections.
+ * - Restaurants are indexed on name and attributes, menus on items.name and items.attributes,
+ *   with names weighing more than attributes. Results are sorted by text score.
+ * - A text index spans all its fields, so the name lookups already find the restaurants
+ *   matching on attributes. The attribute lookups return nothing rather than paying for the
+ *   same query twice.
+ * - Matches are on whole words after stemming rather than on substrings: "briyani" finds
+ *   "Chicken Briyani" but "bri" finds nothing.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = RestaurantSearchBackend.BACKEND_PROPERTY, havingValue = "text")
+public class MongoTextRestaurantSearchBackend implements RestaurantSearchBackend {
+
+  static final float NAME_WEIGHT = 10;
+  static final float ATTRIBUTE_WEIGHT = 3;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private RestaurantRepository repository;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    ensureTextIndexes();
+  }
+
+  /**
+   * Creates the text indexes if they are missing.
+   */
+  public void ensureTextIndexes() {
+    mongoTemplate.indexOps(RestaurantEntity.class).ensureIndex(new TextIndexDefinitionBuilder()
+        .named("restaurants_text")
+        .onField("name", NAME_WEIGHT)
+        .onField("attributes", ATTRIBUTE_WEIGHT)
+        .build());
+    mongoTemplate.indexOps(MenuEntity.class).ensureIndex(new TextIndexDefinitionBuilder()
+        .named("menus_text")
+        .onField("items.name", NAME_WEIGHT)
+        .onField("items.attributes", ATTRIBUTE_WEIGHT)
+        .build());
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByName(String searchString) {
+    return findByText(searchString, RestaurantEntity.class);
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByAttributes(String searchString) {
+    return new ArrayList<>();
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByItemName(String searchString) {
+    return findRestaurantsServing(findByText(searchString, MenuEntity.class));
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByItemAttributes(String searchString) {
+    return new ArrayList<>();
+  }
+
+  private <T> List<T> findByText(String searchString, Class<T> entityClass) {
+    TextQuery query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(searchString))
+        .sortByScore();
+    try {
+      return mongoTemplate.find(query, entityClass);
+    } catch (DataAccessException e) {
+      // $text fails without a text index, e.g. after the collection was dropped and re-created.
+      log.warn("text query failed, re-creating the text indexes", e);
+      ensureTextIndexes();
+      return mongoTemplate.find(query, entityClass);
+    }
+  }
+
+  // Keeps the text score order of the menus.
+  private List<RestaurantEntity> findRestaurantsServing(List<MenuEntity> menus) {
+    Map<String, Integer> ranksByRestaurantId = new HashMap<>();
+    for (MenuEntity menuEntity : menus) {
+      ranksByRestaurantId.putIfAbsent(menuEntity.getRestaurantId(), ranksByRestaurantId.size());
+    }
+    if (ranksByRestaurantId.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    List<RestaurantEntity> restaurants = new ArrayList<>(
+        repository.findByRestaurantIdIn(new ArrayList<>(ranksByRestaurantId.keySet())));
+    restaurants.sort(Comparator.comparing(res -> ranksByRestaurantId.get(res.getRestaurantId())));
+    return restaurants;
+  }
+}
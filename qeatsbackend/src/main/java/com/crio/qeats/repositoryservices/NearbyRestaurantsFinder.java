@@ -0,0 +1,43 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.models.RestaurantEntity;
+
+import java.util.List;
+
+/**
+ * Backend used by {@link RestaurantRepositoryServiceImpl} to find the restaurants around a
+ * location on a cache miss. Picked at startup through the {@code qeats.nearby.backend} property:
+ * - grid (default): in-memory grid, see {@link com.crio.qeats.indexes.RestaurantSpatialIndex}
+ * - mongo-geo: 2dsphere query on the restaurant location, see
+ *   {@link MongoGeoNearbyRestaurantsFinder}
+ * - scan: full collection scan, see {@link FullScanNearbyRestaurantsFinder}
+ */
+public interface NearbyRestaurantsFinder {
+
+  String BACKEND_PROPERTY = "qeats.nearby.backend";
+
+  /**
+   * Get all the restaurants within the given radius, open or not.
+   * @param latitude coordinates near which we have to search for restaurants
+   * @param longitude coordinates near which we have to search for restaurants
+   * @param radiusInKms search radius
+   * @return restaurants strictly closer than radiusInKms
+   */
+  List<RestaurantEntity> findRestaurantsWithin(double latitude, double longitude,
+      double radiusInKms);
+
+  /**
+   * Writes to the restaurants collection made before this time are visible to lookups.
+   * @return time in millis, Long.MAX_VALUE for backends reading the collection on every lookup
+   */
+  default long getFreshAsOfMillis() {
+    return Long.MAX_VALUE;
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.MenuEntity;
+
+import java.time.LocalTime;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link RestaurantRepositoryService} for the reactive stack.
+ * Same arguments and results, emitted as they are found.
+ */
+public interface ReactiveRestaurantRepositoryService {
+
+  /**
+   * See {@link RestaurantRepositoryService#findAllRestaurantsCloseBy}.
+   */
+  Flux<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#findRestaurantsByName}.
+   */
+  Flux<Restaurant> findRestaurantsByName(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#findRestaurantsByAttributes}.
+   */
+  Flux<Restaurant> findRestaurantsByAttributes(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#findRestaurantsByItemName}.
+   */
+  Flux<Restaurant> findRestaurantsByItemName(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#findRestaurantsByItemAttributes}.
+   */
+  Flux<Restaurant> findRestaurantsByItemAttributes(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * See {@link RestaurantRepositoryService#getMenuByRestaurantId}.
+   * @return the menu, or empty if the restaurant has none
+   */
+  Mono<MenuEntity> getMenuByRestaurantId(String restaurantId);
+}
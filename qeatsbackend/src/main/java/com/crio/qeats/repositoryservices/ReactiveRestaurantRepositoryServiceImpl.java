@@ -0,0 +1,109 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.caches.ReactiveRestaurantCellCache;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.ReactiveMenuRepository;
+import com.crio.qeats.repositories.ReactiveRestaurantRepository;
+import com.crio.qeats.utils.GeoUtils;
+
+import java.time.LocalTime;
+import java.util.Collections;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive Mongo and Lettuce behind {@link ReactiveRestaurantRepositoryService}.
+ * Searches run the queries of {@link RegexRestaurantSearchBackend} through the reactive driver:
+ * the in-memory search backends rebuild themselves with blocking reads, which must not happen on
+ * an event-loop thread.
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveRestaurantRepositoryServiceImpl
+    implements ReactiveRestaurantRepositoryService {
+
+  @Autowired
+  private ReactiveRestaurantRepository repository;
+
+  @Autowired
+  private ReactiveMenuRepository menuRepository;
+
+  @Autowired
+  private ReactiveRestaurantCellCache restaurantCellCache;
+
+  @Override
+  public Flux<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms) {
+    return restaurantCellCache
+        .findOpenRestaurantsWithin(latitude, longitude, servingRadiusInKms, currentTime)
+        .map(RestaurantRepositoryServiceImpl::convertToRestaurant);
+  }
+
+  @Override
+  public Flux<Restaurant> findRestaurantsByName(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return closeByAndOpen(Flux.concat(repository.findByNameExact(searchString),
+        repository.findByNameLike(searchString)),
+        latitude, longitude, currentTime, servingRadiusInKms)
+        .distinct(Restaurant::getRestaurantId);
+  }
+
+  @Override
+  public Flux<Restaurant> findRestaurantsByAttributes(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return closeByAndOpen(
+        repository.findByAttributesIn(Collections.singletonList(searchString)),
+        latitude, longitude, currentTime, servingRadiusInKms);
+  }
+
+  @Override
+  public Flux<Restaurant> findRestaurantsByItemName(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return closeByAndOpen(Flux.concat(
+        findRestaurantsServing(menuRepository.findMenusByItemsNameExact(searchString)),
+        findRestaurantsServing(menuRepository.findMenusByItemsNameLike(searchString))),
+        latitude, longitude, currentTime, servingRadiusInKms)
+        .distinct(Restaurant::getRestaurantId);
+  }
+
+  @Override
+  public Flux<Restaurant> findRestaurantsByItemAttributes(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return closeByAndOpen(
+        findRestaurantsServing(menuRepository.findMenusByItemsAttributesLike(searchString)),
+        latitude, longitude, currentTime, servingRadiusInKms);
+  }
+
+  @Override
+  public Mono<MenuEntity> getMenuByRestaurantId(String restaurantId) {
+    return menuRepository.findMenuByRestaurantId(restaurantId);
+  }
+
+  private Flux<RestaurantEntity> findRestaurantsServing(Flux<MenuEntity> menus) {
+    return menus.map(MenuEntity::getRestaurantId)
+        .collectList()
+        .flatMapMany(repository::findByRestaurantIdIn);
+  }
+
+  private static Flux<Restaurant> closeByAndOpen(Flux<RestaurantEntity> restaurants,
+      Double latitude, Double longitude, LocalTime currentTime, Double servingRadiusInKms) {
+    return restaurants
+        .filter(res -> res.getOpeningHours().isOpenAt(currentTime))
+        .filter(res -> GeoUtils.findDistanceInKm(latitude, longitude,
+            res.getLatitude(), res.getLongitude()) < servingRadiusInKms)
+        .map(RestaurantRepositoryServiceImpl::convertToRestaurant);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.MenuRepository;
+import com.crio.qeats.repositories.RestaurantRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Regex queries on the restaurants and menus collections.
+ * Mongo cannot use an index for unanchored case-insensitive regexes, so every search scans both
+ * collections. Kept as the reference implementation for the other backends.
+ */
+@Component
+@ConditionalOnProperty(name = RestaurantSearchBackend.BACKEND_PROPERTY, havingValue = "regex")
+public class RegexRestaurantSearchBackend implements RestaurantSearchBackend {
+
+  @Autowired
+  private RestaurantRepository repository;
+
+  @Autowired
+  private MenuRepository menuRepository;
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByName(String searchString) {
+    List<RestaurantEntity> restaurants = new ArrayList<>(repository.findByNameExact(searchString));
+    restaurants.addAll(repository.findByNameLike(searchString));
+    return restaurants;
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByAttributes(String searchString) {
+    return repository.findByAttributesIn(Arrays.asList(searchString));
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByItemName(String searchString) {
+    List<RestaurantEntity> restaurants = new ArrayList<>(
+        findRestaurantsServing(menuRepository.findMenusByItemsNameExact(searchString)));
+    restaurants.addAll(
+        findRestaurantsServing(menuRepository.findMenusByItemsNameLike(searchString)));
+    return restaurants;
+  }
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsByItemAttributes(String searchString) {
+    return findRestaurantsServing(menuRepository.findMenusByItemsAttributesLike(searchString));
+  }
+
+  private List<RestaurantEntity> findRestaurantsServing(List<MenuEntity> menus) {
+    return repository.findByRestaurantIdIn(menus.stream()
+        .map(MenuEntity::getRestaurantId).collect(Collectors.toList()));
+  }
+}
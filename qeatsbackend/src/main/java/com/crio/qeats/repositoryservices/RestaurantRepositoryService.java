@@ -12,6 +12,7 @@ import com.crio.qeats.models.MenuEntity;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
@@ -31,6 +32,14 @@ public interface RestaurantRepositoryService {
   List<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
       LocalTime currentTime, Double servingRadiusInKms);
 
+  /**
+   * Same restaurants as {@link #findAllRestaurantsCloseBy(Double, Double, LocalTime, Double)},
+   * handed to the consumer one at a time instead of collected into a list.
+   * @param restaurantConsumer receives each open restaurant
+   */
+  void findAllRestaurantsCloseBy(Double latitude, Double longitude, LocalTime currentTime,
+      Double servingRadiusInKms, Consumer<Restaurant> restaurantConsumer);
+
 
   /**
    * Get the list of open restaurants within the specified serving radius.
@@ -68,10 +77,21 @@ public interface RestaurantRepositoryService {
   List<Restaurant> findRestaurantsByItemAttributes(Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms);
       
+  /**
+   * Get the open restaurants within the serving radius matching the search string by name,
+   * attributes, item name or item attributes, in one aggregation on Mongo.
+   *   - Ordered like {@link com.crio.qeats.services.RestaurantService#findRestaurantsBySearchQuery}.
+   *   - Each restaurant is present only once.
+   * @param searchString Query string for restaurants
+   * @return list of restaurants
+   */
+  List<Restaurant> findRestaurantsBySearchQuery(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms);
+
   /**
    * Get the menu by restaurantId.
    * @param restaurantId The id of restaurant
-   * @return menu
+   * @return menu, or null if the restaurant has none
    */
   MenuEntity getMenuByRestaurantId(String restaurantId);
 
@@ -6,9 +6,8 @@
 
 package com.crio.qeats.repositoryservices;
 
-import ch.hsr.geohash.GeoHash;
-
-import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.caches.CacheClient;
+import com.crio.qeats.caches.RestaurantCellCache;
 import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.models.MenuEntity;
 import com.crio.qeats.models.RestaurantEntity;
@@ -16,24 +15,28 @@ import com.crio.qeats.repositories.MenuRepository;
 import com.crio.qeats.repositories.RestaurantRepository;
 import com.crio.qeats.utils.GeoUtils;
 import com.crio.qeats.utils.Helpers;
-import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.inject.Provider;
 
 import lombok.extern.log4j.Log4j2;
 
+import org.bson.Document;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Service;
 
-import redis.clients.jedis.Jedis;
-
 
 @Log4j2
 @Service
@@ -52,80 +55,94 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   private MenuRepository menuRepository;
 
   @Autowired
-  private RedisConfiguration redisConfiguration;
+  private CacheClient cacheClient;
+
+  @Autowired
+  private NearbyRestaurantsFinder nearbyRestaurantsFinder;
+
+  @Autowired
+  private RestaurantCellCache restaurantCellCache;
+
+  @Autowired
+  private RestaurantSearchBackend restaurantSearchBackend;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private final Map<String, Timer> methodTimers = new ConcurrentHashMap<>();
+
+  // Latency of each method, as qeats.repository{method}.
+  private Timer timer(String method) {
+    return methodTimers.computeIfAbsent(method, name -> Timer.builder("qeats.repository")
+        .tag("method", name)
+        .register(meterRegistry));
+  }
 
   private boolean isOpenNow(LocalTime time, RestaurantEntity res) {
-    LocalTime openingTime = LocalTime.parse(res.getOpensAt());
-    LocalTime closingTime = LocalTime.parse(res.getClosesAt());
-    return time.isAfter(openingTime) && time.isBefore(closingTime);
+    return res.getOpeningHours().isOpenAt(time);
   }
 
   public List<Restaurant> findAllRestaurantsCloseBy(Double latitude,
       Double longitude, LocalTime currentTime, Double servingRadiusInKms) {
-
-    ObjectMapper objectMapper = new ObjectMapper();
     List<Restaurant> restaurants = new ArrayList<Restaurant>();
-    boolean cacheHit = false;
-    List<RestaurantEntity> resData = new ArrayList<>();
-    if (redisConfiguration.isCacheAvailable()) {
-      Jedis jedis = redisConfiguration.getJedisPool().getResource();
-      String key = GeoHash.withCharacterPrecision(latitude, longitude, 7).toBase32();
-      if (jedis.exists(key)) {
-        String restaurantsString = jedis.get(key);
-        cacheHit = true;
-        try {
-          resData = Arrays.asList(objectMapper.readValue(
-              restaurantsString, RestaurantEntity[].class));
-          log.info("returned from redis");
-        } catch (Exception e) {
-          throw new RuntimeException();
-        }
-      }
-    }
+    findAllRestaurantsCloseBy(latitude, longitude, currentTime, servingRadiusInKms,
+        restaurants::add);
+    return restaurants;
+  }
 
-    if (!cacheHit) {
-      log.info("returned from mongodb");
-      resData = repository.findAll().stream().filter(res -> isRestaurantCloseBy(
-          res, 
-          latitude, 
-          longitude, 
-          servingRadiusInKms
-      )).collect(Collectors.toList());
-      if (redisConfiguration.isCacheAvailable()) {
-        Jedis jedis = redisConfiguration.getJedisPool().getResource();
-        String key = GeoHash.withCharacterPrecision(latitude, longitude, 7).toBase32();
-        try {
-          String value = objectMapper.writeValueAsString(resData);
-          jedis.set(key, value);
-          jedis.expire(key, RedisConfiguration.REDIS_ENTRY_EXPIRY_IN_SECONDS);
-        } catch (Exception e) {
-          throw new RuntimeException();
-        }
-      }
+  @Override
+  public void findAllRestaurantsCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms, Consumer<Restaurant> restaurantConsumer) {
+    // Times the lookup only, the consumer may be writing the response.
+    Timer timer = timer("findAllRestaurantsCloseBy");
+    if (cacheClient.isAvailable()) {
+      long startTimeInNanos = System.nanoTime();
+      long[] consumerNanos = new long[1];
+      restaurantCellCache.findOpenRestaurantsWithin(latitude, longitude, servingRadiusInKms,
+          currentTime, res -> {
+            long consumerStartTimeInNanos = System.nanoTime();
+            restaurantConsumer.accept(convertToRestaurant(res, latitude, longitude));
+            consumerNanos[0] += System.nanoTime() - consumerStartTimeInNanos;
+          });
+      timer.record(System.nanoTime() - startTimeInNanos - consumerNanos[0],
+          TimeUnit.NANOSECONDS);
+      return;
     }
 
-    resData.forEach(res -> {
+    log.info("cache unavailable, returned from {}",
+        nearbyRestaurantsFinder.getClass().getSimpleName());
+    List<RestaurantEntity> restaurantsWithin = timer.record(() ->
+        nearbyRestaurantsFinder.findRestaurantsWithin(latitude, longitude, servingRadiusInKms));
+    for (RestaurantEntity res : restaurantsWithin) {
       if (isOpenNow(currentTime, res)) {
-        restaurants.add(convertToRestaurant(res));
+        restaurantConsumer.accept(convertToRestaurant(res, latitude, longitude));
       }
-    });
-    return restaurants;
+    }
   }
 
-  private static Restaurant convertToRestaurant(RestaurantEntity res) {
+  static Restaurant convertToRestaurant(RestaurantEntity res) {
     return new Restaurant(
       res.getRestaurantId(),
-      res.getName(),
+      res.getDisplayName(),
       res.getCity(),
       res.getImageUrl(),
       res.getLatitude(),
       res.getLongitude(),
       res.getOpensAt(),
       res.getClosesAt(),
-      res.getAttributes()
+      res.getAttributes(),
+      null
     );
   }
 
+  // With its distance from the given location.
+  static Restaurant convertToRestaurant(RestaurantEntity res, double latitude, double longitude) {
+    Restaurant restaurant = convertToRestaurant(res);
+    restaurant.setDistanceKm(GeoUtils.findDistanceInKm(latitude, longitude,
+        res.getLatitude(), res.getLongitude()));
+    return restaurant;
+  }
+
 
   private boolean isRestaurantCloseBy(RestaurantEntity restaurantEntity,
       Double latitude, Double longitude, Double servingRadiusInKms) {
@@ -140,22 +157,18 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   @Override
   public List<Restaurant> findRestaurantsByName(Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms) {
-    List<Restaurant> restaurants = new ArrayList<>();
-    repository.findByNameExact(searchString).forEach(restaurantEntity -> {
-      if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, 
-          latitude, longitude, servingRadiusInKms)) {
-        restaurants.add(convertToRestaurant(restaurantEntity));
-      }
-    });
-    repository.findByNameLike(searchString).forEach(restaurantEntity -> {
-      if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, 
-          latitude, longitude, servingRadiusInKms)) {
-        restaurants.add(convertToRestaurant(restaurantEntity));
-      }
+    return timer("findRestaurantsByName").record(() -> {
+      List<Restaurant> restaurants = new ArrayList<>();
+      restaurantSearchBackend.findRestaurantsByName(searchString).forEach(restaurantEntity -> {
+        if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, 
+            latitude, longitude, servingRadiusInKms)) {
+          restaurants.add(convertToRestaurant(restaurantEntity));
+        }
+      });
+      return restaurants.stream()
+          .filter(Helpers.distinctByKey(Restaurant::getRestaurantId))
+          .collect(Collectors.toList());
     });
-    return restaurants.stream()
-        .filter(Helpers.distinctByKey(Restaurant::getRestaurantId))
-        .collect(Collectors.toList());
   }
 
 
@@ -166,14 +179,16 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   public List<Restaurant> findRestaurantsByAttributes(
       Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms) {
-    List<Restaurant> restaurants = new ArrayList<>();
-    repository.findByAttributesIn(Arrays.asList(searchString)).forEach(restaurantEntity -> {
-      if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, 
-          latitude, longitude, servingRadiusInKms)) {
-        restaurants.add(convertToRestaurant(restaurantEntity));
-      }
+    return timer("findRestaurantsByAttributes").record(() -> {
+      List<Restaurant> restaurants = new ArrayList<>();
+      restaurantSearchBackend.findRestaurantsByAttributes(searchString).forEach(res -> {
+        if (isRestaurantCloseByAndOpen(res, currentTime, 
+            latitude, longitude, servingRadiusInKms)) {
+          restaurants.add(convertToRestaurant(res));
+        }
+      });
+      return restaurants;
     });
-    return restaurants;
   }
 
 
@@ -183,29 +198,19 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   public List<Restaurant> findRestaurantsByItemName(
       Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms) {
-    List<Restaurant> restaurants = new ArrayList<>();
-    List<String> restaurantIds = menuRepository
-        .findMenusByItemsNameExact(searchString).stream()
-        .map(MenuEntity::getRestaurantId).collect(Collectors.toList());
-    repository.findByRestaurantIdIn(restaurantIds).forEach(restaurantEntity -> {
-      if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, 
-          latitude, longitude, servingRadiusInKms)) {
-        restaurants.add(convertToRestaurant(restaurantEntity));
-      }
-    });
-    restaurantIds = menuRepository
-        .findMenusByItemsNameLike(searchString).stream()
-        .map(MenuEntity::getRestaurantId).collect(Collectors.toList());
-    repository.findByRestaurantIdIn(restaurantIds).forEach(restaurantEntity -> {
-      if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, 
-          latitude, longitude, servingRadiusInKms)) {
-        restaurants.add(convertToRestaurant(restaurantEntity));
-      }
+    return timer("findRestaurantsByItemName").record(() -> {
+      List<Restaurant> restaurants = new ArrayList<>();
+      restaurantSearchBackend.findRestaurantsByItemName(searchString).forEach(restaurantEntity -> {
+        if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, 
+            latitude, longitude, servingRadiusInKms)) {
+          restaurants.add(convertToRestaurant(restaurantEntity));
+        }
+      });
+      List<Restaurant> distinctRestaurants = restaurants.stream()
+          .filter(Helpers.distinctByKey(Restaurant::getRestaurantId))
+          .collect(Collectors.toList());
+      return distinctRestaurants;
     });
-    List<Restaurant> distinctRestaurants = restaurants.stream()
-        .filter(Helpers.distinctByKey(Restaurant::getRestaurantId))
-        .collect(Collectors.toList());
-    return distinctRestaurants;
   }
 
   // TODO: CRIO_TASK_MODULE_RESTAURANTSEARCH
@@ -214,24 +219,43 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   @Override
   public List<Restaurant> findRestaurantsByItemAttributes(Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms) {
-    List<Restaurant> restaurants = new ArrayList<>();
-    List<String> restaurantIds = menuRepository
-        .findMenusByItemsAttributesLike(searchString).stream()
-        .map(MenuEntity::getRestaurantId).collect(Collectors.toList());
-    repository.findByRestaurantIdIn(restaurantIds).forEach(restaurantEntity -> {
-      if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, 
-          latitude, longitude, servingRadiusInKms)) {
-        restaurants.add(convertToRestaurant(restaurantEntity));
-      }
+    return timer("findRestaurantsByItemAttributes").record(() -> {
+      List<Restaurant> restaurants = new ArrayList<>();
+      restaurantSearchBackend.findRestaurantsByItemAttributes(searchString).forEach(res -> {
+        if (isRestaurantCloseByAndOpen(res, currentTime, 
+            latitude, longitude, servingRadiusInKms)) {
+          restaurants.add(convertToRestaurant(res));
+        }
+      });
+      return restaurants;
     });
-    return restaurants;
   }
 
 
 
+  @Override
+  public List<Restaurant> findRestaurantsBySearchQuery(Double latitude, Double longitude,
+      String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    return timer("findRestaurantsBySearchQuery").record(() -> {
+      List<Document> pipeline = RestaurantSearchPipeline.build(latitude, longitude, searchString,
+          currentTime, servingRadiusInKms);
+      List<Restaurant> restaurants = new ArrayList<>();
+      for (Document document : mongoTemplate.getCollection(
+          mongoTemplate.getCollectionName(RestaurantEntity.class)).aggregate(pipeline)) {
+        RestaurantEntity restaurantEntity =
+            mongoTemplate.getConverter().read(RestaurantEntity.class, document);
+        if (isRestaurantCloseBy(restaurantEntity, latitude, longitude, servingRadiusInKms)) {
+          restaurants.add(convertToRestaurant(restaurantEntity));
+        }
+      }
+      return restaurants;
+    });
+  }
+
   @Override
   public MenuEntity getMenuByRestaurantId(String restaurantId) {
-    return menuRepository.findMenuByRestaurantId(restaurantId).get();
+    return timer("getMenuByRestaurantId").record(() ->
+        menuRepository.findMenuByRestaurantId(restaurantId).orElse(null));
   }
 
   /**
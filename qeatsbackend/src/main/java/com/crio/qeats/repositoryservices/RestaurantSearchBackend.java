@@ -0,0 +1,49 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.models.RestaurantEntity;
+
+import java.util.List;
+
+/**
+ * Backend used by {@link RestaurantRepositoryServiceImpl} to match restaurants against a search
+ * query, before the serving radius and opening hours are applied. Picked at startup through the
+ * {@code qeats.search.backend} property:
+ * - ngram (default): in-memory trigram index, see
+ *   {@link com.crio.qeats.indexes.RestaurantSearchIndex}
+ * - regex: case-insensitive regex queries on Mongo, see {@link RegexRestaurantSearchBackend}
+ * - text: $text queries on Mongo text indexes, see {@link MongoTextRestaurantSearchBackend}
+ * The ngram and regex backends return the restaurants in collection order, the text backend by
+ * relevance. All of them may return the same restaurant more than once.
+ */
+public interface RestaurantSearchBackend {
+
+  String BACKEND_PROPERTY = "qeats.search.backend";
+
+  /**
+   * Restaurants whose name contains the search string, ignoring case.
+   */
+  List<RestaurantEntity> findRestaurantsByName(String searchString);
+
+  /**
+   * Restaurants having the search string as one of their attributes (cuisines).
+   */
+  List<RestaurantEntity> findRestaurantsByAttributes(String searchString);
+
+  /**
+   * Restaurants serving an item named exactly like the search string, followed by the ones
+   * serving an item whose name contains it, ignoring case.
+   */
+  List<RestaurantEntity> findRestaurantsByItemName(String searchString);
+
+  /**
+   * Restaurants serving an item with an attribute containing the search string, ignoring case.
+   */
+  List<RestaurantEntity> findRestaurantsByItemAttributes(String searchString);
+
+}
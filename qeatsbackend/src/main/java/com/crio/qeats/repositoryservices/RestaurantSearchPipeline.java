@@ -0,0 +1,93 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.utils.GeoUtils;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+
+/**
+ * Aggregation on the restaurants collection answering a search query in one round trip.
+ * 1. Restaurants within the serving radius, through the 2dsphere index on location.
+ * 2. Restaurants open at the current time, including the ones open across midnight.
+ * 3. Their menus, joined with $lookup.
+ * 4. One $facet branch per match rule, concatenated in the order of the ordering rules.
+ * 5. One document per restaurantId, keeping the best rank.
+ * Opening hours are compared as strings, which requires them to be stored as HH:mm.
+ */
+final class RestaurantSearchPipeline {
+
+  // Slack on the angular radius; callers re-check the exact distance.
+  private static final double RADIUS_SLACK = 1 + 1e-9;
+
+  private static final List<String> FACETS = Arrays.asList("byNameExact", "byName",
+      "byAttributes", "byItemNameExact", "byItemName", "byItemAttributes");
+
+  private RestaurantSearchPipeline() { /* static only */ }
+
+  static List<Document> build(double latitude, double longitude, String searchString,
+      LocalTime currentTime, double servingRadiusInKms) {
+    Pattern exactly = Pattern.compile("^" + Pattern.quote(searchString) + "$",
+        Pattern.CASE_INSENSITIVE);
+    Pattern partially = Pattern.compile(Pattern.quote(searchString), Pattern.CASE_INSENSITIVE);
+
+    Document facets = new Document()
+        .append("byNameExact", matching("name", exactly))
+        .append("byName", matching("name", partially))
+        .append("byAttributes", matching("attributes", searchString))
+        .append("byItemNameExact", matching("menus.items.name", exactly))
+        .append("byItemName", matching("menus.items.name", partially))
+        .append("byItemAttributes", matching("menus.items.attributes", partially));
+
+    return Arrays.asList(
+        new Document("$match", new Document("location", new Document("$geoWithin",
+            new Document("$centerSphere", Arrays.asList(Arrays.asList(longitude, latitude),
+                servingRadiusInKms / GeoUtils.EARTH_RADIUS_IN_KMS * RADIUS_SLACK))))),
+        new Document("$addFields", new Document("open", isOpenAt(currentTime.toString()))),
+        new Document("$match", new Document("open", true)),
+        new Document("$lookup", new Document("from", "menus")
+            .append("localField", "restaurantId")
+            .append("foreignField", "restaurantId")
+            .append("as", "menus")),
+        new Document("$facet", facets),
+        new Document("$project", new Document("restaurants", new Document("$concatArrays",
+            FACETS.stream().map(facet -> "$" + facet).collect(Collectors.toList())))),
+        new Document("$unwind", new Document("path", "$restaurants")
+            .append("includeArrayIndex", "rank")),
+        new Document("$group", new Document("_id", "$restaurants.restaurantId")
+            .append("restaurant", new Document("$first", "$restaurants"))
+            .append("rank", new Document("$min", "$rank"))),
+        new Document("$sort", new Document("rank", 1)),
+        new Document("$replaceRoot", new Document("newRoot", "$restaurant")));
+  }
+
+  private static List<Document> matching(String field, Object value) {
+    return Arrays.asList(
+        new Document("$match", new Document(field, value)),
+        new Document("$project", new Document("menus", 0).append("open", 0)));
+  }
+
+  // HH:mm strings sort like the times they stand for, and LocalTime.toString() only adds
+  // seconds when they are not zero, so the comparisons are exact.
+  private static Document isOpenAt(String currentTime) {
+    Document afterOpening = new Document("$gt", Arrays.asList(currentTime, "$opensAt"));
+    Document beforeClosing = new Document("$lt", Arrays.asList(currentTime, "$closesAt"));
+    return new Document("$or", Arrays.asList(
+        new Document("$and", Arrays.asList(
+            new Document("$lt", Arrays.asList("$opensAt", "$closesAt")),
+            afterOpening, beforeClosing)),
+        new Document("$and", Arrays.asList(
+            new Document("$gt", Arrays.asList("$opensAt", "$closesAt")),
+            new Document("$or", Arrays.asList(afterOpening, beforeClosing))))));
+  }
+}
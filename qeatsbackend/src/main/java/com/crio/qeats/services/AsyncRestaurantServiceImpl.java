@@ -0,0 +1,208 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.repositoryservices.AsyncRestaurantRepositoryService;
+import com.crio.qeats.utils.Helpers;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Search which never blocks the request thread.
+ * The four sub-searches, or the single aggregation when qeats.search.pipeline is set, run on the
+ * repository I/O pool and are combined with allOf once they all completed, failed or missed the
+ * deadline. Cancelling the returned future, which the controller does when the client goes away,
+ * cancels the sub-searches still running.
+ * Listings and menus are served by {@link RestaurantServiceImpl}.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = AsyncRestaurantServiceImpl.ASYNC_PROPERTY, havingValue = "true")
+@Log4j2
+public class AsyncRestaurantServiceImpl implements RestaurantService {
+
+  public static final String ASYNC_PROPERTY = "qeats.search.async";
+
+  private final ScheduledExecutorService deadlines =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "qeats-search-deadlines");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  @Autowired
+  private RestaurantServiceImpl restaurantServiceImpl;
+
+  @Autowired
+  private AsyncRestaurantRepositoryService asyncRestaurantRepositoryService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.search.deadline-ms:2000}")
+  private long searchDeadlineInMillis;
+
+  @Value("${qeats.search.pipeline:false}")
+  private boolean searchPipelineEnabled;
+
+  @PreDestroy
+  public void shutdown() {
+    deadlines.shutdownNow();
+  }
+
+  @Override
+  public GetRestaurantsResponse findAllRestaurantsCloseBy(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    return restaurantServiceImpl.findAllRestaurantsCloseBy(getRestaurantsRequest, currentTime);
+  }
+
+  @Override
+  public void findAllRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime, Consumer<Restaurant> restaurantConsumer) {
+    restaurantServiceImpl.findAllRestaurantsCloseBy(getRestaurantsRequest, currentTime,
+        restaurantConsumer);
+  }
+
+  @Override
+  public GetRestaurantsResponse findRestaurantsBySearchQuery(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    return await(findRestaurantsBySearchQueryAsync(getRestaurantsRequest, currentTime));
+  }
+
+  @Override
+  public GetMenuResponse getMenuByRestaurantId(String restaurantId) {
+    return restaurantServiceImpl.getMenuByRestaurantId(restaurantId);
+  }
+
+  @Override
+  public GetRestaurantsResponse findRestaurantsBySearchQueryMt(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    return await(findRestaurantsBySearchQueryAsync(getRestaurantsRequest, currentTime));
+  }
+
+  /**
+   * Same results as {@link #findRestaurantsBySearchQuery}, without waiting for them.
+   * Sub-searches which fail or miss the deadline contribute no restaurants.
+   * @param getRestaurantsRequest valid lat/long with searchFor string
+   * @param currentTime current time
+   * @return future of the response, which cancels the pending sub-searches when cancelled
+   */
+  public CompletableFuture<GetRestaurantsResponse> findRestaurantsBySearchQueryAsync(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    if (getRestaurantsRequest.getSearchFor().isEmpty()) {
+      return CompletableFuture.completedFuture(
+          new GetRestaurantsResponse(Collections.emptyList()));
+    }
+    Double latitude = getRestaurantsRequest.getLatitude();
+    Double longitude = getRestaurantsRequest.getLongitude();
+    String searchString = getRestaurantsRequest.getSearchFor();
+    Double servingRadiusInKms = ServingRadius.at(currentTime);
+
+    Map<String, CompletableFuture<List<Restaurant>>> searches = new LinkedHashMap<>();
+    if (searchPipelineEnabled) {
+      searches.put("pipeline", asyncRestaurantRepositoryService.findRestaurantsBySearchQuery(
+          latitude, longitude, searchString, currentTime, servingRadiusInKms));
+      return combine(searches);
+    }
+    searches.put("name", asyncRestaurantRepositoryService.findRestaurantsByName(
+        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+    searches.put("attributes", asyncRestaurantRepositoryService.findRestaurantsByAttributes(
+        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+    searches.put("itemName", asyncRestaurantRepositoryService.findRestaurantsByItemName(
+        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+    searches.put("itemAttributes", asyncRestaurantRepositoryService
+        .findRestaurantsByItemAttributes(
+            latitude, longitude, searchString, currentTime, servingRadiusInKms));
+    return combine(searches);
+  }
+
+  // Distinct restaurants of all the sub-searches, in their order.
+  private CompletableFuture<GetRestaurantsResponse> combine(
+      Map<String, CompletableFuture<List<Restaurant>>> searches) {
+    Map<String, CompletableFuture<List<Restaurant>>> results = new LinkedHashMap<>();
+    searches.forEach((source, search) -> results.put(source, withDeadline(source, search)));
+
+    CompletableFuture<GetRestaurantsResponse> response = CompletableFuture
+        .allOf(results.values().toArray(new CompletableFuture<?>[0]))
+        .thenApply(done -> new GetRestaurantsResponse(results.values().stream()
+            .flatMap(result -> result.join().stream())
+            .filter(Helpers.distinctByKey(Restaurant::getRestaurantId))
+            .collect(Collectors.toList())));
+    response.whenComplete((value, error) -> {
+      if (response.isCancelled()) {
+        searches.values().forEach(search -> search.cancel(true));
+      }
+    });
+    return response;
+  }
+
+  // Never completes exceptionally: failures and late searches turn into an empty list.
+  private CompletableFuture<List<Restaurant>> withDeadline(String source,
+      CompletableFuture<List<Restaurant>> search) {
+    CompletableFuture<List<Restaurant>> result = new CompletableFuture<>();
+    // Until the sub-search completes, even past the deadline, as qeats.search{source}.
+    Timer.Sample sample = Timer.start(meterRegistry);
+    search.whenComplete((restaurants, error) -> {
+      sample.stop(meterRegistry.timer("qeats.search", "source", source));
+      if (error == null) {
+        result.complete(restaurants == null ? Collections.<Restaurant>emptyList() : restaurants);
+      } else if (result.complete(Collections.emptyList()) && !search.isCancelled()) {
+        log.error("search by {} failed, returning partial results", source, error);
+        meterRegistry.counter("qeats.search.partial", "source", source).increment();
+      }
+    });
+    // Cancelling the late sub-search completes the result, through the callback above, so the
+    // caller never sees the partial response before the sub-search is cancelled.
+    deadlines.schedule(() -> {
+      if (search.cancel(true)) {
+        log.warn("search by {} missed the {}ms deadline, returning partial results", source,
+            searchDeadlineInMillis);
+        meterRegistry.counter("qeats.search.partial", "source", source).increment();
+      }
+    }, searchDeadlineInMillis, TimeUnit.MILLISECONDS);
+    return result;
+  }
+
+  private static GetRestaurantsResponse await(CompletableFuture<GetRestaurantsResponse> response) {
+    try {
+      return response.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response.cancel(true);
+      throw new CancellationException("interrupted while searching");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exceptions.InvalidCursorException;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.exchanges.RestaurantsCursor;
+import com.crio.qeats.utils.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the page of restaurants nearest to a location among those handed to it, past a cursor.
+ * The page is a max-heap bounded by the limit, whose farthest restaurant gives way to a nearer
+ * one, so finding it takes O(n log limit) time and O(limit) memory however many restaurants are
+ * around, and only the page itself is ever sorted.
+ */
+final class NearestRestaurants implements Consumer<Restaurant> {
+
+  // Ties on distance are broken by id, so the order, and the cursors, are total.
+  static final Comparator<Restaurant> NEAREST_FIRST =
+      Comparator.comparing(Restaurant::getDistanceKm)
+          .thenComparing(restaurant -> restaurant.getRestaurantId() == null
+              ? "" : restaurant.getRestaurantId());
+
+  private final double latitude;
+  private final double longitude;
+  private final int location;
+  private final int limit;
+  private final RestaurantsCursor cursor;
+  private final PriorityQueue<Restaurant> farthestFirst;
+  private int candidates;
+
+  /**
+   * Collector of a page.
+   * @param limit maximum number of restaurants in the page, at least 1
+   * @param cursor position the page starts after, null for the first page
+   * @throws InvalidCursorException if the cursor comes from a page around another location
+   */
+  NearestRestaurants(double latitude, double longitude, int limit, RestaurantsCursor cursor) {
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.location = RestaurantsCursor.locationOf(latitude, longitude);
+    this.limit = limit;
+    this.cursor = cursor;
+    this.farthestFirst = new PriorityQueue<>(limit, NEAREST_FIRST.reversed());
+    if (cursor != null && !cursor.isFor(location)) {
+      throw new InvalidCursorException("cursor is not one returned for this location");
+    }
+  }
+
+  /**
+   * Collector of the page asked for by a request with a limit.
+   * @throws InvalidCursorException if the cursor of the request does not match its location
+   */
+  static NearestRestaurants of(GetRestaurantsRequest getRestaurantsRequest) {
+    String cursor = getRestaurantsRequest.getCursor();
+    return new NearestRestaurants(getRestaurantsRequest.getLatitude(),
+        getRestaurantsRequest.getLongitude(), getRestaurantsRequest.getLimit(),
+        cursor == null ? null : RestaurantsCursor.parse(cursor));
+  }
+
+  @Override
+  public void accept(Restaurant restaurant) {
+    if (restaurant.getDistanceKm() == null) {
+      restaurant.setDistanceKm(GeoUtils.findDistanceInKm(latitude, longitude,
+          restaurant.getLatitude(), restaurant.getLongitude()));
+    }
+    if (cursor != null && !cursor.precedes(restaurant)) {
+      return;
+    }
+    candidates++;
+    if (farthestFirst.size() < limit) {
+      farthestFirst.add(restaurant);
+    } else if (NEAREST_FIRST.compare(restaurant, farthestFirst.peek()) < 0) {
+      farthestFirst.poll();
+      farthestFirst.add(restaurant);
+    }
+  }
+
+  /**
+   * Returns the page, nearest first, with the cursor of the next page if more restaurants
+   * were found than fit in it.
+   */
+  GetRestaurantsResponse toResponse() {
+    List<Restaurant> page = new ArrayList<>(farthestFirst);
+    page.sort(NEAREST_FIRST);
+    String nextCursor = candidates > page.size()
+        ? RestaurantsCursor.after(location, page.get(page.size() - 1)).encode() : null;
+    return new GetRestaurantsResponse(page, nextCursor);
+  }
+}
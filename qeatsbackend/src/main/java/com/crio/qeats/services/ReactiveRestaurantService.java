@@ -0,0 +1,50 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import java.time.LocalTime;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link RestaurantService}: same rules, with the restaurants
+ * emitted as they are found instead of collected into a response.
+ */
+public interface ReactiveRestaurantService {
+
+  /**
+   * See {@link RestaurantService#findAllRestaurantsCloseBy}.
+   */
+  Flux<Restaurant> findAllRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime);
+
+  /**
+   * Pages the restaurants around the location of a request with a limit, like
+   * {@link RestaurantService#findAllRestaurantsCloseBy} does.
+   * @return the page, or an InvalidCursorException if the cursor of the request does not match
+   *     its location or the serving radius
+   */
+  Mono<GetRestaurantsResponse> findNearestRestaurants(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime);
+
+  /**
+   * See {@link RestaurantService#findRestaurantsBySearchQuery}.
+   * Sub-searches which fail or miss the deadline contribute the restaurants found so far.
+   */
+  Flux<Restaurant> findRestaurantsBySearchQuery(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime);
+
+  /**
+   * See {@link RestaurantService#getMenuByRestaurantId}.
+   * @return the menu, or empty if the restaurant has none
+   */
+  Mono<GetMenuResponse> getMenuByRestaurantId(String restaurantId);
+}
@@ -0,0 +1,120 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.repositoryservices.ReactiveRestaurantRepositoryService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.concurrent.TimeoutException;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@Log4j2
+public class ReactiveRestaurantServiceImpl implements ReactiveRestaurantService {
+
+  @Autowired
+  private ReactiveRestaurantRepositoryService reactiveRestaurantRepositoryService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.search.deadline-ms:2000}")
+  private long searchDeadlineInMillis;
+
+  @Override
+  public Flux<Restaurant> findAllRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime) {
+    return reactiveRestaurantRepositoryService.findAllRestaurantsCloseBy(
+        getRestaurantsRequest.getLatitude(),
+        getRestaurantsRequest.getLongitude(),
+        currentTime,
+        ServingRadius.at(currentTime));
+  }
+
+  // The page is kept by a bounded heap as the restaurants are emitted, see NearestRestaurants.
+  @Override
+  public Mono<GetRestaurantsResponse> findNearestRestaurants(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    return reactiveRestaurantRepositoryService.findAllRestaurantsCloseBy(
+        getRestaurantsRequest.getLatitude(),
+        getRestaurantsRequest.getLongitude(),
+        currentTime,
+        ServingRadius.at(currentTime))
+        .collect(() -> NearestRestaurants.of(getRestaurantsRequest),
+            NearestRestaurants::accept)
+        .map(NearestRestaurants::toResponse);
+  }
+
+  // The sub-searches are subscribed to together, and their restaurants are emitted in the order
+  // of the ordering rules as soon as the earlier sub-searches are done.
+  @Override
+  public Flux<Restaurant> findRestaurantsBySearchQuery(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    if (getRestaurantsRequest.getSearchFor().isEmpty()) {
+      return Flux.empty();
+    }
+    Double latitude = getRestaurantsRequest.getLatitude();
+    Double longitude = getRestaurantsRequest.getLongitude();
+    String searchString = getRestaurantsRequest.getSearchFor();
+    Double servingRadiusInKms = ServingRadius.at(currentTime);
+
+    return Flux.mergeSequential(
+        withDeadline("name", reactiveRestaurantRepositoryService.findRestaurantsByName(
+            latitude, longitude, searchString, currentTime, servingRadiusInKms)),
+        withDeadline("attributes", reactiveRestaurantRepositoryService
+            .findRestaurantsByAttributes(
+                latitude, longitude, searchString, currentTime, servingRadiusInKms)),
+        withDeadline("itemName", reactiveRestaurantRepositoryService.findRestaurantsByItemName(
+            latitude, longitude, searchString, currentTime, servingRadiusInKms)),
+        withDeadline("itemAttributes", reactiveRestaurantRepositoryService
+            .findRestaurantsByItemAttributes(
+                latitude, longitude, searchString, currentTime, servingRadiusInKms)))
+        .distinct(Restaurant::getRestaurantId);
+  }
+
+  @Override
+  public Mono<GetMenuResponse> getMenuByRestaurantId(String restaurantId) {
+    return reactiveRestaurantRepositoryService.getMenuByRestaurantId(restaurantId)
+        .map(GetMenuResponse::new);
+  }
+
+  // A sub-search which fails or misses the deadline ends with the restaurants it has emitted.
+  // The deadline runs from the subscription, rather than being restarted after each restaurant.
+  private Flux<Restaurant> withDeadline(String source, Flux<Restaurant> search) {
+    return Flux.defer(() -> {
+      Mono<Long> deadline = Mono.delay(Duration.ofMillis(searchDeadlineInMillis)).cache();
+      return search
+          .timeout(deadline, restaurant -> deadline)
+          .onErrorResume(e -> {
+            if (e instanceof TimeoutException) {
+              log.warn("search by {} missed the {}ms deadline, returning partial results",
+                  source, searchDeadlineInMillis);
+            } else {
+              log.error("search by {} failed, returning partial results", source, e);
+            }
+            meterRegistry.counter("qeats.search.partial", "source", source).increment();
+            return Flux.empty();
+          });
+    });
+  }
+}
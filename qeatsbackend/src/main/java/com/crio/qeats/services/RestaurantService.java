@@ -7,10 +7,12 @@
 
 package com.crio.qeats.services;
 
+import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.exchanges.GetMenuResponse;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
 import java.time.LocalTime;
+import java.util.function.Consumer;
 
 public interface RestaurantService {
 
@@ -20,7 +22,9 @@ public interface RestaurantService {
    * - service radius is 3KMs.
    * - All other times, serving radius is 5KMs.
    * - If there are no restaurants, return empty list of restaurants.
-   * @param getRestaurantsRequest valid lat/long
+   * - With a limit, returns a page of at most limit restaurants, nearest first, starting after
+   *   the cursor if any, and the nextCursor if more restaurants follow.
+   * @param getRestaurantsRequest valid lat/long, with an optional limit and cursor
    * @param currentTime current time.
    * @return GetRestaurantsResponse object containing a list of open restaurants or an
    *     empty list if none fits the criteria.
@@ -28,6 +32,16 @@ public interface RestaurantService {
   GetRestaurantsResponse findAllRestaurantsCloseBy(
       GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime);
 
+  /**
+   * Same restaurants as {@link #findAllRestaurantsCloseBy(GetRestaurantsRequest, LocalTime)},
+   * handed to the consumer as they are found instead of collected into a response.
+   * @param getRestaurantsRequest valid lat/long
+   * @param currentTime current time.
+   * @param restaurantConsumer receives each open restaurant
+   */
+  void findAllRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime, Consumer<Restaurant> restaurantConsumer);
+
   /**
    * Get the restaurants by processing the query.
    * -Ordering rules
@@ -52,6 +66,11 @@ public interface RestaurantService {
   GetRestaurantsResponse findRestaurantsBySearchQuery(
       GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime);
 
+  /**
+   * Get the menu of a restaurant.
+   * @param restaurantId id of the restaurant
+   * @return the menu, or null if the restaurant has none
+   */
   GetMenuResponse getMenuByRestaurantId(String restaurantId);
 
   /**
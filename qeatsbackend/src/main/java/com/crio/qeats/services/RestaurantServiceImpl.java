@@ -7,55 +7,67 @@
 
 package com.crio.qeats.services;
 
+import com.crio.qeats.configs.SearchExecutorConfiguration;
 import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.exchanges.GetMenuResponse;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.models.MenuEntity;
 import com.crio.qeats.repositoryservices.RestaurantRepositoryService;
 import com.crio.qeats.utils.Helpers;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-import lombok.experimental.Helper;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 @Log4j2
 public class RestaurantServiceImpl implements RestaurantService {
 
-  private final Double peakHoursServingRadiusInKms = 3.0;
-  private final Double normalHoursServingRadiusInKms = 5.0;
   @Autowired
   private RestaurantRepositoryService restaurantRepositoryService;
 
-  private final Double getServingRadius(LocalTime currentTime) {
-    int currentHour = currentTime.getHour();
-    if ((currentHour >= 8 && currentHour <= 10)
-        || (currentHour >= 13 && currentHour <= 14) 
-        || (currentHour >= 19 && currentHour <= 21)) {
-      return peakHoursServingRadiusInKms;
-    } else {
-      return normalHoursServingRadiusInKms;
-    }
-  }
-  
+  @Autowired
+  @Qualifier(SearchExecutorConfiguration.SEARCH_EXECUTOR)
+  private ExecutorService searchExecutor;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  // Answers searches with one aggregation instead of one query per match rule.
+  @Value("${qeats.search.pipeline:false}")
+  private boolean searchPipelineEnabled;
+
+  @Value("${qeats.search.deadline-ms:2000}")
+  private long searchDeadlineInMillis;
+
   @Override
   public GetRestaurantsResponse findAllRestaurantsCloseBy(
       GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
-    Double servingRadiusInKms = getServingRadius(currentTime);
+    Double servingRadiusInKms = ServingRadius.at(currentTime);
+    if (getRestaurantsRequest.getLimit() != null) {
+      return findNearestRestaurants(getRestaurantsRequest, currentTime, servingRadiusInKms);
+    }
     
     List<Restaurant> restaurants = restaurantRepositoryService.findAllRestaurantsCloseBy(
         getRestaurantsRequest.getLatitude(), 
@@ -66,6 +78,28 @@ public class RestaurantServiceImpl implements RestaurantService {
     return new GetRestaurantsResponse(restaurants);
   }
 
+  /**
+   * Finds one page of the restaurants around the location, nearest first, without collecting
+   * all of them.
+   */
+  private GetRestaurantsResponse findNearestRestaurants(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime,
+      Double servingRadiusInKms) {
+    NearestRestaurants nearestRestaurants = NearestRestaurants.of(getRestaurantsRequest);
+    restaurantRepositoryService.findAllRestaurantsCloseBy(getRestaurantsRequest.getLatitude(),
+        getRestaurantsRequest.getLongitude(), currentTime, servingRadiusInKms,
+        nearestRestaurants);
+    return nearestRestaurants.toResponse();
+  }
+
+  @Override
+  public void findAllRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime, Consumer<Restaurant> restaurantConsumer) {
+    restaurantRepositoryService.findAllRestaurantsCloseBy(getRestaurantsRequest.getLatitude(),
+        getRestaurantsRequest.getLongitude(), currentTime, ServingRadius.at(currentTime),
+        restaurantConsumer);
+  }
+
   // TODO: CRIO_TASK_MODULE_RESTAURANTSEARCH
   // Implement findRestaurantsBySearchQuery. The request object has the search string.
   // We have to combine results from multiple sources:
@@ -84,15 +118,24 @@ public class RestaurantServiceImpl implements RestaurantService {
     Double latitude = getRestaurantsRequest.getLatitude();
     Double longitude = getRestaurantsRequest.getLongitude();
     String searchString = getRestaurantsRequest.getSearchFor();
-    Double servingRadiusInKms = getServingRadius(currentTime);
-    List<Restaurant> restaurants = restaurantRepositoryService.findRestaurantsByName(
-        latitude, longitude, searchString, currentTime, servingRadiusInKms);
-    restaurants.addAll(restaurantRepositoryService.findRestaurantsByAttributes(
-        latitude, longitude, searchString, currentTime, servingRadiusInKms));
-    restaurants.addAll(restaurantRepositoryService.findRestaurantsByItemName(
-        latitude, longitude, searchString, currentTime, servingRadiusInKms));
-    restaurants.addAll(restaurantRepositoryService.findRestaurantsByItemAttributes(
-        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+    Double servingRadiusInKms = ServingRadius.at(currentTime);
+    if (searchPipelineEnabled) {
+      return new GetRestaurantsResponse(search("pipeline",
+          () -> restaurantRepositoryService.findRestaurantsBySearchQuery(
+              latitude, longitude, searchString, currentTime, servingRadiusInKms)));
+    }
+    List<Restaurant> restaurants = search("name",
+        () -> restaurantRepositoryService.findRestaurantsByName(
+            latitude, longitude, searchString, currentTime, servingRadiusInKms));
+    restaurants.addAll(search("attributes",
+        () -> restaurantRepositoryService.findRestaurantsByAttributes(
+            latitude, longitude, searchString, currentTime, servingRadiusInKms)));
+    restaurants.addAll(search("itemName",
+        () -> restaurantRepositoryService.findRestaurantsByItemName(
+            latitude, longitude, searchString, currentTime, servingRadiusInKms)));
+    restaurants.addAll(search("itemAttributes",
+        () -> restaurantRepositoryService.findRestaurantsByItemAttributes(
+            latitude, longitude, searchString, currentTime, servingRadiusInKms)));
     List<Restaurant> distinctRestaurants = restaurants.stream() 
         .filter(Helpers.distinctByKey(Restaurant::getRestaurantId)) 
         .collect(Collectors.toList());
@@ -101,7 +144,8 @@ public class RestaurantServiceImpl implements RestaurantService {
 
   @Override
   public GetMenuResponse getMenuByRestaurantId(String restaurantId) {
-    return new GetMenuResponse(restaurantRepositoryService.getMenuByRestaurantId(restaurantId));
+    MenuEntity menuEntity = restaurantRepositoryService.getMenuByRestaurantId(restaurantId);
+    return menuEntity == null ? null : new GetMenuResponse(menuEntity);
   }
   
   // TODO: CRIO_TASK_MODULE_MULTITHREADING
@@ -111,34 +155,91 @@ public class RestaurantServiceImpl implements RestaurantService {
   @Override
   public GetRestaurantsResponse findRestaurantsBySearchQueryMt(
       GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
-    ExecutorService executor = Executors.newFixedThreadPool(10);
-    List<Callable<List<Restaurant>>> callableTasks = new ArrayList<>();
+    if (getRestaurantsRequest.getSearchFor().isEmpty()) {
+      return new GetRestaurantsResponse(Collections.emptyList());
+    }
     Double latitude = getRestaurantsRequest.getLatitude();
     Double longitude = getRestaurantsRequest.getLongitude();
     String searchString = getRestaurantsRequest.getSearchFor();
-    Double servingRadiusInKms = getServingRadius(currentTime);
-    
-    callableTasks.add(() -> restaurantRepositoryService.findRestaurantsByName(
-        latitude, longitude, searchString, currentTime, servingRadiusInKms));
-    callableTasks.add(() -> restaurantRepositoryService.findRestaurantsByAttributes(
-        latitude, longitude, searchString, currentTime, servingRadiusInKms));
-    callableTasks.add(() -> restaurantRepositoryService.findRestaurantsByItemName(
-        latitude, longitude, searchString, currentTime, servingRadiusInKms));
-    callableTasks.add(() -> restaurantRepositoryService.findRestaurantsByItemAttributes(
-        latitude, longitude, searchString, currentTime, servingRadiusInKms));
+    Double servingRadiusInKms = ServingRadius.at(currentTime);
+    if (searchPipelineEnabled) {
+      return new GetRestaurantsResponse(search("pipeline",
+          () -> restaurantRepositoryService.findRestaurantsBySearchQuery(
+              latitude, longitude, searchString, currentTime, servingRadiusInKms)));
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchDeadlineInMillis);
+    Map<String, Future<List<Restaurant>>> searches = new LinkedHashMap<>();
+    searches.put("name", submitSearch("name", () -> restaurantRepositoryService
+        .findRestaurantsByName(latitude, longitude, searchString, currentTime,
+            servingRadiusInKms)));
+    searches.put("attributes", submitSearch("attributes", () -> restaurantRepositoryService
+        .findRestaurantsByAttributes(latitude, longitude, searchString, currentTime,
+            servingRadiusInKms)));
+    searches.put("itemName", submitSearch("itemName", () -> restaurantRepositoryService
+        .findRestaurantsByItemName(latitude, longitude, searchString, currentTime,
+            servingRadiusInKms)));
+    searches.put("itemAttributes", submitSearch("itemAttributes", () -> restaurantRepositoryService
+        .findRestaurantsByItemAttributes(latitude, longitude, searchString, currentTime,
+            servingRadiusInKms)));
+
+    List<Restaurant> restaurants = new ArrayList<>();
+    searches.forEach((source, search) ->
+        restaurants.addAll(awaitSearch(source, search, deadline)));
+    List<Restaurant> distinctRestaurants = restaurants.stream()
+        .filter(Helpers.distinctByKey(Restaurant::getRestaurantId))
+        .collect(Collectors.toList());
+    return new GetRestaurantsResponse(distinctRestaurants);
+  }
+
+  // Latency of a sub-search, as qeats.search{source}, on whichever thread it runs.
+  private List<Restaurant> search(String source, Supplier<List<Restaurant>> search) {
+    return meterRegistry.timer("qeats.search", "source", source).record(search);
+  }
+
+  /**
+   * Submits a sub-search to the search pool.
+   * A sub-search the saturated pool rejects is never run on the request thread: it contributes
+   * no restaurants, as if it had missed the deadline.
+   */
+  private Future<List<Restaurant>> submitSearch(String source,
+      Supplier<List<Restaurant>> search) {
     try {
-      List<Restaurant> restaurants = new ArrayList<>();
-      executor.invokeAll(callableTasks).forEach(restaurantFuture -> {
-        try {
-          restaurants.addAll((List<Restaurant>)restaurantFuture.get());
-        } catch (InterruptedException | ExecutionException e) {
-          e.printStackTrace();
-        }
-      });
-      return new GetRestaurantsResponse(restaurants);     
-    } catch (Exception e) {
-      throw new RuntimeException();
+      return searchExecutor.submit(() -> search(source, search));
+    } catch (RejectedExecutionException e) {
+      log.warn("search by {} rejected by the search pool, returning partial results", source);
+      meterRegistry.counter("qeats.search.partial", "source", source).increment();
+      return null;
     }
   }
-}
 
+  /**
+   * Waits for a sub-search until the request deadline.
+   * A sub-search which fails or misses the deadline contributes no restaurants, so the response
+   * holds the partial results of the other sub-searches. One which misses it is interrupted, so
+   * it does not hold its pool thread any longer than it has to.
+   * @param search the submitted sub-search, null if the pool rejected it
+   */
+  private List<Restaurant> awaitSearch(String source, Future<List<Restaurant>> search,
+      long deadline) {
+    if (search == null) {
+      return Collections.emptyList();
+    }
+    try {
+      List<Restaurant> restaurants =
+          search.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      return restaurants == null ? Collections.emptyList() : restaurants;
+    } catch (TimeoutException e) {
+      search.cancel(true);
+      log.warn("search by {} missed the {}ms deadline, returning partial results", source,
+          searchDeadlineInMillis);
+    } catch (ExecutionException e) {
+      log.error("search by {} failed, returning partial results", source, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      search.cancel(true);
+    }
+    meterRegistry.counter("qeats.search.partial", "source", source).increment();
+    return Collections.emptyList();
+  }
+}
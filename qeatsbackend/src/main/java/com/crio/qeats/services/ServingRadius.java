@@ -0,0 +1,33 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import java.time.LocalTime;
+
+/**
+ * Serving radius of the restaurant services, shared by the servlet, async and reactive stacks.
+ * Peak hours are 8AM - 10AM, 1PM - 2PM and 7PM - 9PM.
+ */
+final class ServingRadius {
+
+  static final Double PEAK_HOURS_IN_KMS = 3.0;
+  static final Double NORMAL_HOURS_IN_KMS = 5.0;
+
+  private ServingRadius() {
+  }
+
+  static Double at(LocalTime currentTime) {
+    int currentHour = currentTime.getHour();
+    if ((currentHour >= 8 && currentHour <= 10)
+        || (currentHour >= 13 && currentHour <= 14)
+        || (currentHour >= 19 && currentHour <= 21)) {
+      return PEAK_HOURS_IN_KMS;
+    } else {
+      return NORMAL_HOURS_IN_KMS;
+    }
+  }
+}
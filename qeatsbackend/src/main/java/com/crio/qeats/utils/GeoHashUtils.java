@@ -0,0 +1,175 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import ch.hsr.geohash.GeoHash;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers to cover areas with geohash cells.
+ */
+public class GeoHashUtils {
+
+  private static final double SLACK = 1 + 1e-9;
+  private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+  private GeoHashUtils() { /* static helpers */ }
+
+  /**
+   * Finds the geohash cells of the given precision that together cover a circle.
+   * Cells are listed row by row, from south-west to north-east.
+   *
+   * @param latitude center of the circle
+   * @param longitude center of the circle
+   * @param radiusInKms radius of the circle
+   * @param precision number of geohash characters
+   * @return base32 geohashes of every cell intersecting the bounding box of the circle
+   */
+  public static List<String> findCoveringCells(double latitude, double longitude,
+      double radiusInKms, int precision) {
+    CellGrid grid = new CellGrid(precision);
+    double latitudeDelta = findLatitudeDelta(radiusInKms);
+    double longitudeDelta = findLongitudeDelta(latitude, radiusInKms);
+
+    long fromRow = grid.rowOf(Math.max(-90, latitude - latitudeDelta));
+    long toRow = grid.rowOf(Math.min(90, latitude + latitudeDelta));
+    long columnSpan = longitudeDelta >= 180 ? grid.columns
+        : Math.min(grid.columns, grid.unwrappedColumnOf(longitude + longitudeDelta)
+            - grid.unwrappedColumnOf(longitude - longitudeDelta) + 1);
+    long fromColumn = columnSpan == grid.columns ? 0
+        : Math.floorMod(grid.unwrappedColumnOf(longitude - longitudeDelta), grid.columns);
+
+    List<String> cells = new ArrayList<>((int) Math.min(Integer.MAX_VALUE / 2,
+        (toRow - fromRow + 1) * columnSpan));
+    for (long row = fromRow; row <= toRow; row++) {
+      for (long offset = 0; offset < columnSpan; offset++) {
+        long column = (fromColumn + offset) % grid.columns;
+        cells.add(GeoHash.withCharacterPrecision(grid.centerLatitudeOf(row),
+            grid.centerLongitudeOf(column), precision).toBase32());
+      }
+    }
+    return cells;
+  }
+
+  /**
+   * Finds a radius around the given point that fully contains every cell returned by
+   * {@link #findCoveringCells} for the same arguments.
+   *
+   * @return radius in kms
+   */
+  public static double findCoveringCellsRadius(double latitude, double longitude,
+      double radiusInKms, int precision) {
+    CellGrid grid = new CellGrid(precision);
+    double latitudeDelta = findLatitudeDelta(radiusInKms) + grid.cellHeight;
+    double longitudeDelta = findLongitudeDelta(latitude, radiusInKms) + grid.cellWidth;
+    double farthestCorner = 0;
+    for (int latitudeSign = -1; latitudeSign <= 1; latitudeSign += 2) {
+      for (int longitudeSign = -1; longitudeSign <= 1; longitudeSign += 2) {
+        farthestCorner = Math.max(farthestCorner, GeoUtils.findDistanceInKm(latitude, longitude,
+            Math.max(-90, Math.min(90, latitude + latitudeSign * latitudeDelta)),
+            longitude + longitudeSign * Math.min(180, longitudeDelta)));
+      }
+    }
+    // Cell edges follow parallels, which bulge slightly away from the great circles between
+    // corners.
+    return farthestCorner * 1.01;
+  }
+
+  /**
+   * Finds the center of a geohash cell.
+   *
+   * @param cell base32 geohash
+   * @return latitude and longitude of the center, in this order
+   */
+  public static double[] findCellCenter(String cell) {
+    double[] bounds = findCellBounds(cell);
+    return new double[] {(bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2};
+  }
+
+  /**
+   * Finds the bounding box of a geohash cell. A point belongs to the cell if it is on its south
+   * or west edge, not on its north or east edge.
+   *
+   * @param cell base32 geohash
+   * @return minimum latitude, minimum longitude, maximum latitude and maximum longitude
+   */
+  public static double[] findCellBounds(String cell) {
+    double minLatitude = -90;
+    double maxLatitude = 90;
+    double minLongitude = -180;
+    double maxLongitude = 180;
+    // Bits alternate between longitude and latitude, longitude first.
+    boolean isLongitudeBit = true;
+    for (char character : cell.toCharArray()) {
+      int value = BASE32.indexOf(character);
+      if (value < 0) {
+        throw new IllegalArgumentException("not a geohash: " + cell);
+      }
+      for (int bit = 4; bit >= 0; bit--) {
+        boolean isUpperHalf = ((value >> bit) & 1) == 1;
+        if (isLongitudeBit) {
+          double middle = (minLongitude + maxLongitude) / 2;
+          minLongitude = isUpperHalf ? middle : minLongitude;
+          maxLongitude = isUpperHalf ? maxLongitude : middle;
+        } else {
+          double middle = (minLatitude + maxLatitude) / 2;
+          minLatitude = isUpperHalf ? middle : minLatitude;
+          maxLatitude = isUpperHalf ? maxLatitude : middle;
+        }
+        isLongitudeBit = !isLongitudeBit;
+      }
+    }
+    return new double[] {minLatitude, minLongitude, maxLatitude, maxLongitude};
+  }
+
+  private static double findLatitudeDelta(double radiusInKms) {
+    return Math.toDegrees(radiusInKms / GeoUtils.EARTH_RADIUS_IN_KMS) * SLACK;
+  }
+
+  private static double findLongitudeDelta(double latitude, double radiusInKms) {
+    double angularRadius = radiusInKms / GeoUtils.EARTH_RADIUS_IN_KMS;
+    double sinRatio = Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude));
+    return angularRadius < Math.PI / 2 && sinRatio < 1
+        ? Math.toDegrees(Math.asin(sinRatio)) * SLACK : 180;
+  }
+
+  /**
+   * Geohash cells of one precision seen as a rows x columns grid over the whole earth.
+   */
+  private static final class CellGrid {
+
+    final long rows;
+    final long columns;
+    final double cellHeight;
+    final double cellWidth;
+
+    CellGrid(int precision) {
+      int bits = 5 * precision;
+      rows = 1L << (bits / 2);
+      columns = 1L << ((bits + 1) / 2);
+      cellHeight = 180.0 / rows;
+      cellWidth = 360.0 / columns;
+    }
+
+    long rowOf(double latitude) {
+      return Math.max(0, Math.min(rows - 1, (long) Math.floor((latitude + 90) / cellHeight)));
+    }
+
+    long unwrappedColumnOf(double longitude) {
+      return (long) Math.floor((longitude + 180) / cellWidth);
+    }
+
+    double centerLatitudeOf(long row) {
+      return -90 + (row + 0.5) * cellHeight;
+    }
+
+    double centerLongitudeOf(long column) {
+      return -180 + (column + 0.5) * cellWidth;
+    }
+  }
+}
@@ -7,6 +7,9 @@
 
 package com.crio.qeats.utils;
 
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -14,26 +17,75 @@ import lombok.Data;
 @AllArgsConstructor
 public class GeoUtils {
 
+  public static final double EARTH_RADIUS_IN_KMS = 6371;
+
+  // Below this many points, splitting the batch kernel across threads costs more than it saves.
+  public static final int PARALLEL_THRESHOLD = 16384;
+
   public static double findDistanceInKm(double srcLatitude, double srcLongitude,
       double dstLatitude, double dstLongitude) {
-    return distance(srcLatitude, dstLatitude, srcLongitude, dstLongitude, 0, 0);
+    return distance(srcLatitude, dstLatitude, srcLongitude, dstLongitude);
+  }
+
+  /**
+   * Batch version of {@link #findDistanceInKm} over columns of coordinates.
+   * - Points outside the bounding box of the radius are rejected without any trigonometry.
+   * - The rest are measured with the equirectangular approximation, and only the points whose
+   *   approximate distance is close to the radius are measured again with Haversine.
+   * The result is the same as comparing {@link #findDistanceInKm} with the radius for every point.
+   *
+   * @param latitude coordinates of the query point
+   * @param longitude coordinates of the query point
+   * @param radiusInKms search radius
+   * @param latitudes latitude of point i at index i
+   * @param longitudes longitude of point i at index i
+   * @return bit i is set if point i is strictly closer than radiusInKms
+   */
+  public static BitSet findWithinRadius(double latitude, double longitude, double radiusInKms,
+      double[] latitudes, double[] longitudes) {
+    return new RadiusQuery(latitude, longitude, radiusInKms)
+        .scan(latitudes, longitudes, null, 0, latitudes.length);
+  }
+
+  /**
+   * Same as {@link #findWithinRadius(double, double, double, double[], double[])} but only looks
+   * at the given subset of the points.
+   *
+   * @param candidates indexes of the points to look at
+   * @return bit i is set if i is one of the candidates and point i is strictly closer than
+   *     radiusInKms
+   */
+  public static BitSet findWithinRadius(double latitude, double longitude, double radiusInKms,
+      double[] latitudes, double[] longitudes, int[] candidates) {
+    return new RadiusQuery(latitude, longitude, radiusInKms)
+        .scan(latitudes, longitudes, candidates, 0, candidates.length);
+  }
+
+  /**
+   * Fork-join version of {@link #findWithinRadius(double, double, double, double[], double[],
+   * int[])} for large candidate sets; runs on the common pool.
+   *
+   * @param candidates indexes of the points to look at, or null to look at all of them
+   */
+  public static BitSet findWithinRadiusInParallel(double latitude, double longitude,
+      double radiusInKms, double[] latitudes, double[] longitudes, int[] candidates) {
+    RadiusQuery radiusQuery = new RadiusQuery(latitude, longitude, radiusInKms);
+    int size = candidates == null ? latitudes.length : candidates.length;
+    return ForkJoinPool.commonPool().invoke(
+        new RadiusScanTask(radiusQuery, latitudes, longitudes, candidates, 0, size));
   }
 
   /**
-   * THIS IS BORROWED CODE. Calculate distance between two points in latitude and longitude taking
-   * into account height difference. If you are not interested in height difference pass 0.0. Uses
-   * Haversine method as its base.
+   * THIS IS BORROWED CODE. Calculate distance between two points in latitude and longitude using
+   * the Haversine method.
    *
-   * <p>lat1, lon1 Start point lat2, lon2 End point el1 Start altitude in meters el2 End altitude
-   * in
-   * meters
+   * <p>lat1, lon1 Start point lat2, lon2 End point
    *
    * @returns Distance in Kilo Meters
    */
-  private static double distance(
-      double lat1, double lat2, double lon1, double lon2, double el1, double el2) {
+  private static double distance(double lat1, double lat2, double lon1, double lon2) {
 
-    final int R = 6371; // Radius of the earth
+    final double R = EARTH_RADIUS_IN_KMS; // Radius of the earth
 
     double latDistance = Math.toRadians(lat2 - lat1);
     double lonDistance = Math.toRadians(lon2 - lon1);
@@ -44,12 +96,127 @@ public class GeoUtils {
             * Math.sin(lonDistance / 2)
             * Math.sin(lonDistance / 2);
     double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-    double distance = R * c;
+    return R * c;
+  }
+
+  /**
+   * Everything about a radius query that does not depend on the point being tested.
+   */
+  private static final class RadiusQuery {
+
+    // Equirectangular distances within this fraction of the radius are re-checked with Haversine.
+    private static final double MIN_EXACT_BAND = 0.01;
+
+    private static final double BOUNDING_BOX_SLACK = 1 + 1e-9;
+
+    private final double latitude;
+    private final double longitude;
+    private final double radiusInKms;
+    private final double latitudeDelta;
+    private final double longitudeDelta;
+    private final double cosLatitude;
+    private final double surelyInsideSquared;
+    private final double surelyOutsideSquared;
+
+    RadiusQuery(double latitude, double longitude, double radiusInKms) {
+      this.latitude = latitude;
+      this.longitude = longitude;
+      this.radiusInKms = radiusInKms;
+
+      double angularRadius = radiusInKms / EARTH_RADIUS_IN_KMS;
+      double latitudeInRadians = Math.toRadians(latitude);
+      cosLatitude = Math.cos(latitudeInRadians);
+      // Slightly widened so that rounding never rejects a point Haversine would accept.
+      latitudeDelta = Math.toDegrees(angularRadius) * BOUNDING_BOX_SLACK;
+      // Widest longitude span of the circle; the circle contains a pole if it is not defined.
+      double sinRatio = Math.sin(Math.min(angularRadius, Math.PI / 2)) / cosLatitude;
+      longitudeDelta = angularRadius < Math.PI / 2 && sinRatio < 1
+          ? Math.toDegrees(Math.asin(sinRatio)) * BOUNDING_BOX_SLACK : 180;
+
+      // The approximation scales longitude by the cosine of the query latitude, which drifts from
+      // the cosine at the point as the point moves away; widen the exact band accordingly.
+      double farthestLatitude = Math.min(Math.abs(latitudeInRadians) + angularRadius,
+          Math.toRadians(89.9));
+      double band = MIN_EXACT_BAND
+          + 2 * (angularRadius * Math.tan(farthestLatitude) + angularRadius * angularRadius);
+      double radiusSquared = angularRadius * angularRadius;
+      surelyInsideSquared = band < 1 ? radiusSquared * (1 - band) * (1 - band) : -1;
+      surelyOutsideSquared = radiusSquared * (1 + band) * (1 + band);
+    }
+
+    BitSet scan(double[] latitudes, double[] longitudes, int[] candidates, int from, int to) {
+      BitSet matches = new BitSet();
+      for (int position = from; position < to; position++) {
+        int index = candidates == null ? position : candidates[position];
+        if (isWithin(latitudes[index], longitudes[index])) {
+          matches.set(index);
+        }
+      }
+      return matches;
+    }
+
+    private boolean isWithin(double pointLatitude, double pointLongitude) {
+      double latitudeDifference = pointLatitude - latitude;
+      if (Math.abs(latitudeDifference) > latitudeDelta) {
+        return false;
+      }
+      double longitudeDifference = pointLongitude - longitude;
+      if (longitudeDifference > 180) {
+        longitudeDifference -= 360;
+      } else if (longitudeDifference < -180) {
+        longitudeDifference += 360;
+      }
+      if (Math.abs(longitudeDifference) > longitudeDelta) {
+        return false;
+      }
+
+      double x = Math.toRadians(longitudeDifference) * cosLatitude;
+      double y = Math.toRadians(latitudeDifference);
+      double approximateSquared = x * x + y * y;
+      if (approximateSquared < surelyInsideSquared) {
+        return true;
+      }
+      if (approximateSquared > surelyOutsideSquared) {
+        return false;
+      }
+      return findDistanceInKm(latitude, longitude, pointLatitude, pointLongitude) < radiusInKms;
+    }
+  }
+
+  private static final class RadiusScanTask extends RecursiveTask<BitSet> {
+
+    private static final long serialVersionUID = 1L;
 
-    double height = el1 - el2;
+    private final transient RadiusQuery radiusQuery;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int[] candidates;
+    private final int from;
+    private final int to;
 
-    distance = Math.pow(distance, 2) + Math.pow(height, 2);
+    RadiusScanTask(RadiusQuery radiusQuery, double[] latitudes, double[] longitudes,
+        int[] candidates, int from, int to) {
+      this.radiusQuery = radiusQuery;
+      this.latitudes = latitudes;
+      this.longitudes = longitudes;
+      this.candidates = candidates;
+      this.from = from;
+      this.to = to;
+    }
 
-    return Math.sqrt(distance);
+    @Override
+    protected BitSet compute() {
+      if (to - from <= PARALLEL_THRESHOLD) {
+        return radiusQuery.scan(latitudes, longitudes, candidates, from, to);
+      }
+      int middle = (from + to) >>> 1;
+      RadiusScanTask left =
+          new RadiusScanTask(radiusQuery, latitudes, longitudes, candidates, from, middle);
+      left.fork();
+      BitSet matches =
+          new RadiusScanTask(radiusQuery, latitudes, longitudes, candidates, middle, to).compute();
+      matches.or(left.join());
+      return matches;
+    }
   }
 }
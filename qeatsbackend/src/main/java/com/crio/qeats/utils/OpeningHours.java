@@ -0,0 +1,110 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import java.io.Serializable;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening hours of a restaurant as minute-of-day integers.
+ * - A restaurant is open strictly after it opens and strictly before it closes.
+ * - If it closes before it opens, it is open across midnight, e.g. 18:00 - 02:00.
+ * - If it closes when it opens, it is never open.
+ */
+public final class OpeningHours implements Serializable {
+
+  public static final int MINUTES_PER_DAY = 24 * 60;
+
+  private static final long serialVersionUID = 1L;
+  private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+  private final int opensAtMinute;
+  private final int closesAtMinute;
+
+  public OpeningHours(int opensAtMinute, int closesAtMinute) {
+    this.opensAtMinute = opensAtMinute;
+    this.closesAtMinute = closesAtMinute;
+  }
+
+  /**
+   * Parses opening hours in the HH:mm format.
+   * @param opensAt time at which the restaurant opens
+   * @param closesAt time at which the restaurant closes
+   * @return parsed opening hours
+   */
+  public static OpeningHours parse(String opensAt, String closesAt) {
+    return new OpeningHours(parseMinuteOfDay(opensAt), parseMinuteOfDay(closesAt));
+  }
+
+  public int getOpensAtMinute() {
+    return opensAtMinute;
+  }
+
+  public int getClosesAtMinute() {
+    return closesAtMinute;
+  }
+
+  public boolean isOvernight() {
+    return closesAtMinute < opensAtMinute;
+  }
+
+  /**
+   * Checks if the restaurant is open at the given time.
+   */
+  public boolean isOpenAt(LocalTime time) {
+    long nanoOfDay = time.toNanoOfDay();
+    boolean afterOpening = nanoOfDay > opensAtMinute * NANOS_PER_MINUTE;
+    boolean beforeClosing = nanoOfDay < closesAtMinute * NANOS_PER_MINUTE;
+    return isOvernight() ? afterOpening || beforeClosing : afterOpening && beforeClosing;
+  }
+
+  /**
+   * Checks if the restaurant is open at every instant of [fromMinute, toMinute).
+   */
+  public boolean isOpenThroughout(int fromMinute, int toMinute) {
+    if (isOvernight()) {
+      return fromMinute > opensAtMinute || toMinute <= closesAtMinute;
+    }
+    return fromMinute > opensAtMinute && toMinute <= closesAtMinute;
+  }
+
+  /**
+   * Checks if the restaurant is open at some instant of [fromMinute, toMinute).
+   */
+  public boolean isOpenDuring(int fromMinute, int toMinute) {
+    if (isOvernight()) {
+      return toMinute > opensAtMinute || fromMinute < closesAtMinute;
+    }
+    return Math.max(fromMinute, opensAtMinute) < Math.min(toMinute, closesAtMinute);
+  }
+
+  // Hours are stored as HH:mm; anything else goes through LocalTime.parse.
+  private static int parseMinuteOfDay(String time) {
+    if (time.length() == 5 && time.charAt(2) == ':') {
+      int hours = twoDigits(time, 0);
+      int minutes = twoDigits(time, 3);
+      if (hours >= 0 && hours < 24 && minutes >= 0 && minutes < 60) {
+        return hours * 60 + minutes;
+      }
+    }
+    LocalTime localTime = LocalTime.parse(time);
+    return localTime.getHour() * 60 + localTime.getMinute();
+  }
+
+  private static int twoDigits(String time, int from) {
+    int tens = time.charAt(from) - '0';
+    int units = time.charAt(from + 1) - '0';
+    return tens >= 0 && tens <= 9 && units >= 0 && units <= 9 ? tens * 10 + units : -1;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%02d:%02d-%02d:%02d", opensAtMinute / 60, opensAtMinute % 60,
+        closesAtMinute / 60, closesAtMinute % 60);
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import java.util.Locale;
+
+/**
+ * Forms of a restaurant name derived when the restaurant is written, so that responses and
+ * searches use them as stored.
+ */
+public final class RestaurantNames {
+
+  private RestaurantNames() { /* static helpers */ }
+
+  /**
+   * Returns the name shown to clients, without its non-ASCII characters.
+   * Names which are already ASCII, most of them, are returned as is.
+   */
+  public static String displayNameOf(String name) {
+    if (name == null) {
+      return null;
+    }
+    int firstNonAscii = 0;
+    while (firstNonAscii < name.length() && name.charAt(firstNonAscii) < 0x80) {
+      firstNonAscii++;
+    }
+    if (firstNonAscii == name.length()) {
+      return name;
+    }
+    StringBuilder displayName = new StringBuilder(name.length());
+    displayName.append(name, 0, firstNonAscii);
+    for (int i = firstNonAscii + 1; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c < 0x80) {
+        displayName.append(c);
+      }
+    }
+    return displayName.toString();
+  }
+
+  /**
+   * Returns the name as searches match it, lower-cased as TrigramIndex does.
+   */
+  public static String searchKeyOf(String name) {
+    return name == null ? null : name.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CacheWarmerTest {
+
+  @InjectMocks
+  private CacheWarmer cacheWarmer;
+  @Mock
+  private RestaurantCellCache restaurantCellCacheMock;
+  private Path coordinatesFile;
+
+  @BeforeEach
+  void setup() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    coordinatesFile = Files.createTempFile("coordinates", ".txt");
+    ReflectionTestUtils.setField(cacheWarmer, "coordinatesFile", coordinatesFile.toString());
+    ReflectionTestUtils.setField(cacheWarmer, "maxLocations", 3);
+    ReflectionTestUtils.setField(cacheWarmer, "radiiInKms", new double[] {5.0, 3.0});
+    ReflectionTestUtils.setField(cacheWarmer, "lookupsPerSecond", 1000.0);
+    cacheWarmer.init();
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    cacheWarmer.shutdown();
+    Files.deleteIfExists(coordinatesFile);
+  }
+
+  @Test
+  void warmsFileThenHotLocationsForEveryRadius() throws Exception {
+    Files.write(coordinatesFile, Arrays.asList("# recorded traffic", "22.553640 85.810357",
+        "not coordinates"), StandardCharsets.UTF_8);
+    when(restaurantCellCacheMock.findHotLocations(anyInt())).thenReturn(Arrays.asList(
+        new double[] {12.9, 77.6}, new double[] {19.0, 72.8}));
+
+    assertEquals(3, cacheWarmer.warm());
+
+    verify(restaurantCellCacheMock).findHotLocations(2);
+    for (double radiusInKms : new double[] {5.0, 3.0}) {
+      verify(restaurantCellCacheMock).warm(22.553640, 85.810357, radiusInKms);
+      verify(restaurantCellCacheMock).warm(12.9, 77.6, radiusInKms);
+      verify(restaurantCellCacheMock).warm(19.0, 72.8, radiusInKms);
+    }
+  }
+
+  @Test
+  void failedLocationsDoNotStopWarming() {
+    ReflectionTestUtils.setField(cacheWarmer, "coordinatesFile", "");
+    when(restaurantCellCacheMock.findHotLocations(anyInt())).thenReturn(Arrays.asList(
+        new double[] {12.9, 77.6}, new double[] {19.0, 72.8}));
+    doThrow(new IllegalStateException("mongo down"))
+        .when(restaurantCellCacheMock).warm(eq(12.9), eq(77.6), anyDouble());
+
+    assertEquals(1, cacheWarmer.warm());
+
+    verify(restaurantCellCacheMock, times(2)).warm(eq(19.0), eq(72.8), anyDouble());
+  }
+
+  @Test
+  void missingCoordinatesFileFallsBackToHotLocations() throws Exception {
+    Files.delete(coordinatesFile);
+    when(restaurantCellCacheMock.findHotLocations(3)).thenReturn(Collections.emptyList());
+
+    assertEquals(0, cacheWarmer.warm());
+  }
+}
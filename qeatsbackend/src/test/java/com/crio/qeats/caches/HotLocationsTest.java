@@ -0,0 +1,48 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class HotLocationsTest {
+
+  @Test
+  void nearbyLookupsAreCountedTogetherAndHottestComeFirst() {
+    HotLocations hotLocations = new HotLocations(10);
+    hotLocations.record(12.9001, 77.6001);
+    hotLocations.record(19.0, 72.8);
+    hotLocations.record(19.0001, 72.8002);
+    hotLocations.record(-33.8688, 151.2093);
+    hotLocations.record(-33.8688, 151.2093);
+    hotLocations.record(-33.8688, 151.2093);
+
+    List<double[]> hottest = hotLocations.findHottest(2);
+
+    assertEquals(2, hottest.size());
+    assertArrayEquals(new double[] {-33.869, 151.209}, hottest.get(0), 1e-9);
+    assertArrayEquals(new double[] {19.0, 72.8}, hottest.get(1), 1e-9);
+  }
+
+  @Test
+  void decayForgetsColdLocationsAndMakesRoom() {
+    HotLocations hotLocations = new HotLocations(1);
+    hotLocations.record(12.9, 77.6);
+    hotLocations.record(19.0, 72.8);
+    assertEquals(1, hotLocations.findHottest(10).size());
+
+    hotLocations.decay();
+    hotLocations.record(19.0, 72.8);
+
+    List<double[]> hottest = hotLocations.findHottest(10);
+    assertEquals(1, hottest.size());
+    assertArrayEquals(new double[] {19.0, 72.8}, hottest.get(0), 1e-9);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+class LettuceCacheClientTest {
+
+  private static final int REDIS_PORT = 6391;
+
+  private RedisServer server;
+  private LettuceCacheClient cacheClient;
+
+  @BeforeEach
+  void setup() throws IOException {
+    server = new RedisServer(REDIS_PORT);
+    server.start();
+    cacheClient = new LettuceCacheClient();
+    ReflectionTestUtils.setField(cacheClient, "redisPort", REDIS_PORT);
+    ReflectionTestUtils.setField(cacheClient, "timeoutInMillis", 500L);
+    ReflectionTestUtils.setField(cacheClient, "meterRegistry", new SimpleMeterRegistry());
+    cacheClient.init();
+  }
+
+  @AfterEach
+  void teardown() {
+    cacheClient.shutdown();
+    server.stop();
+  }
+
+  @Test
+  void entriesWrittenWithSetexAreReadBackWithMget() {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put("restaurants:cell:a", "[1]".getBytes(StandardCharsets.UTF_8));
+    entries.put("restaurants:cell:b", "[2]".getBytes(StandardCharsets.UTF_8));
+
+    assertTrue(cacheClient.isAvailable());
+    cacheClient.setex(entries, 60);
+    List<byte[]> values = cacheClient.mget(
+        Arrays.asList("restaurants:cell:a", "restaurants:cell:missing", "restaurants:cell:b"));
+
+    assertArrayEquals(entries.get("restaurants:cell:a"), values.get(0));
+    assertNull(values.get(1));
+    assertArrayEquals(entries.get("restaurants:cell:b"), values.get(2));
+    assertEquals(2, cacheClient.countKeys("restaurants:cell:*"));
+  }
+
+  @Test
+  void publishedMessagesReachSubscribers() throws Exception {
+    BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+    try (AutoCloseable subscription = cacheClient.subscribe("invalidations", messages::add)) {
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        while (messages.isEmpty()) {
+          cacheClient.publish("invalidations", "cell");
+          Thread.sleep(50);
+        }
+      });
+    }
+
+    assertEquals("cell", messages.poll());
+  }
+
+  @Test
+  void deletedKeysAreGone() {
+    cacheClient.setex(Collections.singletonMap("restaurants:cell:a",
+        "[1]".getBytes(StandardCharsets.UTF_8)), 60);
+    cacheClient.delete(Arrays.asList("restaurants:cell:a", "restaurants:cell:missing"));
+
+    assertNull(cacheClient.mget(Collections.singletonList("restaurants:cell:a")).get(0));
+  }
+
+  @Test
+  void cacheIsUnavailableWhileRedisIsDown() {
+    server.stop();
+
+    assertFalse(cacheClient.isAvailable());
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.models.MenuEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class MenuResponseCacheTest {
+
+  @Mock
+  private CacheClient cacheClientMock;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final Function<String, GetMenuResponse> loader = restaurantId -> {
+    loads.incrementAndGet();
+    return "404".equals(restaurantId) ? null : new GetMenuResponse(menu(restaurantId));
+  };
+  private MenuResponseCache menuResponseCache;
+
+  @BeforeEach
+  void setup() {
+    MockitoAnnotations.initMocks(this);
+    when(cacheClientMock.isAvailable()).thenReturn(true);
+    when(cacheClientMock.subscribe(any(), any())).thenReturn(() -> { });
+    when(cacheClientMock.mget(any())).thenReturn(Collections.singletonList(null));
+
+    menuResponseCache = new MenuResponseCache();
+    ReflectionTestUtils.setField(menuResponseCache, "nearCacheMaxEntries", 100L);
+    ReflectionTestUtils.setField(menuResponseCache, "expiryInSeconds", 60);
+    ReflectionTestUtils.setField(menuResponseCache, "cacheClient", cacheClientMock);
+    ReflectionTestUtils.setField(menuResponseCache, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(menuResponseCache, "meterRegistry", new SimpleMeterRegistry());
+    menuResponseCache.init();
+  }
+
+  @Test
+  void missedMenusAreSerializedOnceAndWrittenToRedis() throws Exception {
+    MenuResponse menuResponse = menuResponseCache.getMenuResponse("11", loader);
+
+    assertSame(menuResponse, menuResponseCache.getMenuResponse("11", loader));
+    assertEquals(1, loads.get());
+    assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(
+        new GetMenuResponse(menu("11")))), objectMapper.readTree(menuResponse.getJson()));
+    verify(cacheClientMock).setex(
+        Collections.singletonMap(MenuResponseCache.keyOf("11"), menuResponse.getGzippedJson()),
+        60);
+  }
+
+  @Test
+  void redisMenusAreServedAsStoredWithTheSameEtag() throws Exception {
+    MenuResponse original = MenuResponse.of(
+        objectMapper.writeValueAsBytes(new GetMenuResponse(menu("11"))));
+    when(cacheClientMock.mget(Collections.singletonList(MenuResponseCache.keyOf("11"))))
+        .thenReturn(Collections.singletonList(original.getGzippedJson()));
+
+    MenuResponse menuResponse = menuResponseCache.getMenuResponse("11", loader);
+
+    assertEquals(0, loads.get());
+    assertArrayEquals(original.getGzippedJson(), menuResponse.getGzippedJson());
+    assertEquals(original.getEtag(true), menuResponse.getEtag(true));
+    assertTrue(menuResponse.isNotModified("W/" + original.getEtag(false)));
+    verify(cacheClientMock, never()).setex(anyMap(), anyInt());
+  }
+
+  @Test
+  void missingMenusAreNotCached() {
+    assertNull(menuResponseCache.getMenuResponse("404", loader));
+    assertNull(menuResponseCache.getMenuResponse("404", loader));
+
+    assertEquals(2, loads.get());
+    verify(cacheClientMock, never()).setex(anyMap(), anyInt());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void savedMenusAreEvictedEverywhere() {
+    ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+    verify(cacheClientMock).subscribe(eq(MenuResponseCache.INVALIDATION_CHANNEL),
+        listener.capture());
+    menuResponseCache.getMenuResponse("11", loader);
+    menuResponseCache.getMenuResponse("12", loader);
+
+    menuResponseCache.onAfterSave(new AfterSaveEvent<>(menu("11"), null, "menus"));
+    listener.getValue().accept("12");
+    menuResponseCache.getMenuResponse("11", loader);
+    menuResponseCache.getMenuResponse("12", loader);
+
+    assertEquals(4, loads.get());
+    verify(cacheClientMock).delete(Collections.singletonList(MenuResponseCache.keyOf("11")));
+    verify(cacheClientMock).publish(MenuResponseCache.INVALIDATION_CHANNEL, "11");
+  }
+
+  private static MenuEntity menu(String restaurantId) {
+    Item item = new Item();
+    item.setItemId("1");
+    item.setName("Chicken Briyani");
+    item.setPrice(225);
+    return new MenuEntity(null, restaurantId, Collections.singletonList(item));
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.BenchmarkHelpers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
+import redis.embedded.RedisServer;
+
+/**
+ * Bytes stored, Redis memory and encode/decode time of each cache format for a cell of 200
+ * restaurants, against the JSON string written by a new ObjectMapper that the cache used first.
+ */
+@Tag("benchmark")
+class RestaurantCellCodecBenchmark {
+
+  private static final int REDIS_PORT = 6392;
+  private static final int RESTAURANTS_PER_CELL = 200;
+  private static final int CELLS_IN_REDIS = 1000;
+  private static final int ITERATIONS = 2000;
+
+  private final List<RestaurantEntity> restaurants =
+      RestaurantCellCodecTest.restaurants(RESTAURANTS_PER_CELL);
+  private RedisServer server;
+  private Jedis jedis;
+
+  @BeforeEach
+  void setup() throws IOException {
+    server = new RedisServer(REDIS_PORT);
+    server.start();
+    jedis = new Jedis("localhost", REDIS_PORT);
+  }
+
+  @AfterEach
+  void teardown() {
+    jedis.close();
+    server.stop();
+  }
+
+  @Test
+  void bytesAndTimePerFormat() throws IOException {
+    byte[] jsonString = new ObjectMapper().writeValueAsString(restaurants)
+        .getBytes(StandardCharsets.UTF_8);
+    report("json string, new ObjectMapper", jsonString);
+    BenchmarkHelpers.measure("json string, new ObjectMapper encode", ITERATIONS, () -> {
+      try {
+        new ObjectMapper().writeValueAsString(restaurants);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    BenchmarkHelpers.measure("json string, new ObjectMapper decode", ITERATIONS, () -> {
+      try {
+        new ObjectMapper().readValue(new String(jsonString, StandardCharsets.UTF_8),
+            RestaurantEntity[].class);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+
+    for (String format : Arrays.asList("json", "smile", "compact")) {
+      run(format, Integer.MAX_VALUE);
+      run(format, 0);
+    }
+  }
+
+  private void run(String format, int compressionThresholdInBytes) throws IOException {
+    RestaurantCellCodec codec = new RestaurantCellCodec();
+    ReflectionTestUtils.setField(codec, "formatName", format);
+    ReflectionTestUtils.setField(codec, "compressionThresholdInBytes",
+        compressionThresholdInBytes);
+    ReflectionTestUtils.setField(codec, "objectMapper", new ObjectMapper());
+    codec.init();
+    String name = format + (compressionThresholdInBytes == 0 ? " + deflate" : "");
+
+    byte[] value = codec.encode(restaurants);
+    assertEquals(restaurants, codec.decode(value));
+    report(name, value);
+    BenchmarkHelpers.measure(name + " encode", ITERATIONS, () -> codec.encode(restaurants));
+    BenchmarkHelpers.measure(name + " decode", ITERATIONS, () -> {
+      try {
+        codec.decode(value);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private void report(String name, byte[] value) {
+    jedis.flushAll();
+    long usedMemory = usedMemory();
+    for (int i = 0; i < CELLS_IN_REDIS; i++) {
+      jedis.setex(("restaurants:cell:" + i).getBytes(StandardCharsets.UTF_8), 3600, value);
+    }
+    long redisBytesPerCell = (usedMemory() - usedMemory) / CELLS_IN_REDIS;
+    System.out.printf("BENCHMARK %-40s bytes=%d redis.bytes=%d%n", name, value.length,
+        redisBytesPerCell);
+  }
+
+  private long usedMemory() {
+    for (String line : jedis.info("memory").split("\r\n")) {
+      if (line.startsWith("used_memory:")) {
+        return Long.parseLong(line.substring("used_memory:".length()));
+      }
+    }
+    throw new IllegalStateException("used_memory missing from INFO");
+  }
+}
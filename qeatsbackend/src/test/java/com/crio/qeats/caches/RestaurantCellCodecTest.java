@@ -0,0 +1,123 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RestaurantCellCodecTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @ParameterizedTest
+  @ValueSource(strings = {"json", "smile", "compact"})
+  void restaurantsSurviveTheRoundTrip(String format) throws IOException {
+    List<RestaurantEntity> restaurants = restaurants(3);
+
+    assertEquals(restaurants, codec(format, Integer.MAX_VALUE).decode(
+        codec(format, Integer.MAX_VALUE).encode(restaurants)));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"json", "smile", "compact"})
+  void largeCellsAreDeflated(String format) throws IOException {
+    List<RestaurantEntity> restaurants = restaurants(200);
+    RestaurantCellCodec codec = codec(format, 1024);
+
+    byte[] value = codec.encode(restaurants);
+
+    assertTrue(value.length < codec(format, Integer.MAX_VALUE).encode(restaurants).length);
+    assertEquals(restaurants, codec.decode(value));
+  }
+
+  @Test
+  void valuesOfEveryFormatAreReadWhateverTheConfiguredOne() throws IOException {
+    List<RestaurantEntity> restaurants = restaurants(2);
+
+    assertEquals(restaurants, codec("json", 0).decode(codec("compact", 0).encode(restaurants)));
+    assertEquals(restaurants, codec("compact", 0).decode(codec("smile", 0).encode(restaurants)));
+  }
+
+  @Test
+  void headerlessJsonArraysAreStillRead() throws IOException {
+    List<RestaurantEntity> restaurants = restaurants(2);
+
+    assertEquals(restaurants, codec("compact", 2048).decode(
+        objectMapper.writeValueAsBytes(restaurants)));
+  }
+
+  @Test
+  void loadTimeIsKeptInTheHeader() throws IOException {
+    List<RestaurantEntity> restaurants = restaurants(2);
+    byte[] value = codec("compact", 0).encode(restaurants, 1234567L);
+
+    assertEquals(1234567L, RestaurantCellCodec.readLoadedAtMillis(value));
+    assertEquals(restaurants, codec("compact", 0).decode(value));
+    assertEquals(0, RestaurantCellCodec.readLoadedAtMillis(
+        objectMapper.writeValueAsBytes(restaurants)));
+  }
+
+  @Test
+  void unknownFormatsAreUnreadable() {
+    byte[] value = {RestaurantCellCodec.MAGIC, 42, 0, '[', ']'};
+
+    assertThrows(IOException.class, () -> codec("compact", 2048).decode(value));
+  }
+
+  @Test
+  void missingFieldsStayMissing() throws IOException {
+    RestaurantEntity restaurant = new RestaurantEntity();
+    restaurant.setRestaurantId("1");
+    restaurant.setAttributes(Collections.emptyList());
+
+    assertEquals(Collections.singletonList(restaurant), codec("compact", 2048).decode(
+        codec("compact", 2048).encode(Collections.singletonList(restaurant))));
+  }
+
+  private RestaurantCellCodec codec(String format, int compressionThresholdInBytes) {
+    RestaurantCellCodec codec = new RestaurantCellCodec();
+    ReflectionTestUtils.setField(codec, "formatName", format);
+    ReflectionTestUtils.setField(codec, "compressionThresholdInBytes",
+        compressionThresholdInBytes);
+    ReflectionTestUtils.setField(codec, "objectMapper", objectMapper);
+    codec.init();
+    return codec;
+  }
+
+  static List<RestaurantEntity> restaurants(int count) {
+    List<RestaurantEntity> restaurants = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      RestaurantEntity restaurant = new RestaurantEntity();
+      restaurant.setId("5c8f8d4b2f1b3a0c" + String.format("%08d", i));
+      restaurant.setRestaurantId(String.valueOf(i));
+      restaurant.setName("Restaurant " + i + (i % 7 == 0 ? " Caf" + (char) 0xE9 : ""));
+      restaurant.setCity("Bengaluru");
+      restaurant.setImageUrl("https://images.qeats.example/restaurants/" + i + ".jpg");
+      restaurant.setLatitude(12.9 + i * 0.0001);
+      restaurant.setLongitude(77.6 + i * 0.0001);
+      restaurant.setOpensAt(i % 2 == 0 ? "10:00" : "08:30");
+      restaurant.setClosesAt(i % 3 == 0 ? "23:00" : "22:00");
+      restaurant.setAttributes(new ArrayList<>(Arrays.asList("North Indian", "Chinese",
+          i % 2 == 0 ? "Fast Food" : "Desserts")));
+      restaurants.add(restaurant);
+    }
+    return restaurants;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.caches;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+  private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+  private final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+  @AfterEach
+  void teardown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void concurrentCallersShareOneLoadPerKey() throws Exception {
+    Set<String> keys = new HashSet<>(Arrays.asList("a", "b"));
+    AtomicInteger loadedKeys = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch everyoneWaiting = new CountDownLatch(1);
+
+    List<CompletableFuture<Map<String, String>>> results = IntStream.range(0, 16)
+        .mapToObj(i -> CompletableFuture.supplyAsync(() -> singleFlight.load(keys, ownKeys -> {
+          loadedKeys.addAndGet(ownKeys.size());
+          loading.countDown();
+          await(everyoneWaiting);
+          return values(ownKeys);
+        }, 5000), executor))
+        .collect(Collectors.toList());
+    assertTrue(loading.await(5, TimeUnit.SECONDS));
+    Thread.sleep(200);
+    everyoneWaiting.countDown();
+
+    for (CompletableFuture<Map<String, String>> result : results) {
+      assertEquals(values(keys), result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(2, loadedKeys.get());
+  }
+
+  @Test
+  void waitersGiveUpOnFailedLoads() throws Exception {
+    Set<String> keys = Collections.singleton("a");
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch failing = new CountDownLatch(1);
+
+    CompletableFuture<Map<String, String>> failed = CompletableFuture.supplyAsync(
+        () -> singleFlight.load(keys, ownKeys -> {
+          loading.countDown();
+          await(failing);
+          throw new CacheException("redis is unreachable");
+        }, 5000), executor);
+    assertTrue(loading.await(5, TimeUnit.SECONDS));
+    CompletableFuture<Map<String, String>> waiting = CompletableFuture.supplyAsync(
+        () -> singleFlight.load(keys, ownKeys -> values(ownKeys), 5000), executor);
+    Thread.sleep(200);
+    failing.countDown();
+
+    assertThrows(Exception.class, () -> failed.get(5, TimeUnit.SECONDS));
+    assertTrue(waiting.get(5, TimeUnit.SECONDS).isEmpty());
+    // Nothing is left in flight: the next caller loads.
+    assertEquals(values(keys), singleFlight.load(keys, ownKeys -> values(ownKeys), 5000));
+  }
+
+  private static Map<String, String> values(Set<String> keys) {
+    Map<String, String> values = new HashMap<>();
+    keys.forEach(key -> values.put(key, "value of " + key));
+    return values;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
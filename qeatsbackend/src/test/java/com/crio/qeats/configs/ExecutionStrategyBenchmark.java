@@ -0,0 +1,109 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.crio.qeats.utils.BenchmarkHelpers;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Throughput and latency of each {@link ExecutionStrategy} with 1000 requests in flight.
+ * Every request runs on the request executor and fans out four sub-searches which block for
+ * 10ms each, like a Mongo query, on the search executor. Pool sizes are the production defaults:
+ * 200 request threads, as in Tomcat, and 16 search threads. Sub-searches the bounded search pool
+ * rejects are counted and skipped, as the multi-threaded search does.
+ */
+@Tag("benchmark")
+class ExecutionStrategyBenchmark {
+
+  private static final int CONNECTIONS = 1000;
+  private static final int REQUESTS = 20000;
+  private static final int SUB_SEARCHES = 4;
+  private static final long IO_LATENCY_IN_MILLIS = 10;
+
+  @Test
+  void throughputAndLatencyPerStrategy() throws InterruptedException {
+    for (ExecutionStrategy strategy : ExecutionStrategy.values()) {
+      if (strategy == ExecutionStrategy.VIRTUAL && !ExecutionStrategy.isVirtualThreadSupported()) {
+        System.out.printf("BENCHMARK %-40s skipped, needs Java 21%n", strategy);
+        continue;
+      }
+      run(strategy);
+    }
+  }
+
+  private void run(ExecutionStrategy strategy) throws InterruptedException {
+    ExecutorService requestExecutor =
+        strategy.newExecutor("benchmark-request-", 200, CONNECTIONS);
+    ExecutorService searchExecutor = strategy.newExecutor("benchmark-search-", 16, 256);
+    Semaphore connections = new Semaphore(CONNECTIONS);
+    CountDownLatch done = new CountDownLatch(REQUESTS);
+    AtomicInteger completedSubSearches = new AtomicInteger();
+    AtomicInteger rejectedSubSearches = new AtomicInteger();
+    long[] latencies = new long[REQUESTS];
+
+    long startTime = System.nanoTime();
+    for (int i = 0; i < REQUESTS; i++) {
+      connections.acquire();
+      int request = i;
+      long arrivalTime = System.nanoTime();
+      requestExecutor.execute(() -> {
+        try {
+          completedSubSearches.addAndGet(handleRequest(searchExecutor, rejectedSubSearches));
+        } finally {
+          latencies[request] = System.nanoTime() - arrivalTime;
+          connections.release();
+          done.countDown();
+        }
+      });
+    }
+    done.await();
+    long elapsedTime = System.nanoTime() - startTime;
+    requestExecutor.shutdown();
+    searchExecutor.shutdown();
+
+    assertEquals(REQUESTS * SUB_SEARCHES,
+        completedSubSearches.get() + rejectedSubSearches.get());
+    Arrays.sort(latencies);
+    BenchmarkHelpers.report(strategy + ", " + CONNECTIONS + " connections", latencies);
+    System.out.printf("BENCHMARK %-40s throughput=%.0f requests/s rejected=%d sub-searches%n",
+        strategy, REQUESTS / (elapsedTime / (double) TimeUnit.SECONDS.toNanos(1)),
+        rejectedSubSearches.get());
+  }
+
+  private static int handleRequest(ExecutorService searchExecutor,
+      AtomicInteger rejectedSubSearches) {
+    List<CompletableFuture<Integer>> subSearches = new ArrayList<>();
+    for (int i = 0; i < SUB_SEARCHES; i++) {
+      try {
+        subSearches.add(CompletableFuture.supplyAsync(() -> {
+          try {
+            Thread.sleep(IO_LATENCY_IN_MILLIS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return 1;
+        }, searchExecutor));
+      } catch (RejectedExecutionException e) {
+        rejectedSubSearches.incrementAndGet();
+      }
+    }
+    return subSearches.stream().mapToInt(CompletableFuture::join).sum();
+  }
+}
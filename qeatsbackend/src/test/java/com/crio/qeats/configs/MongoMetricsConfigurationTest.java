@@ -0,0 +1,77 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionAddedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolOpenedEvent;
+import com.mongodb.event.ConnectionPoolWaitQueueEnteredEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MongoMetricsConfigurationTest {
+
+  private final ServerId serverId = new ServerId(new ClusterId(), new ServerAddress());
+  private SimpleMeterRegistry meterRegistry;
+  private MongoMetricsConfiguration.PoolMetrics poolMetrics;
+
+  @BeforeEach
+  void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    poolMetrics = new MongoMetricsConfiguration.PoolMetrics("blocking", meterRegistry);
+    poolMetrics.connectionPoolOpened(new ConnectionPoolOpenedEvent(serverId,
+        ConnectionPoolSettings.builder().maxSize(2).build()));
+  }
+
+  @Test
+  void gaugesFollowConnectionsInAndOutOfThePool() {
+    ConnectionId first = new ConnectionId(serverId);
+    ConnectionId second = new ConnectionId(serverId);
+    poolMetrics.connectionAdded(new ConnectionAddedEvent(first));
+    poolMetrics.connectionAdded(new ConnectionAddedEvent(second));
+    poolMetrics.connectionCheckedOut(new ConnectionCheckedOutEvent(first));
+    poolMetrics.connectionCheckedOut(new ConnectionCheckedOutEvent(second));
+    poolMetrics.connectionCheckedIn(new ConnectionCheckedInEvent(second));
+    poolMetrics.waitQueueEntered(new ConnectionPoolWaitQueueEnteredEvent(serverId));
+
+    assertEquals(2, connections("size"));
+    assertEquals(1, connections("checked-out"));
+    assertEquals(1, connections("waiting"));
+    assertEquals(2, connections("max"));
+  }
+
+  @Test
+  void gaugesReadZeroOnceThePoolIsClosed() {
+    ConnectionId connectionId = new ConnectionId(serverId);
+    poolMetrics.connectionAdded(new ConnectionAddedEvent(connectionId));
+    poolMetrics.connectionCheckedOut(new ConnectionCheckedOutEvent(connectionId));
+    poolMetrics.connectionPoolClosed(new ConnectionPoolClosedEvent(serverId));
+
+    assertEquals(0, connections("size"));
+    assertEquals(0, connections("checked-out"));
+    assertEquals(0, connections("max"));
+  }
+
+  private double connections(String state) {
+    return meterRegistry.get("qeats.mongo.pool.connections")
+        .tag("client", "blocking")
+        .tag("server", serverId.getAddress().toString())
+        .tag("state", state)
+        .gauge()
+        .value();
+  }
+}
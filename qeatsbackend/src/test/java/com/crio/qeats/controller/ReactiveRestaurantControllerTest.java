@@ -0,0 +1,158 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import static com.crio.qeats.controller.RestaurantController.RESTAURANTS_API;
+import static com.crio.qeats.controller.RestaurantController.RESTAURANT_API_ENDPOINT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exceptions.InvalidCursorException;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.exchanges.RestaurantsCursor;
+import com.crio.qeats.services.ReactiveRestaurantService;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ReactiveRestaurantControllerTest {
+
+  private static final String RESTAURANT_API_URI = RESTAURANT_API_ENDPOINT + RESTAURANTS_API;
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @Mock
+  private ReactiveRestaurantService reactiveRestaurantService;
+
+  private WebTestClient webTestClient;
+
+  @BeforeEach
+  void setup() {
+    MockitoAnnotations.initMocks(this);
+    // Built by hand, since bindToController does not inject mocks into the controller.
+    webTestClient = WebTestClient
+        .bindToController(new ReactiveRestaurantController(reactiveRestaurantService))
+        .build();
+  }
+
+  @Test
+  void restaurantsCloseByAreWrappedInTheUsualResponse() throws IOException {
+    List<Restaurant> restaurants = loadRestaurantsDuringNormalHours();
+    when(reactiveRestaurantService
+        .findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class), any(LocalTime.class)))
+        .thenReturn(Flux.fromIterable(restaurants));
+
+    GetRestaurantsResponse getRestaurantsResponse = webTestClient.get()
+        .uri(RESTAURANT_API_URI + "?latitude=20.21&longitude=30.31")
+        .accept(MediaType.APPLICATION_JSON_UTF8)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(GetRestaurantsResponse.class)
+        .returnResult().getResponseBody();
+
+    assertEquals(restaurants.size(), getRestaurantsResponse.getRestaurants().size());
+    for (int i = 0; i < restaurants.size(); i++) {
+      assertEquals(restaurants.get(i).getRestaurantId(),
+          getRestaurantsResponse.getRestaurants().get(i).getRestaurantId());
+    }
+  }
+
+  @Test
+  void searchResultsStreamOneRestaurantAtATime() throws IOException {
+    List<Restaurant> restaurants = loadRestaurantsDuringNormalHours();
+    when(reactiveRestaurantService
+        .findRestaurantsBySearchQuery(any(GetRestaurantsRequest.class), any(LocalTime.class)))
+        .thenReturn(Flux.fromIterable(restaurants));
+
+    List<Restaurant> streamedRestaurants = webTestClient.get()
+        .uri(RESTAURANT_API_URI + "?latitude=20.21&longitude=30.31&searchFor=Briyani")
+        .accept(MediaType.APPLICATION_STREAM_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(Restaurant.class)
+        .getResponseBody()
+        .collectList()
+        .block();
+
+    ArgumentCaptor<GetRestaurantsRequest> argumentCaptor = ArgumentCaptor
+        .forClass(GetRestaurantsRequest.class);
+    verify(reactiveRestaurantService, times(1))
+        .findRestaurantsBySearchQuery(argumentCaptor.capture(), any(LocalTime.class));
+    assertEquals("Briyani", argumentCaptor.getValue().getSearchFor());
+    assertEquals(restaurants.size(), streamedRestaurants.size());
+  }
+
+  @Test
+  void restaurantsCloseByArePagedWithALimit() throws IOException {
+    List<Restaurant> restaurants = loadRestaurantsDuringNormalHours().subList(0, 2);
+    when(reactiveRestaurantService
+        .findNearestRestaurants(any(GetRestaurantsRequest.class), any(LocalTime.class)))
+        .thenReturn(Mono.just(new GetRestaurantsResponse(restaurants, "next")));
+
+    GetRestaurantsResponse getRestaurantsResponse = webTestClient.get()
+        .uri(RESTAURANT_API_URI + "?latitude=20.21&longitude=30.31&limit=2")
+        .accept(MediaType.APPLICATION_JSON_UTF8)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(GetRestaurantsResponse.class)
+        .returnResult().getResponseBody();
+
+    ArgumentCaptor<GetRestaurantsRequest> argumentCaptor = ArgumentCaptor
+        .forClass(GetRestaurantsRequest.class);
+    verify(reactiveRestaurantService, times(1))
+        .findNearestRestaurants(argumentCaptor.capture(), any(LocalTime.class));
+    assertEquals(2, argumentCaptor.getValue().getLimit().intValue());
+    assertEquals(2, getRestaurantsResponse.getRestaurants().size());
+    assertEquals("next", getRestaurantsResponse.getNextCursor());
+  }
+
+  @Test
+  void cursorOfAnotherLocationResultsInBadHttpRequest() {
+    when(reactiveRestaurantService
+        .findNearestRestaurants(any(GetRestaurantsRequest.class), any(LocalTime.class)))
+        .thenReturn(Mono.error(new InvalidCursorException("cursor of another location")));
+
+    webTestClient.get()
+        .uri(RESTAURANT_API_URI + "?latitude=20.21&longitude=30.31&limit=2&cursor="
+            + new RestaurantsCursor(0, 1.0, "1").encode())
+        .accept(MediaType.APPLICATION_JSON_UTF8)
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  void invalidLatitudeResultsInBadHttpRequest() {
+    webTestClient.get()
+        .uri(RESTAURANT_API_URI + "?latitude=91&longitude=30.31")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  private List<Restaurant> loadRestaurantsDuringNormalHours() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/normal_hours_list_of_restaurants.json");
+
+    return new ObjectMapper().readValue(fixture, new TypeReference<List<Restaurant>>() {
+    });
+  }
+}
@@ -15,9 +15,16 @@ import static com.crio.qeats.controller.RestaurantController.MENU_API;
 import static com.crio.qeats.controller.RestaurantController.POST_ORDER_API;
 import static com.crio.qeats.controller.RestaurantController.RESTAURANTS_API;
 import static com.crio.qeats.controller.RestaurantController.RESTAURANT_API_ENDPOINT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -30,30 +37,41 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.caches.MenuResponse;
+import com.crio.qeats.caches.MenuResponseCache;
+import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.log.PayloadLogSampler;
 import com.crio.qeats.services.RestaurantService;
 import com.crio.qeats.utils.FixtureHelpers;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -81,6 +99,12 @@ public class RestaurantControllerTest {
   @MockBean
   private RestaurantService restaurantService;
 
+  @Mock
+  private MenuResponseCache menuResponseCache;
+
+  @Mock
+  private PayloadLogSampler payloadLogSampler;
+
 
   @InjectMocks
   private RestaurantController restaurantController;
@@ -298,6 +322,148 @@ public class RestaurantControllerTest {
     assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
   }
 
+  @Test
+  public void unchangedRestaurantsResultInNotModified() throws Exception {
+    when(restaurantService
+        .findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class), any(LocalTime.class)))
+        .thenReturn(loadSampleResponseList(), loadSampleResponseList());
+
+    MockHttpServletResponse response = mvc.perform(get(RESTAURANT_API_URI)
+        .param("latitude", "20.21")
+        .param("longitude", "30.31")
+    ).andReturn().getResponse();
+    String etag = response.getHeader(HttpHeaders.ETAG);
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertTrue(etag.startsWith("W/\""));
+    assertTrue(response.getHeader(HttpHeaders.CACHE_CONTROL).contains("public"));
+
+    response = mvc.perform(get(RESTAURANT_API_URI)
+        .param("latitude", "20.21")
+        .param("longitude", "30.31")
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+    assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  public void changedRestaurantsResultInNewEtag() throws Exception {
+    GetRestaurantsResponse changedResponse = loadSampleResponseList();
+    changedResponse.getRestaurants().get(0).setOpensAt("11:00");
+    when(restaurantService
+        .findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class), any(LocalTime.class)))
+        .thenReturn(loadSampleResponseList(), changedResponse);
+
+    String etag = mvc.perform(get(RESTAURANT_API_URI)
+        .param("latitude", "20.21")
+        .param("longitude", "30.31")
+    ).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    MockHttpServletResponse response = mvc.perform(get(RESTAURANT_API_URI)
+        .param("latitude", "20.21")
+        .param("longitude", "30.31")
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+  }
+
+  @Test
+  public void streamedRestaurantsMatchBufferedOnes() throws Exception {
+    GetRestaurantsResponse sampleResponse = loadSampleResponseList();
+    doAnswer(invocation -> {
+      Consumer<Restaurant> restaurantConsumer = invocation.getArgument(2);
+      loadSampleResponseList().getRestaurants().forEach(restaurantConsumer);
+      return null;
+    }).when(restaurantService).findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class), any());
+    enableStreaming(1 << 20);
+
+    MockHttpServletResponse response = mvc.perform(get(RESTAURANT_API_URI)
+        .param("latitude", "20.21")
+        .param("longitude", "30.31")
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+    assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(sampleResponse)),
+        objectMapper.readTree(response.getContentAsByteArray()));
+  }
+
+  @Test
+  public void streamedRestaurantsAreCompressedPastTheThreshold() throws Exception {
+    doAnswer(invocation -> {
+      Consumer<Restaurant> restaurantConsumer = invocation.getArgument(2);
+      loadSampleResponseList().getRestaurants().forEach(restaurantConsumer);
+      return null;
+    }).when(restaurantService).findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class), any());
+    enableStreaming(16);
+
+    MockHttpServletResponse response = mvc.perform(get(RESTAURANT_API_URI)
+        .param("latitude", "20.21")
+        .param("longitude", "30.31")
+        .header(HttpHeaders.ACCEPT_ENCODING, "deflate;q=0.5, gzip")
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+    try (InputStream body = new GZIPInputStream(
+        new ByteArrayInputStream(response.getContentAsByteArray()))) {
+      assertEquals(loadSampleResponseList().getRestaurants().size(),
+          objectMapper.readValue(body, GetRestaurantsResponse.class).getRestaurants().size());
+    }
+  }
+
+  @Test
+  public void menuIsServedGzippedWithStrongEtag() throws Exception {
+    MenuResponse menuResponse = MenuResponse.of(
+        FixtureHelpers.fixture(FIXTURES + "/get_menu_response.json").getBytes(UTF_8));
+    when(menuResponseCache.getMenuResponse(eq("11"), any())).thenReturn(menuResponse);
+
+    MockHttpServletResponse response = mvc.perform(get(MENU_API_URI)
+        .param("restaurantId", "11")
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(menuResponse.getEtag(true), response.getHeader(HttpHeaders.ETAG));
+    assertArrayEquals(menuResponse.getGzippedJson(), response.getContentAsByteArray());
+  }
+
+  @Test
+  public void currentMenuEtagResultsInNotModified() throws Exception {
+    MenuResponse menuResponse = MenuResponse.of(
+        FixtureHelpers.fixture(FIXTURES + "/get_menu_response.json").getBytes(UTF_8));
+    when(menuResponseCache.getMenuResponse(eq("11"), any())).thenReturn(menuResponse);
+
+    MockHttpServletResponse response = mvc.perform(get(MENU_API_URI)
+        .param("restaurantId", "11")
+        .header(HttpHeaders.IF_NONE_MATCH, menuResponse.getEtag(false))
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+    assertEquals(menuResponse.getEtag(false), response.getHeader(HttpHeaders.ETAG));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  public void missingMenuResultsInNotFound() throws Exception {
+    when(menuResponseCache.getMenuResponse(eq("404"), any())).thenReturn(null);
+
+    MockHttpServletResponse response = mvc.perform(get(MENU_API_URI)
+        .param("restaurantId", "404")
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+  }
+
   @Test
   public void missingLatitudeParamResultsInBadHttpRequest() throws Exception {
     URI uri = UriComponentsBuilder
@@ -316,6 +482,13 @@ public class RestaurantControllerTest {
 
 
 
+  private void enableStreaming(int compressionThresholdInBytes) {
+    ReflectionTestUtils.setField(restaurantController, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(restaurantController, "streamingEnabled", true);
+    ReflectionTestUtils.setField(restaurantController, "compressionThresholdInBytes",
+        compressionThresholdInBytes);
+  }
+
   private GetRestaurantsResponse loadSampleResponseList() throws IOException {
     String fixture =
         FixtureHelpers.fixture(FIXTURES + "/list_restaurant_response.json");
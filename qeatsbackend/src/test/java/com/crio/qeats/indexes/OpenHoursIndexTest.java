@@ -0,0 +1,69 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.indexes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.utils.OpeningHours;
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class OpenHoursIndexTest {
+
+  @Test
+  void restaurantClosingAfterMidnightIsOpenAcrossMidnight() {
+    OpeningHours openingHours = OpeningHours.parse("18:00", "02:00");
+
+    assertTrue(openingHours.isOvernight());
+    assertFalse(openingHours.isOpenAt(LocalTime.of(18, 0)));
+    assertTrue(openingHours.isOpenAt(LocalTime.of(18, 1)));
+    assertTrue(openingHours.isOpenAt(LocalTime.of(23, 59)));
+    assertTrue(openingHours.isOpenAt(LocalTime.of(1, 59)));
+    assertFalse(openingHours.isOpenAt(LocalTime.of(2, 0)));
+    assertFalse(openingHours.isOpenAt(LocalTime.of(12, 0)));
+  }
+
+  @Test
+  void openingAndClosingTimesAreExclusive() {
+    OpeningHours openingHours = OpeningHours.parse("10:00", "23:00");
+
+    assertFalse(openingHours.isOpenAt(LocalTime.of(10, 0)));
+    assertTrue(openingHours.isOpenAt(LocalTime.of(10, 0, 1)));
+    assertTrue(openingHours.isOpenAt(LocalTime.of(22, 59, 59)));
+    assertFalse(openingHours.isOpenAt(LocalTime.of(23, 0)));
+    assertFalse(openingHours.isOpenAt(LocalTime.of(23, 1)));
+  }
+
+  @Test
+  void indexAgreesWithOpeningHoursAtEveryMinute() {
+    Random random = new Random(7);
+    OpeningHours[] openingHours = new OpeningHours[500];
+    for (int i = 0; i < openingHours.length; i++) {
+      openingHours[i] = new OpeningHours(random.nextInt(OpeningHours.MINUTES_PER_DAY),
+          random.nextInt(OpeningHours.MINUTES_PER_DAY));
+    }
+    OpenHoursIndex openHoursIndex = new OpenHoursIndex(openingHours);
+
+    for (int minute = 0; minute < OpeningHours.MINUTES_PER_DAY; minute++) {
+      for (int second : new int[] {0, 30}) {
+        LocalTime time = LocalTime.of(minute / 60, minute % 60, second);
+        BitSet candidates = new BitSet();
+        candidates.set(0, openingHours.length);
+        openHoursIndex.retainOpenAt(candidates, time);
+
+        for (int i = 0; i < openingHours.length; i++) {
+          assertEquals(openingHours[i].isOpenAt(time), candidates.get(i),
+              openingHours[i] + " at " + time);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.indexes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.MenuRepository;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+
+@ExtendWith(MockitoExtension.class)
+class RestaurantSearchIndexTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @Mock
+  private RestaurantRepository restaurantRepository;
+
+  @Mock
+  private MenuRepository menuRepository;
+
+  @InjectMocks
+  private RestaurantSearchIndex restaurantSearchIndex;
+
+  private List<RestaurantEntity> allRestaurants;
+
+  @BeforeEach
+  void setup() throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    allRestaurants = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json"),
+        new TypeReference<List<RestaurantEntity>>() {
+        });
+    List<MenuEntity> allMenus = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_menus.json"),
+        new TypeReference<List<MenuEntity>>() {
+        });
+    when(restaurantRepository.findAll()).thenReturn(allRestaurants);
+    when(menuRepository.findAll()).thenReturn(allMenus);
+  }
+
+  @Test
+  void nameMatchesAreCaseInsensitiveSubstrings() {
+    assertEquals(Arrays.asList("10", "11", "12", "13", "14"),
+        restaurantIdsOf(restaurantSearchIndex.findRestaurantsByName("a2b")));
+    assertEquals(Arrays.asList("14"),
+        restaurantIdsOf(restaurantSearchIndex.findRestaurantsByName("ANANDA")));
+    assertEquals(Arrays.asList(),
+        restaurantIdsOf(restaurantSearchIndex.findRestaurantsByName("Dosa")));
+  }
+
+  @Test
+  void attributeMatchesAreExact() {
+    assertEquals(5, restaurantSearchIndex.findRestaurantsByAttributes("Tamil").size());
+    assertEquals(0, restaurantSearchIndex.findRestaurantsByAttributes("tamil").size());
+  }
+
+  @Test
+  void exactItemNameMatchesComeFirst() {
+    restaurantSearchIndex.findRestaurantsByItemName("Bri");
+    MenuEntity menuEntity = new MenuEntity();
+    menuEntity.setId("menu-14");
+    menuEntity.setRestaurantId("14");
+    menuEntity.setItems(Arrays.asList(new Item(null, "1", "Briyani", "", Arrays.asList(), 100)));
+    restaurantSearchIndex.onAfterSave(new AfterSaveEvent<>(menuEntity, new Document(), "menus"));
+
+    assertEquals(Arrays.asList("14", "11", "12", "13"),
+        restaurantIdsOf(restaurantSearchIndex.findRestaurantsByItemName("briyani")));
+    assertEquals(Arrays.asList("12"),
+        restaurantIdsOf(restaurantSearchIndex.findRestaurantsByItemName("fish briyani")));
+    // No item is named exactly "Bri", so the partial matches keep the repository order.
+    assertEquals(Arrays.asList("11", "12", "13", "14"),
+        restaurantIdsOf(restaurantSearchIndex.findRestaurantsByItemName("Bri")));
+  }
+
+  @Test
+  void itemAttributeMatchesAreCaseInsensitiveSubstrings() {
+    assertEquals(Arrays.asList("11", "12", "13"),
+        restaurantIdsOf(restaurantSearchIndex.findRestaurantsByItemAttributes("mug")));
+  }
+
+  @Test
+  void savedAndDeletedDocumentsAreAppliedInPlace() {
+    restaurantSearchIndex.findRestaurantsByName("A2B");
+
+    RestaurantEntity renamed =
+        new ObjectMapper().convertValue(allRestaurants.get(0), RestaurantEntity.class);
+    renamed.setName("Saravana Bhavan");
+    restaurantSearchIndex.onAfterSave(
+        new AfterSaveEvent<>(renamed, new Document(), "restaurants"));
+    restaurantSearchIndex.onAfterDelete(new AfterDeleteEvent<>(
+        new Document("_id", allRestaurants.get(4).getId()), RestaurantEntity.class,
+        "restaurants"));
+
+    assertEquals(Arrays.asList("11", "12", "13"),
+        restaurantIdsOf(restaurantSearchIndex.findRestaurantsByName("A2B")));
+    assertEquals(Arrays.asList("10"),
+        restaurantIdsOf(restaurantSearchIndex.findRestaurantsByName("bhavan")));
+    verify(restaurantRepository, times(1)).findAll();
+  }
+
+  private static List<String> restaurantIdsOf(List<RestaurantEntity> restaurants) {
+    return restaurants.stream()
+        .map(RestaurantEntity::getRestaurantId)
+        .collect(Collectors.toList());
+  }
+}
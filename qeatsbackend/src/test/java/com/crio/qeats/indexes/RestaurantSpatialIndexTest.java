@@ -0,0 +1,126 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.indexes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.GeoUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RestaurantSpatialIndexTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @Mock
+  private RestaurantRepository restaurantRepository;
+
+  @InjectMocks
+  private RestaurantSpatialIndex restaurantSpatialIndex;
+
+  @Test
+  void restaurantsCloseByInCollectionOrder() throws IOException {
+    when(restaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    List<RestaurantEntity> restaurants = restaurantSpatialIndex
+        .findRestaurantsWithin(20.0, 30.0, 3.0);
+
+    assertEquals(2, restaurants.size());
+    assertEquals("11", restaurants.get(0).getRestaurantId());
+    assertEquals("12", restaurants.get(1).getRestaurantId());
+  }
+
+  @Test
+  void indexIsBuiltOnceAcrossLookups() throws IOException {
+    when(restaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    restaurantSpatialIndex.findRestaurantsWithin(20.0, 30.0, 3.0);
+    restaurantSpatialIndex.findRestaurantsWithin(20.9, 30.0, 5.0);
+
+    verify(restaurantRepository, times(1)).findAll();
+  }
+
+  @Test
+  void writesAreVisibleFromTheLastCollectionRead() throws IOException {
+    when(restaurantRepository.findAll()).thenReturn(listOfRestaurants());
+    assertEquals(Long.MAX_VALUE, restaurantSpatialIndex.getFreshAsOfMillis());
+
+    long beforeReadInMillis = System.currentTimeMillis();
+    restaurantSpatialIndex.findRestaurantsWithin(20.0, 30.0, 3.0);
+
+    assertTrue(restaurantSpatialIndex.getFreshAsOfMillis() >= beforeReadInMillis);
+    assertTrue(restaurantSpatialIndex.getFreshAsOfMillis() <= System.currentTimeMillis());
+  }
+
+  @Test
+  void sameResultsAsFullScan() {
+    Random random = new Random(42);
+    List<RestaurantEntity> allRestaurants = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      allRestaurants.add(restaurantAt(String.valueOf(i),
+          12.9 + random.nextDouble() * 0.5, 77.5 + random.nextDouble() * 0.5));
+    }
+    // Restaurants straddling the antimeridian.
+    allRestaurants.add(restaurantAt("east", 10.0, 179.99));
+    allRestaurants.add(restaurantAt("west", 10.0, -179.99));
+    when(restaurantRepository.findAll()).thenReturn(allRestaurants);
+
+    for (int i = 0; i < 200; i++) {
+      double latitude = 12.9 + random.nextDouble() * 0.5;
+      double longitude = 77.5 + random.nextDouble() * 0.5;
+      double radiusInKms = i % 2 == 0 ? 3.0 : 5.0;
+      assertEquals(fullScan(allRestaurants, latitude, longitude, radiusInKms),
+          restaurantSpatialIndex.findRestaurantsWithin(latitude, longitude, radiusInKms));
+    }
+    assertEquals(fullScan(allRestaurants, 10.0, 180.0, 5.0),
+        restaurantSpatialIndex.findRestaurantsWithin(10.0, 180.0, 5.0));
+    assertEquals(2, restaurantSpatialIndex.findRestaurantsWithin(10.0, 180.0, 5.0).size());
+  }
+
+  private static List<RestaurantEntity> fullScan(List<RestaurantEntity> restaurants,
+      double latitude, double longitude, double radiusInKms) {
+    return restaurants.stream()
+        .filter(res -> GeoUtils.findDistanceInKm(latitude, longitude,
+            res.getLatitude(), res.getLongitude()) < radiusInKms)
+        .collect(Collectors.toList());
+  }
+
+  private static RestaurantEntity restaurantAt(String restaurantId, double latitude,
+      double longitude) {
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setRestaurantId(restaurantId);
+    restaurantEntity.setLatitude(latitude);
+    restaurantEntity.setLongitude(longitude);
+    return restaurantEntity;
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return new ObjectMapper().readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+}
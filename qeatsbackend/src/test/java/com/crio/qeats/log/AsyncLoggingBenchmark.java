@@ -0,0 +1,119 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.log;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.utils.BenchmarkHelpers;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Time a request thread spends logging a getRestaurants call of 50 restaurants, with the file
+ * appender of log4j2.xml written synchronously, then through the async root logger of
+ * log4j2-async.xml, with every payload and with 1 in 100 of them.
+ * The console appender is left out, it would dominate every mode alike.
+ * Async loggers drop INFO events once their ring buffer is full, so the lines written are
+ * reported along with the latencies.
+ */
+@Tag("benchmark")
+class AsyncLoggingBenchmark {
+
+  private static final int RESTAURANTS_PER_RESPONSE = 50;
+  private static final int ITERATIONS = 20000;
+
+  @Test
+  void overheadPerRequestOfEachLoggingMode() throws IOException {
+    Path directory = Files.createTempDirectory("qeats-logging-benchmark");
+    List<Restaurant> restaurants = restaurants(RESTAURANTS_PER_RESPONSE);
+    run("sync, every payload", directory.resolve("sync-all.log"), false, 1, restaurants);
+    run("async, every payload", directory.resolve("async-all.log"), true, 1, restaurants);
+    run("async, 1 in 100 payloads", directory.resolve("async-sampled.log"), true, 100,
+        restaurants);
+  }
+
+  private void run(String name, Path file, boolean async, int sampleRate,
+      List<Restaurant> restaurants) throws IOException {
+    PayloadLogSampler payloadLogSampler = new PayloadLogSampler();
+    ReflectionTestUtils.setField(payloadLogSampler, "sampleRate", sampleRate);
+    ReflectionTestUtils.setField(payloadLogSampler, "slowThresholdInMillis", 0L);
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(12.9, 77.6);
+
+    LoggerContext context = new LoggerContext(name);
+    context.start(configuration(name, file, async));
+    try {
+      Logger log = context.getLogger("com.crio.qeats.controller.RestaurantController");
+      BenchmarkHelpers.measure(name, ITERATIONS, () -> {
+        // What RestaurantController logs for a request.
+        log.info("getRestaurants called with {}", getRestaurantsRequest);
+        if (payloadLogSampler.shouldLogPayload(0)) {
+          log.info("getRestaurants returned {} restaurants in {}us: {}", restaurants.size(), 0,
+              restaurants);
+        } else {
+          log.debug("getRestaurants returned {} restaurants in {}us", restaurants.size(), 0);
+        }
+      });
+    } finally {
+      context.stop();
+    }
+    try (Stream<String> lines = Files.lines(file)) {
+      System.out.printf("BENCHMARK %-40s lines=%d bytes=%d%n", name, lines.count(),
+          Files.size(file));
+    }
+  }
+
+  private static Configuration configuration(String name, Path file, boolean async) {
+    ConfigurationBuilder<BuiltConfiguration> builder =
+        ConfigurationBuilderFactory.newConfigurationBuilder();
+    builder.setConfigurationName(name);
+    builder.add(builder.newAppender("LogFileAppender", async ? "RandomAccessFile" : "File")
+        .addAttribute("fileName", file.toString())
+        .addAttribute("immediateFlush", !async)
+        .add(builder.newLayout("JsonLayout")
+            .addAttribute("compact", true)
+            .addAttribute("eventEol", true)
+            .addAttribute("includeStacktrace", true)));
+    builder.add((async ? builder.newAsyncRootLogger(Level.INFO)
+        .addAttribute("includeLocation", false) : builder.newRootLogger(Level.INFO))
+        .add(builder.newAppenderRef("LogFileAppender")));
+    return builder.build(false);
+  }
+
+  private static List<Restaurant> restaurants(int count) {
+    List<Restaurant> restaurants = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Restaurant restaurant = new Restaurant();
+      restaurant.setRestaurantId(String.valueOf(10000 + i));
+      restaurant.setName("Restaurant " + i);
+      restaurant.setCity("Bengaluru");
+      restaurant.setImageUrl("https://images.qeats.example/restaurants/" + i + ".jpg");
+      restaurant.setLatitude(12.9 + i * 0.001);
+      restaurant.setLongitude(77.6 + i * 0.001);
+      restaurant.setOpensAt("10:00");
+      restaurant.setClosesAt("23:00");
+      restaurant.setAttributes(Arrays.asList("South Indian", "Cafe"));
+      restaurant.setDistanceKm(i * 0.1);
+      restaurants.add(restaurant);
+    }
+    return restaurants;
+  }
+}
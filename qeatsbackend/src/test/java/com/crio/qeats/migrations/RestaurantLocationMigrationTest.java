@@ -0,0 +1,105 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.migrations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(classes = {QEatsApplication.class})
+@ActiveProfiles("test")
+class RestaurantLocationMigrationTest {
+
+  private static final String COLLECTION = "restaurants";
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private RestaurantRepository restaurantRepository;
+
+  @Autowired
+  private RestaurantLocationMigration restaurantLocationMigration;
+
+  @BeforeEach
+  void setup() {
+    // Written as raw documents, so that RestaurantLocationListener does not fill in location.
+    mongoTemplate.insert(legacyRestaurant("1", 12.9, 77.6), COLLECTION);
+    mongoTemplate.insert(legacyRestaurant("2", 12.91, 77.61), COLLECTION);
+    mongoTemplate.insert(new Document("restaurantId", "no-coordinates"), COLLECTION);
+    mongoTemplate.insert(legacyRestaurant("migrated", 12.92, 77.62)
+        .append("location", new Document("type", "Point")
+            .append("coordinates", Arrays.asList(77.62, 12.92))), COLLECTION);
+  }
+
+  @AfterEach
+  void teardown() {
+    mongoTemplate.dropCollection(COLLECTION);
+  }
+
+  @Test
+  void legacyRestaurantsAreGivenTheirLocation() {
+    assertEquals(2, restaurantLocationMigration.migrate());
+
+    assertEquals(Arrays.asList(77.6, 12.9), coordinatesOf("1"));
+    assertEquals(Arrays.asList(77.61, 12.91), coordinatesOf("2"));
+    assertNull(restaurant("no-coordinates").get("location"));
+  }
+
+  @Test
+  void runningTheMigrationAgainChangesNothing() {
+    restaurantLocationMigration.migrate();
+
+    assertEquals(0, restaurantLocationMigration.migrate());
+  }
+
+  @Test
+  void migratedRestaurantsAreFoundByTheGeoQuery() {
+    restaurantLocationMigration.migrate();
+
+    List<String> restaurantIds = restaurantRepository.findByLocationNearSphere(12.9, 77.6, 5000)
+        .stream().map(RestaurantEntity::getRestaurantId).collect(Collectors.toList());
+    assertEquals(Arrays.asList("1", "2", "migrated"), restaurantIds);
+  }
+
+  private static Document legacyRestaurant(String restaurantId, double latitude,
+      double longitude) {
+    return new Document("restaurantId", restaurantId)
+        .append("name", "Restaurant " + restaurantId)
+        .append("latitude", latitude)
+        .append("longitude", longitude)
+        .append("opensAt", "10:00")
+        .append("closesAt", "22:00");
+  }
+
+  private Document restaurant(String restaurantId) {
+    return mongoTemplate.findOne(Query.query(Criteria.where("restaurantId").is(restaurantId)),
+        Document.class, COLLECTION);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Double> coordinatesOf(String restaurantId) {
+    return (List<Double>) ((Document) restaurant(restaurantId).get("location"))
+        .get("coordinates");
+  }
+}
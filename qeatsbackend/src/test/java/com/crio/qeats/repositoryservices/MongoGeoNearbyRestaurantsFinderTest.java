@@ -0,0 +1,128 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.migrations.RestaurantLocationMigration;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.GeoUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * The 2dsphere backend against the full scan reference, on embedded Mongo.
+ */
+@SpringBootTest(classes = {QEatsApplication.class})
+@ActiveProfiles("test")
+class MongoGeoNearbyRestaurantsFinderTest {
+
+  private static final int RESTAURANTS = 2000;
+  private static final double LATITUDE = 12.9;
+  private static final double LONGITUDE = 77.6;
+
+  // Kilometers per degree of latitude on the sphere GeoUtils measures on.
+  private static final double KMS_PER_DEGREE = Math.PI * GeoUtils.EARTH_RADIUS_IN_KMS / 180;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private RestaurantRepository restaurantRepository;
+
+  @Autowired
+  private RestaurantLocationMigration restaurantLocationMigration;
+
+  private final MongoGeoNearbyRestaurantsFinder geoFinder = new MongoGeoNearbyRestaurantsFinder();
+  private final FullScanNearbyRestaurantsFinder fullScanFinder =
+      new FullScanNearbyRestaurantsFinder();
+
+  @BeforeEach
+  void setup() {
+    List<RestaurantEntity> restaurants = new ArrayList<>();
+    Random random = new Random(42);
+    for (int i = 0; i < RESTAURANTS; i++) {
+      restaurants.add(restaurantAt(String.valueOf(i),
+          LATITUDE - 0.1 + random.nextDouble() * 0.2, LONGITUDE - 0.1 + random.nextDouble() * 0.2));
+    }
+    // Due north of the query point, where Haversine distance is exactly R * latitude delta.
+    // On its larger sphere Mongo measures 4.997km as 5.0026km, found only with the padded
+    // radius, and 5.0005km as 5.0061km, within the padding and left out by the Haversine re-check.
+    restaurants.add(restaurantAt("inside", LATITUDE + 4.997 / KMS_PER_DEGREE, LONGITUDE));
+    restaurants.add(restaurantAt("outside", LATITUDE + 5.0005 / KMS_PER_DEGREE, LONGITUDE));
+    mongoTemplate.insertAll(restaurants);
+    // Creates the 2dsphere index, which dropping the collection removes.
+    restaurantLocationMigration.migrate();
+
+    ReflectionTestUtils.setField(geoFinder, "repository", restaurantRepository);
+    ReflectionTestUtils.setField(fullScanFinder, "repository", restaurantRepository);
+  }
+
+  @AfterEach
+  void teardown() {
+    mongoTemplate.dropCollection("restaurants");
+  }
+
+  @Test
+  void geoQueryFindsTheSameRestaurantsAsTheFullScan() {
+    for (double radiusInKms : new double[] {1.0, 3.0, 5.0, 20.0}) {
+      Set<String> fullScanIds = ids(
+          fullScanFinder.findRestaurantsWithin(LATITUDE, LONGITUDE, radiusInKms));
+      Set<String> geoQueryIds = ids(
+          geoFinder.findRestaurantsWithin(LATITUDE, LONGITUDE, radiusInKms));
+
+      assertFalse(fullScanIds.isEmpty());
+      assertEquals(fullScanIds, geoQueryIds);
+    }
+  }
+
+  @Test
+  void restaurantsOnTheEdgeOfTheRadiusAreMeasuredLikeTheOtherBackends() {
+    Set<String> geoQueryIds = ids(geoFinder.findRestaurantsWithin(LATITUDE, LONGITUDE, 5.0));
+
+    assertTrue(geoQueryIds.contains("inside"));
+    assertFalse(geoQueryIds.contains("outside"));
+  }
+
+  @Test
+  void coordinatesAreNotSwapped() {
+    // Far from anything with latitude and longitude swapped, (77.6, 12.9) being a valid point.
+    assertTrue(geoFinder.findRestaurantsWithin(LONGITUDE, LATITUDE, 20.0).isEmpty());
+    assertFalse(geoFinder.findRestaurantsWithin(LATITUDE, LONGITUDE, 1.0).isEmpty());
+  }
+
+  private static RestaurantEntity restaurantAt(String restaurantId, double latitude,
+      double longitude) {
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setRestaurantId(restaurantId);
+    restaurantEntity.setName("Restaurant " + restaurantId);
+    restaurantEntity.setLatitude(latitude);
+    restaurantEntity.setLongitude(longitude);
+    restaurantEntity.setOpensAt("10:00");
+    restaurantEntity.setClosesAt("22:00");
+    return restaurantEntity;
+  }
+
+  private static Set<String> ids(List<RestaurantEntity> restaurants) {
+    return restaurants.stream().map(RestaurantEntity::getRestaurantId).collect(Collectors.toSet());
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.BenchmarkHelpers;
+import com.crio.qeats.utils.GeoUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Full collection scan vs 2dsphere $nearSphere query for findAllRestaurantsCloseBy cache misses.
+ */
+@Tag("benchmark")
+@SpringBootTest(classes = {QEatsApplication.class})
+@ActiveProfiles("test")
+class NearbyRestaurantsBenchmark {
+
+  private static final int RESTAURANTS = 20000;
+  private static final int QUERIES = 200;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private RestaurantRepository restaurantRepository;
+
+  private final MongoGeoNearbyRestaurantsFinder geoFinder = new MongoGeoNearbyRestaurantsFinder();
+
+  private final Random random = new Random(42);
+
+  @BeforeEach
+  void setup() {
+    List<RestaurantEntity> restaurants = new ArrayList<>();
+    for (int i = 0; i < RESTAURANTS; i++) {
+      RestaurantEntity restaurantEntity = new RestaurantEntity();
+      restaurantEntity.setRestaurantId(String.valueOf(i));
+      restaurantEntity.setName("Restaurant " + i);
+      restaurantEntity.setLatitude(12.7 + random.nextDouble() * 0.6);
+      restaurantEntity.setLongitude(77.4 + random.nextDouble() * 0.6);
+      restaurantEntity.setOpensAt("10:00");
+      restaurantEntity.setClosesAt("22:00");
+      restaurants.add(restaurantEntity);
+    }
+    mongoTemplate.insertAll(restaurants);
+    ReflectionTestUtils.setField(geoFinder, "repository", restaurantRepository);
+  }
+
+  @AfterEach
+  void teardown() {
+    mongoTemplate.dropCollection("restaurants");
+  }
+
+  @Test
+  void fullScanVsGeoQuery() {
+    double latitude = 13.0;
+    double longitude = 77.7;
+
+    Set<String> fullScanIds = fullScan(latitude, longitude, 5.0).stream()
+        .map(RestaurantEntity::getRestaurantId).collect(Collectors.toSet());
+    Set<String> geoQueryIds = geoQuery(latitude, longitude, 5.0).stream()
+        .map(RestaurantEntity::getRestaurantId).collect(Collectors.toSet());
+    assertEquals(fullScanIds, geoQueryIds);
+
+    BenchmarkHelpers.measure("nearby full scan", QUERIES,
+        () -> fullScan(nextLatitude(), nextLongitude(), 5.0));
+    BenchmarkHelpers.measure("nearby 2dsphere $nearSphere", QUERIES,
+        () -> geoQuery(nextLatitude(), nextLongitude(), 5.0));
+  }
+
+  private List<RestaurantEntity> fullScan(double latitude, double longitude,
+      double radiusInKms) {
+    return restaurantRepository.findAll().stream()
+        .filter(res -> GeoUtils.findDistanceInKm(latitude, longitude,
+            res.getLatitude(), res.getLongitude()) < radiusInKms)
+        .collect(Collectors.toList());
+  }
+
+  private List<RestaurantEntity> geoQuery(double latitude, double longitude,
+      double radiusInKms) {
+    return geoFinder.findRestaurantsWithin(latitude, longitude, radiusInKms);
+  }
+
+  private double nextLatitude() {
+    return 12.7 + random.nextDouble() * 0.6;
+  }
+
+  private double nextLongitude() {
+    return 77.4 + random.nextDouble() * 0.6;
+  }
+}
@@ -2,22 +2,35 @@ package com.crio.qeats.repositoryservices;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ch.hsr.geohash.GeoHash;
 import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.caches.RestaurantCellCodec;
 import com.crio.qeats.configs.RedisConfiguration;
 import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.models.RestaurantEntity;
 import com.crio.qeats.repositories.RestaurantRepository;
 import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.GeoHashUtils;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Provider;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -28,11 +41,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.ActiveProfiles;
 import redis.clients.jedis.Jedis;
 import redis.embedded.RedisServer;
 
+// A fresh context per test, so that every test starts with an empty spatial index and pool.
 @SpringBootTest(classes = {QEatsApplication.class})
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
 @ActiveProfiles("test")
 class RestaurantRepositoryServiceCacheTest {
 
@@ -48,6 +65,10 @@ class RestaurantRepositoryServiceCacheTest {
   private ObjectMapper objectMapper;
   @Autowired
   private Provider<ModelMapper> modelMapperProvider;
+  @Autowired
+  private MeterRegistry meterRegistry;
+  @Autowired
+  private RestaurantCellCodec restaurantCellCodec;
 
   @Value("${spring.redis.port}")
   private int redisPort;
@@ -85,15 +106,137 @@ class RestaurantRepositoryServiceCacheTest {
         .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
     allRestaurantsCloseBy = restaurantRepositoryService
         .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
-    GeoHash geoHash = GeoHash.withCharacterPrecision(20.0, 30.0, 7);
+    GeoHash geoHash = GeoHash.withCharacterPrecision(20.0, 30.0, 5);
 
     verify(mockRestaurantRepository, times(1)).findAll();
-    assertNotNull(jedis.get(geoHash.toBase32()));
+    assertNotNull(jedis.get("restaurants:cell:" + geoHash.toBase32()));
     assertEquals(2, allRestaurantsCloseBy.size());
     assertEquals("11", allRestaurantsCloseBy.get(0).getRestaurantId());
     assertEquals("12", allRestaurantsCloseBy.get(1).getRestaurantId());
   }
 
+  @Test
+  void nearbyUsersShareCachedCellsAcrossRadii() throws IOException {
+    when(mockRestaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    Jedis jedis = redisConfiguration.getJedisPool().getResource();
+
+    restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 5.0);
+    Long cachedCells = jedis.dbSize();
+    List<Restaurant> allRestaurantsCloseBy = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.001, 30.001, LocalTime.of(18, 1), 3.0);
+
+    assertEquals(cachedCells, jedis.dbSize());
+    assertEquals(3, allRestaurantsCloseBy.size());
+    assertEquals("10", allRestaurantsCloseBy.get(0).getRestaurantId());
+    assertEquals("11", allRestaurantsCloseBy.get(1).getRestaurantId());
+    assertEquals("12", allRestaurantsCloseBy.get(2).getRestaurantId());
+  }
+
+  @Test
+  void cacheLookupsReturnTheirConnections() throws IOException {
+    when(mockRestaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    // More lookups than the pool has connections: a leaked connection per lookup would hang.
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+      for (int i = 0; i < 500; i++) {
+        restaurantRepositoryService
+            .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+      }
+    });
+
+    assertEquals(0, redisConfiguration.getJedisPool().getNumActive());
+  }
+
+  @Test
+  void hotCellsAreServedFromTheNearCache() throws IOException {
+    when(mockRestaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    Jedis jedis = redisConfiguration.getJedisPool().getResource();
+
+    restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+    jedis.flushAll();
+    List<Restaurant> allRestaurantsCloseBy = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+
+    // Served from the heap: nothing was read back into the empty Redis.
+    assertEquals(0, (long) jedis.dbSize());
+    assertEquals(2, allRestaurantsCloseBy.size());
+  }
+
+  @Test
+  void invalidationsEvictNearCells() throws Exception {
+    when(mockRestaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    Jedis jedis = redisConfiguration.getJedisPool().getResource();
+    String cell = GeoHash.withCharacterPrecision(20.0, 30.0, 5).toBase32();
+
+    restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+    jedis.flushAll();
+    // The subscriber connects once Redis is up, like another instance would publish.
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+      while (jedis.publish("restaurants:cell:invalidations", cell) == 0) {
+        Thread.sleep(50);
+      }
+    });
+    Thread.sleep(100);
+    restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+
+    assertNotNull(jedis.get("restaurants:cell:" + cell));
+  }
+
+  @Test
+  void concurrentMissesLoadEachCellOnce() throws Exception {
+    when(mockRestaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    List<Future<List<Restaurant>>> lookups = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      lookups.add(executor.submit(() -> restaurantRepositoryService
+          .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0)));
+    }
+    for (Future<List<Restaurant>> lookup : lookups) {
+      assertEquals(2, lookup.get(30, TimeUnit.SECONDS).size());
+    }
+    executor.shutdown();
+
+    int cells = GeoHashUtils.findCoveringCells(20.0, 30.0, 3.0, 5).size();
+    assertEquals(cells, (int) meterRegistry.get("qeats.cache.cells.loads")
+        .tag("loader", "self").counter().count());
+    // Every lock was released by its owner.
+    Jedis jedis = redisConfiguration.getJedisPool().getResource();
+    assertEquals(0, jedis.keys("restaurants:cell-lock:*").size());
+  }
+
+  @Test
+  void staleCellsAreServedWhileRefreshed() throws Exception {
+    when(mockRestaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    Jedis jedis = redisConfiguration.getJedisPool().getResource();
+    // Past the soft expiry, before the hard one, and without any restaurant.
+    long staleTime = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(50);
+    for (String cell : GeoHashUtils.findCoveringCells(20.0, 30.0, 3.0, 5)) {
+      jedis.setex(("restaurants:cell:" + cell).getBytes(StandardCharsets.UTF_8), 600,
+          restaurantCellCodec.encode(Collections.emptyList(), staleTime));
+    }
+
+    assertEquals(0, restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0).size());
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+      while (restaurantRepositoryService
+          .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0).size() != 2) {
+        Thread.sleep(50);
+      }
+    });
+    String cell = GeoHash.withCharacterPrecision(20.0, 30.0, 5).toBase32();
+    assertTrue(RestaurantCellCodec.readLoadedAtMillis(jedis.get(
+        ("restaurants:cell:" + cell).getBytes(StandardCharsets.UTF_8))) > staleTime);
+  }
+
   private List<RestaurantEntity> listOfRestaurants() throws IOException {
     String fixture =
         FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
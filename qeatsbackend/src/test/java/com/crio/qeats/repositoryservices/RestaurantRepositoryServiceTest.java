@@ -11,16 +11,20 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.caches.RestaurantCellCache;
 import com.crio.qeats.configs.RedisConfiguration;
 import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
 import com.crio.qeats.utils.FixtureHelpers;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import javax.inject.Provider;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -47,6 +51,10 @@ public class RestaurantRepositoryServiceTest {
   private ObjectMapper objectMapper;
   @Autowired
   private Provider<ModelMapper> modelMapperProvider;
+  @Autowired
+  private RestaurantRepository restaurantRepository;
+  @Autowired
+  private RestaurantCellCache restaurantCellCache;
 
   @Autowired
   private RedisConfiguration redisConfiguration;
@@ -158,12 +166,68 @@ public class RestaurantRepositoryServiceTest {
     assertEquals("A2B Adyar Ananda Bhavan", foundRestaurantsList.get(1).getName());
   }
 
+  @Test
+  void searchPipelineFindsEachRestaurantOnceExactMatchesFirst() {
+    List<Restaurant> foundRestaurantsList = restaurantRepositoryService
+        .findRestaurantsBySearchQuery(20.8, 30.1, "a2b", LocalTime.of(20, 0), 5.0);
+
+    assertEquals(2, foundRestaurantsList.size());
+    assertEquals("A2B", foundRestaurantsList.get(0).getName());
+    assertEquals("A2B Adyar Ananda Bhavan", foundRestaurantsList.get(1).getName());
+  }
+
+  @Test
+  void searchPipelineFindsRestaurantsOpenAcrossMidnight() {
+    RestaurantEntity lateNight = allRestaurants.get(4);
+    lateNight.setOpensAt("18:00");
+    lateNight.setClosesAt("02:00");
+    mongoTemplate.save(lateNight, "restaurants");
+
+    List<Restaurant> foundRestaurantsList = restaurantRepositoryService
+        .findRestaurantsBySearchQuery(20.8, 30.1, "Tamil", LocalTime.of(1, 0), 5.0);
+
+    assertEquals(1, foundRestaurantsList.size());
+    assertEquals(lateNight.getRestaurantId(), foundRestaurantsList.get(0).getRestaurantId());
+  }
+
+  @Test
+  void movedRestaurantIsServedAtItsNewLocationOnly() {
+    // Caches the cell of restaurants 11 and 12.
+    restaurantRepositoryService.findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+
+    RestaurantEntity moved = allRestaurants.get(1);
+    moved.setLatitude(20.9);
+    moved.setLongitude(30.0);
+    mongoTemplate.save(moved, "restaurants");
+    restaurantCellCache.publishInvalidations();
+
+    assertEquals(Collections.singletonList("12"), restaurantIdsCloseBy(20.0, 30.0));
+    assertEquals(Collections.singletonList("11"), restaurantIdsCloseBy(20.9, 30.0));
+  }
+
+  @Test
+  void deletedRestaurantIsNotServed() {
+    restaurantRepositoryService.findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+
+    restaurantRepository.delete(allRestaurants.get(2));
+    restaurantCellCache.publishInvalidations();
+
+    assertEquals(Collections.singletonList("11"), restaurantIdsCloseBy(20.0, 30.0));
+  }
+
   void searchedAttributesIsSubsetOfRetrievedRestaurantAttributes() {
   }
 
   void searchedAttributesIsCaseInsensitive() {
   }
 
+  private List<String> restaurantIdsCloseBy(double latitude, double longitude) {
+    return restaurantRepositoryService
+        .findAllRestaurantsCloseBy(latitude, longitude, LocalTime.of(18, 1), 3.0).stream()
+        .map(Restaurant::getRestaurantId)
+        .collect(Collectors.toList());
+  }
+
   private List<RestaurantEntity> listOfRestaurants() throws IOException {
     String fixture =
         FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
@@ -0,0 +1,169 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.MenuRepository;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.BenchmarkHelpers;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Mongo text index backend vs the regex backend, for name and item name searches.
+ * Recall is the share of the restaurants found by the regex queries that the text queries find.
+ */
+@SpringBootTest(classes = {QEatsApplication.class})
+@ActiveProfiles("test")
+class SearchBackendComparisonTest {
+
+  private static final int RESTAURANTS = 2000;
+  private static final int QUERIES = 100;
+
+  private static final List<String> NAME_WORDS = Arrays.asList("Anand", "Bhavan", "Dhaba",
+      "Saravana", "Punjabi", "Udupi", "Grand", "Royal", "Spice", "Garden");
+  private static final List<String> ITEM_WORDS = Arrays.asList("Chicken", "Mutton", "Paneer",
+      "Briyani", "Dosa", "Idli", "Naan", "Curry", "Tikka", "Kulfi");
+  private static final List<String> ITEM_ATTRIBUTES = Arrays.asList("Spicy", "Sweet", "Mughal",
+      "Vegan", "Tangy");
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private RestaurantRepository restaurantRepository;
+
+  @Autowired
+  private MenuRepository menuRepository;
+
+  private final RegexRestaurantSearchBackend regexBackend = new RegexRestaurantSearchBackend();
+
+  private final MongoTextRestaurantSearchBackend textBackend =
+      new MongoTextRestaurantSearchBackend();
+
+  private final Random random = new Random(42);
+
+  @BeforeEach
+  void setup() {
+    List<RestaurantEntity> restaurants = new ArrayList<>();
+    List<MenuEntity> menus = new ArrayList<>();
+    for (int i = 0; i < RESTAURANTS; i++) {
+      RestaurantEntity restaurantEntity = new RestaurantEntity();
+      restaurantEntity.setRestaurantId(String.valueOf(i));
+      restaurantEntity.setName(pick(NAME_WORDS) + " " + pick(NAME_WORDS));
+      restaurantEntity.setLatitude(12.9);
+      restaurantEntity.setLongitude(77.6);
+      restaurantEntity.setOpensAt("10:00");
+      restaurantEntity.setClosesAt("22:00");
+      restaurantEntity.setAttributes(Collections.singletonList("North Indian"));
+      restaurants.add(restaurantEntity);
+
+      List<Item> items = new ArrayList<>();
+      for (int j = 0; j < 3; j++) {
+        items.add(new Item(null, String.valueOf(j), pick(ITEM_WORDS) + " " + pick(ITEM_WORDS),
+            "", Collections.singletonList(pick(ITEM_ATTRIBUTES)), 100));
+      }
+      menus.add(new MenuEntity(null, String.valueOf(i), items));
+    }
+    mongoTemplate.insertAll(restaurants);
+    mongoTemplate.insertAll(menus);
+
+    ReflectionTestUtils.setField(regexBackend, "repository", restaurantRepository);
+    ReflectionTestUtils.setField(regexBackend, "menuRepository", menuRepository);
+    ReflectionTestUtils.setField(textBackend, "mongoTemplate", mongoTemplate);
+    ReflectionTestUtils.setField(textBackend, "repository", restaurantRepository);
+    textBackend.ensureTextIndexes();
+  }
+
+  @AfterEach
+  void teardown() {
+    mongoTemplate.dropCollection("restaurants");
+    mongoTemplate.dropCollection("menus");
+  }
+
+  @Test
+  void textSearchFindsEveryWholeWordMatch() {
+    for (String word : NAME_WORDS) {
+      assertEquals(1.0, recall(word, RestaurantSearchBackend::findRestaurantsByName), word);
+    }
+    for (String word : ITEM_WORDS) {
+      assertEquals(1.0, recall(word, RestaurantSearchBackend::findRestaurantsByItemName), word);
+    }
+    // The text backend finds item attributes through its item name lookup.
+    for (String attribute : ITEM_ATTRIBUTES) {
+      assertEquals(1.0, recall(attribute, RestaurantSearchBackend::findRestaurantsByItemAttributes,
+          RestaurantSearchBackend::findRestaurantsByItemName), attribute);
+    }
+  }
+
+  @Test
+  void textSearchMissesPartialWords() {
+    assertTrue(recall("Bhav", RestaurantSearchBackend::findRestaurantsByName) < 1.0);
+  }
+
+  @Test
+  @Tag("benchmark")
+  void regexVsTextLatency() {
+    BenchmarkHelpers.measure("search by name, regex", QUERIES,
+        () -> regexBackend.findRestaurantsByName(pick(NAME_WORDS)));
+    BenchmarkHelpers.measure("search by name, $text", QUERIES,
+        () -> textBackend.findRestaurantsByName(pick(NAME_WORDS)));
+    BenchmarkHelpers.measure("search by item name, regex", QUERIES,
+        () -> regexBackend.findRestaurantsByItemName(pick(ITEM_WORDS)));
+    BenchmarkHelpers.measure("search by item name, $text", QUERIES,
+        () -> textBackend.findRestaurantsByItemName(pick(ITEM_WORDS)));
+  }
+
+  private double recall(String searchString, SearchFunction search) {
+    return recall(searchString, search, search);
+  }
+
+  private double recall(String searchString, SearchFunction regexSearch,
+      SearchFunction textSearch) {
+    Set<String> expected = restaurantIdsOf(regexSearch.apply(regexBackend, searchString));
+    Set<String> found = restaurantIdsOf(textSearch.apply(textBackend, searchString));
+    if (expected.isEmpty()) {
+      return 1.0;
+    }
+    found.retainAll(expected);
+    return found.size() / (double) expected.size();
+  }
+
+  private static Set<String> restaurantIdsOf(List<RestaurantEntity> restaurants) {
+    return restaurants.stream()
+        .map(RestaurantEntity::getRestaurantId)
+        .collect(Collectors.toSet());
+  }
+
+  private String pick(List<String> words) {
+    return words.get(random.nextInt(words.size()));
+  }
+
+  private interface SearchFunction {
+    List<RestaurantEntity> apply(RestaurantSearchBackend backend, String searchString);
+  }
+}
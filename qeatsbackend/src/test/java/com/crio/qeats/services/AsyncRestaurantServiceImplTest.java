@@ -0,0 +1,167 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.repositoryservices.AsyncRestaurantRepositoryService;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AsyncRestaurantServiceImplTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @InjectMocks
+  private AsyncRestaurantServiceImpl asyncRestaurantService;
+  @Mock
+  private AsyncRestaurantRepositoryService asyncRestaurantRepositoryServiceMock;
+  private ObjectMapper objectMapper;
+
+  @BeforeEach
+  void setup() {
+    MockitoAnnotations.initMocks(this);
+    ReflectionTestUtils.setField(asyncRestaurantService, "restaurantServiceImpl",
+        new RestaurantServiceImpl());
+    ReflectionTestUtils.setField(asyncRestaurantService, "searchDeadlineInMillis", 5000L);
+    ReflectionTestUtils.setField(asyncRestaurantService, "meterRegistry",
+        new SimpleMeterRegistry());
+    objectMapper = new ObjectMapper();
+  }
+
+  @AfterEach
+  void teardown() {
+    asyncRestaurantService.shutdown();
+  }
+
+  @Test
+  void asyncSearchIsDistinctAndKeepsOrder() throws Exception {
+    stubSearches(CompletableFuture.completedFuture(loadRestaurantsDuringNormalHours()),
+        CompletableFuture.completedFuture(loadRestaurantsSearchedByAttributes()),
+        CompletableFuture.completedFuture(Collections.emptyList()));
+
+    GetRestaurantsResponse allRestaurantsSearchResults = asyncRestaurantService
+        .findRestaurantsBySearchQueryAsync(searchFor("Test"), LocalTime.of(22, 0))
+        .get(1, TimeUnit.SECONDS);
+
+    assertEquals(4, allRestaurantsSearchResults.getRestaurants().size());
+    assertEquals("10", allRestaurantsSearchResults.getRestaurants().get(0).getRestaurantId());
+    assertEquals("11", allRestaurantsSearchResults.getRestaurants().get(1).getRestaurantId());
+    assertEquals("12", allRestaurantsSearchResults.getRestaurants().get(2).getRestaurantId());
+    assertEquals("abcdc864835e31495d621234",
+        allRestaurantsSearchResults.getRestaurants().get(3).getRestaurantId());
+  }
+
+  @Test
+  void cancellingTheSearchCancelsPendingSubSearches() throws IOException {
+    CompletableFuture<List<Restaurant>> pending = new CompletableFuture<>();
+    stubSearches(CompletableFuture.completedFuture(loadRestaurantsDuringNormalHours()), pending,
+        CompletableFuture.completedFuture(Collections.emptyList()));
+
+    CompletableFuture<GetRestaurantsResponse> search = asyncRestaurantService
+        .findRestaurantsBySearchQueryAsync(searchFor("Test"), LocalTime.of(22, 0));
+    search.cancel(true);
+
+    assertTrue(pending.isCancelled());
+  }
+
+  @Test
+  void asyncSearchReturnsPartialResultsPastTheDeadline() throws Exception {
+    List<Restaurant> restaurantsByName = loadRestaurantsDuringNormalHours();
+    CompletableFuture<List<Restaurant>> pending = new CompletableFuture<>();
+    CompletableFuture<List<Restaurant>> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("mongo is down"));
+    stubSearches(CompletableFuture.completedFuture(restaurantsByName), pending, failed);
+    ReflectionTestUtils.setField(asyncRestaurantService, "searchDeadlineInMillis", 200L);
+
+    GetRestaurantsResponse allRestaurantsSearchResults = asyncRestaurantService
+        .findRestaurantsBySearchQueryAsync(searchFor("Test"), LocalTime.of(22, 0))
+        .get(2, TimeUnit.SECONDS);
+
+    assertEquals(restaurantsByName.size(), allRestaurantsSearchResults.getRestaurants().size());
+    assertTrue(pending.isCancelled());
+  }
+
+  @Test
+  void asyncSearchUsesTheAggregationWhenThePipelineIsEnabled() throws Exception {
+    List<Restaurant> restaurants = loadRestaurantsSearchedByAttributes();
+    when(asyncRestaurantRepositoryServiceMock.findRestaurantsBySearchQuery(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(CompletableFuture.completedFuture(restaurants));
+    ReflectionTestUtils.setField(asyncRestaurantService, "searchPipelineEnabled", true);
+
+    GetRestaurantsResponse allRestaurantsSearchResults = asyncRestaurantService
+        .findRestaurantsBySearchQueryAsync(searchFor("Test"), LocalTime.of(22, 0))
+        .get(1, TimeUnit.SECONDS);
+
+    assertEquals(restaurants.size(), allRestaurantsSearchResults.getRestaurants().size());
+    verify(asyncRestaurantRepositoryServiceMock, never()).findRestaurantsByName(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class));
+  }
+
+  private void stubSearches(CompletableFuture<List<Restaurant>> byName,
+      CompletableFuture<List<Restaurant>> byAttributes,
+      CompletableFuture<List<Restaurant>> byItems) {
+    when(asyncRestaurantRepositoryServiceMock.findRestaurantsByName(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(byName);
+    when(asyncRestaurantRepositoryServiceMock.findRestaurantsByAttributes(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(byAttributes);
+    when(asyncRestaurantRepositoryServiceMock.findRestaurantsByItemName(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(byItems);
+    when(asyncRestaurantRepositoryServiceMock.findRestaurantsByItemAttributes(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+  }
+
+  private static GetRestaurantsRequest searchFor(String searchString) {
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setSearchFor(searchString);
+    return getRestaurantsRequest;
+  }
+
+  private List<Restaurant> loadRestaurantsDuringNormalHours() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/normal_hours_list_of_restaurants.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<Restaurant>>() {
+    });
+  }
+
+  private List<Restaurant> loadRestaurantsSearchedByAttributes() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/list_restaurants_searchedby_attributes.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<Restaurant>>() {
+    });
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.repositoryservices.ReactiveRestaurantRepositoryService;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+class ReactiveRestaurantServiceImplTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @InjectMocks
+  private ReactiveRestaurantServiceImpl reactiveRestaurantService;
+  @Mock
+  private ReactiveRestaurantRepositoryService reactiveRestaurantRepositoryServiceMock;
+  private SimpleMeterRegistry meterRegistry;
+  private ObjectMapper objectMapper;
+
+  @BeforeEach
+  void setup() {
+    MockitoAnnotations.initMocks(this);
+    meterRegistry = new SimpleMeterRegistry();
+    ReflectionTestUtils.setField(reactiveRestaurantService, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(reactiveRestaurantService, "searchDeadlineInMillis", 200L);
+    objectMapper = new ObjectMapper();
+  }
+
+  @Test
+  void searchReturnsPartialResultsPastTheDeadline() throws IOException {
+    List<Restaurant> restaurantsByName = loadRestaurants("normal_hours_list_of_restaurants.json");
+    List<Restaurant> restaurantsByItemAttributes =
+        loadRestaurants("list_restaurants_searchedby_attributes.json");
+    when(reactiveRestaurantRepositoryServiceMock.findRestaurantsByName(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(Flux.fromIterable(restaurantsByName));
+    when(reactiveRestaurantRepositoryServiceMock.findRestaurantsByAttributes(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(Flux.never());
+    when(reactiveRestaurantRepositoryServiceMock.findRestaurantsByItemName(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(Flux.error(new IllegalStateException("mongo is down")));
+    // Emits its restaurants, then misses the deadline.
+    when(reactiveRestaurantRepositoryServiceMock.findRestaurantsByItemAttributes(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(Flux.fromIterable(restaurantsByItemAttributes).concatWith(Flux.never()));
+
+    List<Restaurant> restaurants = reactiveRestaurantService
+        .findRestaurantsBySearchQuery(searchFor("Test"), LocalTime.of(22, 0))
+        .collectList()
+        .block(Duration.ofSeconds(2));
+
+    assertEquals(4, restaurants.size());
+    assertEquals("10", restaurants.get(0).getRestaurantId());
+    assertEquals("abcdc864835e31495d621234", restaurants.get(3).getRestaurantId());
+    assertEquals(1, partialSearches("attributes"));
+    assertEquals(1, partialSearches("itemName"));
+    assertEquals(1, partialSearches("itemAttributes"));
+    assertEquals(0, meterRegistry.find("qeats.search.partial").tag("source", "name").counters()
+        .size());
+  }
+
+  private double partialSearches(String source) {
+    return meterRegistry.get("qeats.search.partial").tag("source", source).counter().count();
+  }
+
+  private static GetRestaurantsRequest searchFor(String searchString) {
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setSearchFor(searchString);
+    return getRestaurantsRequest;
+  }
+
+  private List<Restaurant> loadRestaurants(String fixture) throws IOException {
+    return objectMapper.readValue(FixtureHelpers.fixture(FIXTURES + "/" + fixture),
+        new TypeReference<List<Restaurant>>() {
+        });
+  }
+}
@@ -8,22 +8,39 @@
 package com.crio.qeats.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.crio.qeats.QEatsApplication;
 import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exceptions.InvalidCursorException;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
 import com.crio.qeats.repositoryservices.RestaurantRepositoryService;
 import com.crio.qeats.utils.FixtureHelpers;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -34,6 +51,7 @@ import org.mockito.quality.Strictness;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @SpringBootTest(classes = {QEatsApplication.class})
 @MockitoSettings(strictness = Strictness.STRICT_STUBS)
@@ -46,11 +64,14 @@ class RestaurantServiceTest {
   @MockBean
   private RestaurantRepositoryService restaurantRepositoryServiceMock;
   private ObjectMapper objectMapper;
+  private SimpleMeterRegistry meterRegistry;
 
   @BeforeEach
   void setup() {
     MockitoAnnotations.initMocks(this);
     objectMapper = new ObjectMapper();
+    meterRegistry = new SimpleMeterRegistry();
+    ReflectionTestUtils.setField(restaurantService, "meterRegistry", meterRegistry);
   }
 
   private String getServingRadius(List<Restaurant> restaurants, LocalTime timeOfService) {
@@ -190,7 +211,217 @@ class RestaurantServiceTest {
     assertEquals(0, allRestaurantsCloseBy.getRestaurants().size());
   }
 
-  
+  @Test
+  void multiThreadedSearchIsDistinctAndKeepsOrder() throws IOException {
+    when(restaurantRepositoryServiceMock.findRestaurantsByName(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(loadRestaurantsDuringNormalHours());
+    when(restaurantRepositoryServiceMock.findRestaurantsByAttributes(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(loadRestaurantsSearchedByAttributes());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    ReflectionTestUtils.setField(restaurantService, "searchExecutor", executor);
+    ReflectionTestUtils.setField(restaurantService, "searchDeadlineInMillis", 5000L);
+
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setSearchFor("Test");
+    GetRestaurantsResponse allRestaurantsSearchResults = restaurantService
+        .findRestaurantsBySearchQueryMt(getRestaurantsRequest, LocalTime.of(22, 0));
+    executor.shutdownNow();
+
+    assertEquals(4, allRestaurantsSearchResults.getRestaurants().size());
+    assertEquals("10", allRestaurantsSearchResults.getRestaurants().get(0).getRestaurantId());
+    assertEquals("11", allRestaurantsSearchResults.getRestaurants().get(1).getRestaurantId());
+    assertEquals("12", allRestaurantsSearchResults.getRestaurants().get(2).getRestaurantId());
+    assertEquals("abcdc864835e31495d621234",
+        allRestaurantsSearchResults.getRestaurants().get(3).getRestaurantId());
+  }
+
+  @Test
+  void multiThreadedSearchReturnsPartialResultsPastTheDeadline()
+      throws IOException, InterruptedException {
+    List<Restaurant> restaurantsByName = loadRestaurantsDuringNormalHours();
+    when(restaurantRepositoryServiceMock.findRestaurantsByName(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenReturn(restaurantsByName);
+    CountDownLatch lateSearchInterrupted = new CountDownLatch(1);
+    when(restaurantRepositoryServiceMock.findRestaurantsByAttributes(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenAnswer(invocation -> {
+          try {
+            Thread.sleep(5000);
+          } catch (InterruptedException e) {
+            lateSearchInterrupted.countDown();
+            throw e;
+          }
+          return loadRestaurantsSearchedByAttributes();
+        });
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemName(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenThrow(new IllegalStateException("mongo is down"));
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    ReflectionTestUtils.setField(restaurantService, "searchExecutor", executor);
+    ReflectionTestUtils.setField(restaurantService, "searchDeadlineInMillis", 200L);
+
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setSearchFor("Test");
+    long startTimeInMillis = System.currentTimeMillis();
+    GetRestaurantsResponse allRestaurantsSearchResults = restaurantService
+        .findRestaurantsBySearchQueryMt(getRestaurantsRequest, LocalTime.of(22, 0));
+    long elapsedTimeInMillis = System.currentTimeMillis() - startTimeInMillis;
+
+    // The late sub-search gives its pool thread back, it is not left running past the deadline.
+    assertTrue(lateSearchInterrupted.await(1, TimeUnit.SECONDS));
+    executor.shutdownNow();
+    assertTrue(elapsedTimeInMillis < 2000);
+    assertEquals(restaurantsByName.size(), allRestaurantsSearchResults.getRestaurants().size());
+    assertEquals(1, meterRegistry.get("qeats.search.partial").tag("source", "attributes")
+        .counter().count());
+  }
+
+  @Test
+  void multiThreadedSearchSkipsSubSearchesTheSaturatedPoolRejects() throws IOException {
+    List<Restaurant> restaurantsByName = loadRestaurantsDuringNormalHours();
+    when(restaurantRepositoryServiceMock.findRestaurantsByName(any(Double.class),
+        any(Double.class), any(String.class), any(LocalTime.class), any(Double.class)))
+        .thenAnswer(invocation -> {
+          Thread.sleep(200);
+          return restaurantsByName;
+        });
+    // One thread and no queue: the name search holds the pool while the others are submitted.
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+    ReflectionTestUtils.setField(restaurantService, "searchExecutor", executor);
+    ReflectionTestUtils.setField(restaurantService, "searchDeadlineInMillis", 5000L);
+
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setSearchFor("Test");
+    GetRestaurantsResponse allRestaurantsSearchResults = restaurantService
+        .findRestaurantsBySearchQueryMt(getRestaurantsRequest, LocalTime.of(22, 0));
+    executor.shutdownNow();
+
+    assertEquals(restaurantsByName.size(), allRestaurantsSearchResults.getRestaurants().size());
+    verify(restaurantRepositoryServiceMock, times(0))
+        .findRestaurantsByAttributes(any(Double.class), any(Double.class), any(String.class),
+            any(LocalTime.class), any(Double.class));
+    assertEquals(3, meterRegistry.get("qeats.search.partial").counters().stream()
+        .mapToDouble(counter -> counter.count()).sum());
+  }
+
+  @Test
+  void pagesOfNearestRestaurantsHoldEveryRestaurantOnceNearestFirst() {
+    // Out of order, with two restaurants at the same place.
+    List<Restaurant> restaurants = new ArrayList<>(Arrays.asList(
+        restaurantAt("4", 20.004), restaurantAt("1", 20.001), restaurantAt("6", 20.006),
+        restaurantAt("3b", 20.003), restaurantAt("2", 20.002), restaurantAt("3a", 20.003),
+        restaurantAt("5", 20.005)));
+    feedRestaurantsCloseBy(restaurants);
+
+    List<String> restaurantIds = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+      getRestaurantsRequest.setLimit(3);
+      getRestaurantsRequest.setCursor(cursor);
+      assertTrue(getRestaurantsRequest.isCursorValid());
+      GetRestaurantsResponse page = restaurantService
+          .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.of(18, 0));
+      assertTrue(page.getRestaurants().size() <= 3);
+      page.getRestaurants().forEach(restaurant -> {
+        assertNotNull(restaurant.getDistanceKm());
+        restaurantIds.add(restaurant.getRestaurantId());
+      });
+      cursor = page.getNextCursor();
+      pages++;
+    } while (cursor != null);
+
+    assertEquals(3, pages);
+    assertEquals(Arrays.asList("1", "2", "3a", "3b", "4", "5", "6"), restaurantIds);
+  }
+
+  @Test
+  void restaurantsClosingBetweenPagesDoNotShiftTheNextPage() {
+    List<Restaurant> restaurants = new ArrayList<>(Arrays.asList(
+        restaurantAt("1", 20.001), restaurantAt("2", 20.002), restaurantAt("3", 20.003),
+        restaurantAt("4", 20.004)));
+    feedRestaurantsCloseBy(restaurants);
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setLimit(2);
+    GetRestaurantsResponse firstPage = restaurantService
+        .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.of(18, 0));
+
+    restaurants.remove(0);
+    getRestaurantsRequest.setCursor(firstPage.getNextCursor());
+    GetRestaurantsResponse secondPage = restaurantService
+        .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.of(18, 0));
+
+    assertEquals("3", secondPage.getRestaurants().get(0).getRestaurantId());
+    assertEquals("4", secondPage.getRestaurants().get(1).getRestaurantId());
+    assertNull(secondPage.getNextCursor());
+  }
+
+  @Test
+  void cursorsNotReturnedAsNextCursorAreInvalid() {
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    for (String cursor : Arrays.asList("", "not a cursor", "bm90LWhleDox", "MTIz")) {
+      getRestaurantsRequest.setCursor(cursor);
+      assertFalse(getRestaurantsRequest.isCursorValid(), cursor);
+    }
+  }
+
+  @Test
+  void cursorsOfAnotherLocationAreRejected() {
+    feedRestaurantsCloseBy(Arrays.asList(restaurantAt("1", 20.001), restaurantAt("2", 20.002)));
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setLimit(1);
+    String nextCursor = restaurantService
+        .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.of(18, 0)).getNextCursor();
+
+    GetRestaurantsRequest elsewhere = new GetRestaurantsRequest(20.0005, 30.0);
+    elsewhere.setLimit(1);
+    elsewhere.setCursor(nextCursor);
+    assertThrows(InvalidCursorException.class,
+        () -> restaurantService.findAllRestaurantsCloseBy(elsewhere, LocalTime.of(18, 0)));
+  }
+
+  @Test
+  void cursorsOutliveAChangeOfServingRadius() {
+    feedRestaurantsCloseBy(Arrays.asList(restaurantAt("1", 20.001), restaurantAt("2", 20.002)));
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setLimit(1);
+    String nextCursor = restaurantService
+        .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.of(18, 59)).getNextCursor();
+
+    // 19:00 is a peak hour, served within a smaller radius.
+    getRestaurantsRequest.setCursor(nextCursor);
+    GetRestaurantsResponse nextPage = restaurantService
+        .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.of(19, 0));
+    assertEquals("2", nextPage.getRestaurants().get(0).getRestaurantId());
+  }
+
+  private void feedRestaurantsCloseBy(List<Restaurant> restaurants) {
+    doAnswer(invocation -> {
+      Consumer<Restaurant> restaurantConsumer = invocation.getArgument(4);
+      restaurants.forEach(restaurant -> restaurantConsumer.accept(copyOf(restaurant)));
+      return null;
+    }).when(restaurantRepositoryServiceMock).findAllRestaurantsCloseBy(any(Double.class),
+        any(Double.class), any(LocalTime.class), any(Double.class), any());
+  }
+
+  private static Restaurant restaurantAt(String restaurantId, double latitude) {
+    Restaurant restaurant = new Restaurant();
+    restaurant.setRestaurantId(restaurantId);
+    restaurant.setName("Restaurant " + restaurantId);
+    restaurant.setLatitude(latitude);
+    restaurant.setLongitude(30.0);
+    return restaurant;
+  }
+
+  private static Restaurant copyOf(Restaurant restaurant) {
+    return restaurantAt(restaurant.getRestaurantId(), restaurant.getLatitude());
+  }
+
   private List<Restaurant> loadRestaurantsDuringNormalHours() throws IOException {
     String fixture =
         FixtureHelpers.fixture(FIXTURES + "/normal_hours_list_of_restaurants.json");
@@ -0,0 +1,73 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A set of helper methods for the tests tagged "benchmark".
+ */
+public class BenchmarkHelpers {
+
+  private BenchmarkHelpers() { /* singleton */ }
+
+  /**
+   * Runs the given operation a few times to warm up the JIT, then times each of the given number
+   * of iterations and prints the latency distribution.
+   *
+   * @param name label printed with the results
+   * @param iterations number of timed runs
+   * @param operation the code under measurement
+   * @return latencies of the timed runs in nanoseconds, sorted ascending
+   */
+  public static long[] measure(String name, int iterations, Runnable operation) {
+    for (int i = 0; i < Math.max(10, iterations / 10); i++) {
+      operation.run();
+    }
+    long[] latencies = new long[iterations];
+    for (int i = 0; i < iterations; i++) {
+      long startTime = System.nanoTime();
+      operation.run();
+      latencies[i] = System.nanoTime() - startTime;
+    }
+    Arrays.sort(latencies);
+    report(name, latencies);
+    return latencies;
+  }
+
+  /**
+   * Prints the mean, p50 and p99 of the given latencies.
+   *
+   * @param name label printed with the results
+   * @param sortedLatencies latencies in nanoseconds, sorted ascending
+   */
+  public static void report(String name, long[] sortedLatencies) {
+    System.out.printf("BENCHMARK %-40s runs=%d mean=%.3fms p50=%.3fms p99=%.3fms%n", name,
+        sortedLatencies.length, toMillis((long) Arrays.stream(sortedLatencies).average().orElse(0)),
+        toMillis(percentile(sortedLatencies, 50)), toMillis(percentile(sortedLatencies, 99)));
+  }
+
+  /**
+   * Nearest-rank percentile.
+   *
+   * @param sortedLatencies values sorted ascending
+   * @param percentile between 0 and 100
+   * @return the value at the given percentile
+   */
+  public static long percentile(long[] sortedLatencies, double percentile) {
+    if (sortedLatencies.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+    return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, rank - 1))];
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
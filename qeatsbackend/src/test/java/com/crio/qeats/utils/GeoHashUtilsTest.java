@@ -0,0 +1,41 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import ch.hsr.geohash.GeoHash;
+import org.junit.jupiter.api.Test;
+
+class GeoHashUtilsTest {
+
+  @Test
+  void cellCenterIsInsideTheCell() {
+    double[][] points = {{20.0, 30.0}, {12.9716, 77.5946}, {-33.8688, 151.2093},
+        {40.7128, -74.006}};
+    for (double[] point : points) {
+      String cell = GeoHash.withCharacterPrecision(point[0], point[1], 5).toBase32();
+      double[] center = GeoHashUtils.findCellCenter(cell);
+
+      assertEquals(cell, GeoHash.withCharacterPrecision(center[0], center[1], 5).toBase32());
+    }
+  }
+
+  @Test
+  void centerOfAKnownCell() {
+    // "s" is the cell of latitudes 0 to 45 and longitudes 0 to 45.
+    assertArrayEquals(new double[] {22.5, 22.5}, GeoHashUtils.findCellCenter("s"), 1e-9);
+  }
+
+  @Test
+  void boundsOfAKnownCell() {
+    assertArrayEquals(new double[] {0, 0, 45, 45}, GeoHashUtils.findCellBounds("s"), 1e-9);
+    assertArrayEquals(new double[] {0, 0, 45.0 / 8, 45.0 / 4},
+        GeoHashUtils.findCellBounds("s0"), 1e-9);
+  }
+}
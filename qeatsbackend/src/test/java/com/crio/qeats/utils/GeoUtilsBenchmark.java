@@ -0,0 +1,72 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Scalar Haversine loop vs the batch distance kernel, over points spread around one city.
+ */
+@Tag("benchmark")
+class GeoUtilsBenchmark {
+
+  private static final int POINTS = 200000;
+  private static final int QUERIES = 200;
+
+  private final Random random = new Random(42);
+
+  @Test
+  void scalarHaversineVsBatchKernel() {
+    double[] latitudes = new double[POINTS];
+    double[] longitudes = new double[POINTS];
+    for (int i = 0; i < POINTS; i++) {
+      latitudes[i] = nextLatitude();
+      longitudes[i] = nextLongitude();
+    }
+    assertEquals(scalar(13.0, 77.7, 5.0, latitudes, longitudes),
+        GeoUtils.findWithinRadius(13.0, 77.7, 5.0, latitudes, longitudes));
+
+    long[] scalar = BenchmarkHelpers.measure("distance scalar haversine", QUERIES,
+        () -> scalar(nextLatitude(), nextLongitude(), 5.0, latitudes, longitudes));
+    long[] batch = BenchmarkHelpers.measure("distance batch kernel", QUERIES,
+        () -> GeoUtils.findWithinRadius(nextLatitude(), nextLongitude(), 5.0,
+            latitudes, longitudes));
+    long[] parallel = BenchmarkHelpers.measure("distance batch kernel parallel", QUERIES,
+        () -> GeoUtils.findWithinRadiusInParallel(nextLatitude(), nextLongitude(), 5.0,
+            latitudes, longitudes, null));
+    System.out.printf("BENCHMARK distance p50 speedup batch=%.1fx parallel=%.1fx%n",
+        BenchmarkHelpers.percentile(scalar, 50)
+            / (double) BenchmarkHelpers.percentile(batch, 50),
+        BenchmarkHelpers.percentile(scalar, 50)
+            / (double) BenchmarkHelpers.percentile(parallel, 50));
+  }
+
+  private static BitSet scalar(double latitude, double longitude, double radiusInKms,
+      double[] latitudes, double[] longitudes) {
+    BitSet within = new BitSet(latitudes.length);
+    for (int i = 0; i < latitudes.length; i++) {
+      if (GeoUtils.findDistanceInKm(latitude, longitude, latitudes[i], longitudes[i])
+          < radiusInKms) {
+        within.set(i);
+      }
+    }
+    return within;
+  }
+
+  private double nextLatitude() {
+    return 12.7 + random.nextDouble() * 0.6;
+  }
+
+  private double nextLongitude() {
+    return 77.4 + random.nextDouble() * 0.6;
+  }
+}
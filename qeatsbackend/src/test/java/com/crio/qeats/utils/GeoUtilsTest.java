@@ -11,6 +11,8 @@ package com.crio.qeats.utils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.BitSet;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 class GeoUtilsTest {
@@ -29,4 +31,49 @@ class GeoUtilsTest {
     assertEquals(3.04, distanceBetweenA2bHsrAndA2bBtm, 0.1);
   }
 
+  @Test
+  public void batchKernelAgreesWithHaversine() {
+    Random random = new Random(42);
+    double[] radiiInKms = {0.5, 3.0, 5.0, 50.0, 500.0};
+    double[] latitudes = new double[20000];
+    double[] longitudes = new double[20000];
+
+    for (int query = 0; query < 50; query++) {
+      double latitude = -85 + random.nextDouble() * 170;
+      double longitude = -180 + random.nextDouble() * 360;
+      double radiusInKms = radiiInKms[query % radiiInKms.length];
+      double spread = Math.min(90, radiusInKms / 111 * 3);
+      for (int i = 0; i < latitudes.length; i++) {
+        latitudes[i] = Math.max(-90, Math.min(90,
+            latitude + (random.nextDouble() * 2 - 1) * spread));
+        longitudes[i] = ((longitude + (random.nextDouble() * 2 - 1) * spread * 3) + 540) % 360
+            - 180;
+      }
+
+      BitSet expected = new BitSet();
+      for (int i = 0; i < latitudes.length; i++) {
+        if (GeoUtils.findDistanceInKm(latitude, longitude, latitudes[i], longitudes[i])
+            < radiusInKms) {
+          expected.set(i);
+        }
+      }
+      assertEquals(expected, GeoUtils.findWithinRadius(
+          latitude, longitude, radiusInKms, latitudes, longitudes));
+      assertEquals(expected, GeoUtils.findWithinRadiusInParallel(
+          latitude, longitude, radiusInKms, latitudes, longitudes, null));
+    }
+  }
+
+  @Test
+  public void batchKernelOnlyLooksAtCandidates() {
+    double[] latitudes = {20.027, 20.0269, 20.015, 25.0};
+    double[] longitudes = {30.0, 30.0, 30.015, 30.0};
+
+    BitSet matches = GeoUtils.findWithinRadius(20.0, 30.0, 3.0, latitudes, longitudes,
+        new int[] {0, 1, 3});
+
+    assertEquals(1, matches.cardinality());
+    assertEquals(true, matches.get(1));
+  }
+
 }
@@ -0,0 +1,52 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.crio.qeats.models.RestaurantEntity;
+import org.junit.jupiter.api.Test;
+
+class RestaurantNamesTest {
+
+  @Test
+  void displayNameDropsWhatTheAsciiRegexDropped() {
+    for (String name : new String[] {"A2B", "Caf\u00e9 Coffee Day", "\u00f1and\u00fa",
+        "Tandoor \ud83d\udd25 Grill", "\u0c36\u0c4d\u0c30\u0c40 Sagar", ""}) {
+      assertEquals(name.replaceAll("[^\\p{ASCII}]", ""), RestaurantNames.displayNameOf(name));
+    }
+    assertNull(RestaurantNames.displayNameOf(null));
+  }
+
+  @Test
+  void asciiNamesAreNotCopied() {
+    String name = "A2B Adyar Ananda Bhavan";
+    assertSame(name, RestaurantNames.displayNameOf(name));
+  }
+
+  @Test
+  void normalizedRestaurantsReadTheirDerivedFieldsAsStored() {
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setName("Caf\u00e9 \u00c3mazing");
+    restaurantEntity.setOpensAt("18:00");
+    restaurantEntity.setClosesAt("02:30");
+    restaurantEntity.normalize();
+
+    assertEquals("Caf mazing", restaurantEntity.getDisplayName());
+    assertEquals("caf\u00e9 \u00e3mazing", restaurantEntity.getSearchKey());
+    assertEquals(Integer.valueOf(18 * 60), restaurantEntity.getOpensAtMinute());
+    assertEquals(Integer.valueOf(2 * 60 + 30), restaurantEntity.getClosesAtMinute());
+
+    restaurantEntity.setName("Dosa Point");
+    restaurantEntity.setClosesAt("23:00");
+    assertEquals("Dosa Point", restaurantEntity.getDisplayName());
+    assertNull(restaurantEntity.getClosesAtMinute());
+    assertEquals("18:00-23:00", restaurantEntity.getOpeningHours().toString());
+  }
+}